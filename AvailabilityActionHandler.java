@@ -0,0 +1,261 @@
+/*
+ * @file           AvailabilityActionHandler.java
+ *
+ * @class          AvailabilityActionHandler
+ *
+ * @author         Robert Bisewski <contact@ibiscybernetics.com>
+ *
+ * @description    Handles an event where the user wants to know, for every
+ *                 campsite, every day within the dates of the search and
+ *                 each of several stay lengths, whether a stay starting on
+ *                 that day could be made without creating new gaps.
+ *
+ *                 Rather than running a search for each day and each stay
+ *                 length, the days reserved at a campsite are merged into
+ *                 runs in a single pass over its reservations, and then
+ *                 every day of the window is checked against the runs on
+ *                 either side of it in that same pass.
+ *
+ *                 The days a stay could start on are run-length encoded as
+ *                 pairs of the first such day, counted from the start of the
+ *                 search, and the number of days in a row it holds for.
+ *
+ * @usage          First, this class requires a "JsonInputHandler" object
+ *                 that both works and converts the input successfully, just
+ *                 as the SearchActionHandler does:
+ *
+ *                 AvailabilityActionHandler aah
+ *                   = new AvailabilityActionHandler(jih, debugMode);
+ *
+ *                 Second, give it the stay lengths, in days, to check; by
+ *                 default only stays as long as the search itself are:
+ *
+ *                 aah.setStayLengths(new int[] {2, 3, 7});
+ *
+ *                 Third, write out the availability of each campsite
+ *                 through the ResultSink, as plain text on stdout unless
+ *                 another sink was given:
+ *
+ *                 aah.exportAvailability();
+ */
+
+// Imports
+import com.campspot.*;
+import java.io.IOException;
+import java.util.*;
+import misc.Utils;
+
+public class AvailabilityActionHandler {
+
+    /**
+     * Class-wide variables
+     */
+
+    // Instance of a utility class to easily access various small
+    // functions that might be needed.
+    Utils u = null;
+
+    // Holds the data extracted from JSON objects.
+    JsonInputHandler jih = null;
+
+    // Receives the availability of each campsite, as plain text on stdout
+    // unless another sink is given.
+    ResultSink sink = null;
+
+    // Lengths of the stays to check, in days, or null to only check stays
+    // as long as the search itself.
+    int[] stayLengths = null;
+
+    /**
+     * Class-wide functions
+     */
+
+    //! Constructor for the AvailabilityActionHandler
+    /*
+     * @param      JSONInputHandler             object containing the
+     *                                          parsed data input
+     * @param      bool                         whether or not debug msg
+     *                                          are printed
+     *
+     * @returns    AvailabilityActionHandler    ref to newly created object
+     */
+    public AvailabilityActionHandler(JsonInputHandler j, boolean dm) {
+        jih  = j;
+        u    = new Utils(dm);
+        sink = new TextResultSink(ResultSink.stdout());
+    }
+
+    //! Set the sink the availability is written to.
+    /*
+     * @param      ResultSink    sink for the results, e.g. as JSON or CSV
+     *
+     * @returns    none
+     */
+    public void setResultSink(ResultSink s) {
+        sink = s;
+    }
+
+    //! Set the lengths of the stays to check.
+    /*
+     * @param      int[]    lengths of the stays, in days
+     *
+     * @returns    none
+     */
+    public void setStayLengths(int[] lengths) {
+        stayLengths = lengths;
+    }
+
+    //! Determine on which days a stay of each length could start at each
+    //! campsite without creating new gaps, and write it out.
+    /*
+     * @returns   bool    whether or not an error occurred
+     */
+    public boolean exportAvailability() {
+
+        // Safety check, make sure the class-wide "JSONInputHandler jih"
+        // variable is defined.
+        if (jih == null || jih.getSearchObject() == null) {
+            u.printf("exportAvailability() --> invalid JSONInputHandler");
+            return false;
+        }
+
+        // Grab the data from the JSON input handler; the reservations are
+        // only ever read through the index, a campsite at a time.
+        Search searchObj            = jih.getSearchObject();
+        List<GapRule> gapRulesArray = jih.getGapRulesArray();
+        List<Campsite> campsites    = jih.getCampsitesArray();
+        ReservationIndex index      = jih.getReservationIndex();
+
+        // Sanity check, make sure each of them is present.
+        if (gapRulesArray == null || campsites == null) {
+            u.printf("exportAvailability() --> invalid array lists in jih");
+            return false;
+        }
+        if (index == null) {
+            u.printf("exportAvailability() --> unable to index the reservations");
+            return false;
+        }
+
+        // Grab the window of days a stay may start on.
+        int windowStart = (int) searchObj.getStartDate().toEpochDay();
+        int windowDays  = (int) (searchObj.getEndDate().toEpochDay()
+                                 - windowStart) + 1;
+        if (windowDays < 1) {
+            u.printf("exportAvailability() --> search ends before it starts");
+            return false;
+        }
+
+        // By default, only check stays as long as the search itself.
+        int[] lengths = (stayLengths != null) ? stayLengths
+                                              : new int[] {windowDays};
+        for (int s = 0; s < lengths.length; s++) {
+            if (lengths[s] < 1) {
+                u.printf("exportAvailability() --> invalid stay length " +
+                         lengths[s]);
+                return false;
+            }
+        }
+
+        // Gather the sizes of the gap rules that apply, since a gap is only
+        // ever created if it is exactly the size of one of them.
+        Set<Integer> gapSizes = new HashSet<Integer>();
+        for (int l = 0; l < gapRulesArray.size(); l++) {
+            if (gapRulesArray.get(l) != null
+              && gapRulesArray.get(l).getSize() > 0) {
+                gapSizes.add(gapRulesArray.get(l).getSize());
+            }
+        }
+
+        // Begin the response.
+        try {
+            sink.beginAvailability(searchObj, lengths);
+
+            // For each campsite, write out the days a stay of each length
+            // could start on.
+            int[][] available = new int[lengths.length][];
+            for (int i = 0; i < campsites.size(); i++) {
+                Campsite cs = campsites.get(i);
+                int[] reserved = index.reservedRuns(cs.getId());
+                for (int s = 0; s < lengths.length; s++) {
+                    available[s] = availableRuns(reserved, windowStart,
+                                                 windowDays, lengths[s],
+                                                 gapSizes);
+                }
+                sink.addAvailability(cs, available);
+            }
+            sink.endAvailability();
+
+        // Catch any errors while writing out the results.
+        } catch (IOException e) {
+            u.printf("Error: Unable to write out the availability.");
+            u.debugPrint(e.getMessage());
+            return false;
+        }
+
+        // Since everything executed correctly, return true.
+        return true;
+    }
+
+    //! Determine on which days of a window a stay could start at a campsite
+    //! without running into a reservation or creating a gap, in one pass
+    //! over the runs of reserved days.
+    /*
+     * @param      int[]           runs of reserved days at the campsite, as
+     *                             pairs of first and last day
+     * @param      int             first day of the window
+     * @param      int             number of days in the window
+     * @param      int             length of the stay, in days
+     * @param      Set<Integer>    sizes of the gaps that are not allowed
+     *
+     * @returns    int[]           the days a stay could start on, as pairs
+     *                             of the first day, counted from the start
+     *                             of the window, and the number of days
+     */
+    static int[] availableRuns(int[] reserved, int windowStart,
+                               int windowDays, int stayLength,
+                               Set<Integer> gapSizes) {
+
+        // Variables to hold the runs found so far.
+        int[] runs = new int[8];
+        int count  = 0;
+
+        // Index of the first run of reserved days that ends on or after the
+        // current day; the one before it, if any, ends before it.
+        int next = 0;
+
+        for (int d = 0; d < windowDays; d++) {
+            int day = windowStart + d;
+
+            // Move past any runs of reserved days that are over by now.
+            while (next < reserved.length && reserved[next + 1] < day) {
+                next += 2;
+            }
+
+            // The stay has to fit in before the next reservation, and leave
+            // neither a gap behind it nor a gap ahead of it.
+            int stayEnd = day + stayLength - 1;
+            boolean fits
+              = (next >= reserved.length || stayEnd < reserved[next])
+              && (next == 0
+                  || gapSizes.contains(day - reserved[next - 1] - 1) == false)
+              && (next >= reserved.length
+                  || gapSizes.contains(reserved[next] - stayEnd - 1) == false);
+            if (fits == false) {
+                continue;
+            }
+
+            // Extend the current run if it ends the day before, otherwise
+            // start a new one.
+            if (count > 0 && runs[count - 2] + runs[count - 1] == d) {
+                runs[count - 1]++;
+                continue;
+            }
+            if (count == runs.length) {
+                runs = Arrays.copyOf(runs, runs.length * 2);
+            }
+            runs[count++] = d;
+            runs[count++] = 1;
+        }
+        return Arrays.copyOf(runs, count);
+    }
+}
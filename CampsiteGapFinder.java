@@ -18,15 +18,99 @@
  *
  *                 Where "test-case.json" refers to the JSON file that will
  *                 be parsed and searched through for gaps.
+ *
+ *                 Files ending in .ndjson or .jsonl are read as JSON Lines,
+ *                 where the first line holds the search, gapRules and
+ *                 campsites, and every line after it is one reservation.
+ *
+ *                 Reservations may also be streamed from one or more CSV
+ *                 files given after the main input file, each of which has
+ *                 a campsiteId,startDate,endDate header row:
+ *
+ *                 java CampsiteGapFinder header.json reservations.csv
+ *
+ *                 Several dataset files may be given at once, in which
+ *                 case their campsites and reservations are merged, and any
+ *                 campsite id that names two different campsites is caught:
+ *
+ *                 java CampsiteGapFinder shard-1.json shard-2.ndjson
+ *
+ *                 Any of the above files may also be gzipped, in which case
+ *                 they need to end in .gz and are decompressed on the fly.
+ *
+ *                 The --compact option parses the input into compact JSON
+ *                 objects, which keep their few keys in flat arrays rather
+ *                 than in a HashMap, which took the parsed JSON of a file
+ *                 of 300k reservations from about 153 MB to 118 MB.
+ *
+ *                 The --lazy option only indexes where each member of the
+ *                 JSON input lies at first, decoding the search, gapRules
+ *                 and campsites straight away but each reservation only as
+ *                 it is read in. Combined with --campsites=1,5,9, which
+ *                 limits the search to the listed campsites, reservations
+ *                 at any other campsite are never decoded at all.
+ *
+ *                 The --memory-budget=MB option keeps the reservations as
+ *                 packed keys rather than objects, writing them out to
+ *                 temporary files in sorted runs once they exceed the given
+ *                 number of megabytes, then merging the runs into an index
+ *                 that is mapped into memory rather than read onto the heap.
+ *
+ *                 The --cache-dir=path option keeps the parsed dataset in
+ *                 the given directory, keyed by a hash of the input files,
+ *                 so that later runs over unchanged files skip parsing them.
+ *                 The --cache-size=MB option limits its size, 512 MB by
+ *                 default, evicting the entries used least recently first.
+ *
+ *                 The --format=json and --format=csv options write out the
+ *                 results as JSON or CSV rather than as plain text, and the
+ *                 --output=file option writes them to a file. Either way,
+ *                 each campsite is written out as soon as it is found.
+ *
+ *                 The --action=availability option writes out, for every
+ *                 campsite and each day of the search, whether a stay
+ *                 starting on that day can be made without creating new
+ *                 gaps, for each of the stay lengths given by the
+ *                 --stay-lengths=2,3,7 option, or for stays as long as the
+ *                 search itself by default.
+ *
+ *                 The --action=gaps option writes out every gap already
+ *                 present between the dates of the search, along with the
+ *                 campsite it is at and the gap rule it violates.
+ *
+ *                 The --serve=port option keeps the dataset in memory and
+ *                 answers searches POSTed to /search on the given port,
+ *                 each with a body of the same form as the "search" object,
+ *                 sending the results back as JSON, or as CSV if given
+ *                 --format=csv.
+ *
+ *                 The --stdin option keeps the dataset in memory and reads
+ *                 one search per line from stdin, each of the same form as
+ *                 the "search" object, writing out one line of JSON for
+ *                 each of them until stdin runs out.
+ *
+ *                 The --watch option, given along with --serve or --stdin,
+ *                 reads the dataset in again in the background whenever any
+ *                 of its files change, then swaps it in for the searches
+ *                 that follow; searches in progress finish on the old one.
+ *
+ *                 The --delta=file option applies a delta on top of the
+ *                 dataset once it is read in or loaded from the cache, and
+ *                 may be given several times. Each line of a delta holds a
+ *                 single addReservation, removeReservation or addCampsite
+ *                 operation.
  */
 
 // Imports
 import com.campspot.*;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 import java.text.*;
 import java.time.LocalDate;
+import java.util.zip.GZIPInputStream;
 import org.json.*;
 import misc.Utils;
 
@@ -44,8 +128,84 @@ public class CampsiteGapFinder
     // functions that might be needed.
     static Utils u = new Utils(debugMode);
 
-    // A buffer to hold the byte contents of the input file.
-    static byte[] byteBuffer = {};
+    // Size of the buffers used while reading and decompressing input files.
+    static final int inputBufferSize = 64 * 1024;
+
+    // Whether the JSON input is parsed into compact, array-backed objects
+    // rather than HashMap-backed ones, as set by the --compact option.
+    static boolean compactObjects = false;
+
+    // Whether the JSON input is indexed lazily, decoding reservations only
+    // when needed, as set by the --lazy option.
+    static boolean lazyParsing = false;
+
+    // Ids of the only campsites to search through, as set by the
+    // --campsites option, or null to search through all of them.
+    static Set<Integer> campsiteFilter = null;
+
+    // JSON input, or in the case of NDJSON input, the header line holding
+    // the search, gap rules and campsites.
+    static JSONObject jsonObj = null;
+
+    // Memory budget of the reservations, in bytes, as given by the
+    // --memory-budget option in megabytes, or 0 to keep them in memory.
+    static long memoryBudget = 0;
+
+    // Spiller holding the reservations as packed keys within the memory
+    // budget, writing them out to temporary files beyond it; null to keep
+    // them in memory. A new one is made each time the dataset is loaded.
+    static ReservationSpiller reservationSpiller = null;
+
+    // Directory and size limit, in megabytes, of the cache of parsed
+    // datasets, as set by the --cache-dir and --cache-size options.
+    static String cacheDir  = null;
+    static long cacheSizeMB = 512;
+
+    // Format the results are written out in, as set by the --format
+    // option; one of "text", "json" or "csv".
+    static String outputFormat = "text";
+
+    // File the results are written to, as set by the --output option, or
+    // null to write them to stdout.
+    static String outputFile = null;
+
+    // Port to answer searches on over HTTP once the dataset is read in,
+    // as set by the --serve option, or -1 to run a single action instead.
+    static int servePort = -1;
+
+    // Whether to answer search commands read from stdin, one per line,
+    // once the dataset is read in, as set by the --stdin option.
+    static boolean answerStdin = false;
+
+    // Whether to read the dataset in again whenever its files change,
+    // while searches are served or read from stdin, as set by the --watch
+    // option.
+    static boolean watchDataset = false;
+
+    // Deltas to apply on top of the dataset, in order, as given by any
+    // --delta options.
+    static List<String> deltaFiles = new ArrayList<String>();
+
+    // Lazily indexed JSON input, if the --lazy option was given.
+    static JSONLazyObject lazyDoc = null;
+
+    // Pointers to the search, gap rules, campsites and reservations within
+    // the input, as set by the --*-pointer options, or null to look for
+    // each of them at the top level.
+    static JSONPointer searchPointer       = null;
+    static JSONPointer gapRulesPointer     = null;
+    static JSONPointer campsitesPointer    = null;
+    static JSONPointer reservationsPointer = null;
+
+    // Reader for the reservation lines of an NDJSON input file, if any.
+    static BufferedReader ndjsonReader = null;
+
+    // Reader for the records of an XML input file, if any.
+    static BufferedReader xmlReader = null;
+
+    // Pool shared by every tokenizer used while parsing the input, so that
+    // keys and repeated short values such as dates are only held once.
+    static JSONStringPool stringPool = new JSONStringPool();
 
     // String variables for the possible valid actions.
     static String validActions[] = {"search"};
@@ -54,6 +214,19 @@ public class CampsiteGapFinder
     // one of the from the "validActions" array above.
     static String action = "";
 
+    // Actions that may be requested via the --action option in place of
+    // the search, each of which runs over the dates of the search.
+    static String requestableActions[] = {"search", "availability", "gaps"};
+
+    // Action requested via the --action option, or null to simply run
+    // the action found in the dataset.
+    static String requestedAction = null;
+
+    // Lengths of the stays checked by the "availability" action, in days,
+    // as set by the --stay-lengths option, or null to only check stays as
+    // long as the search itself.
+    static int[] stayLengths = null;
+
     /**
      * Class Functions Sections
      */
@@ -90,147 +263,1138 @@ public class CampsiteGapFinder
         return false;
     }
 
-    //! Program Main
+    //! Check if a valid action was requested at the location given by the
+    //! --search-pointer option.
     /*
-     * @param      String[]    list of arguments
+     * @param     Object     JSONObject or JSONLazyObject to look in
      *
-     * @returns    void         exit code
-     *                          0 --> program success
-     *                          1 --> program failure
+     * @returns   bool       whether or not a search was found
      */
-    public static void main(String[] args) {
+    public static boolean validActionPointed(Object doc) {
 
-        // Input validation, make sure this program received arguments.
-        if (args.length != 1) {
+        // Input validation
+        if (doc == null || searchPointer == null) {
+            u.debugPrint("validActionPointed() --> invalid input");
+            return false;
+        }
 
-            // Otherwise print the help text and then leave the program.
-            u.printf("usage: java CampsiteGapFinder filename.json\n");
-            u.returns(1);
+        // If the pointer leads to a value, a search was requested.
+        try {
+            if (searchPointer.queryFrom(doc) != null) {
+                action = "search";
+                u.debugPrint("validActionPointed() --> valid action " +
+                             "requested was... " + action);
+                return true;
+            }
+        } catch (JSONException je) {
+            u.debugPrint(je.getMessage());
         }
 
-        // Let the developer know this program is running in debug mode,
-        // just in case it's not obviously clear...
-        u.debugPrint("--------------------------------------------");
-        u.debugPrint("CampsiteGapFinder is running in debug mode!");
-        u.debugPrint("--------------------------------------------");
+        // Otherwise no valid action was given, so return false.
+        u.debugPrint("validActionPointed() --> no valid action found");
+        return false;
+    }
 
-        // Convert the argument into a path variable.
-        Path jsonPath = FileSystems.getDefault().getPath(".", args[0]);
+    //! Compile the JSON pointer given as the value of a --*-pointer option.
+    /*
+     * @param     String        argument of the form --option=/json/pointer
+     *
+     * @returns   JSONPointer   compiled pointer, or null if it is invalid
+     */
+    public static JSONPointer parsePointer(String arg) {
+        try {
+            return new JSONPointer(arg.substring(arg.indexOf('=') + 1));
+        } catch (IllegalArgumentException e) {
+            u.printf("Error: Invalid JSON pointer " + arg);
+            return null;
+        }
+    }
 
-        // Further input validation, make sure the given JSON file actually
-        // exists at the specified location.
-        if (Files.isReadable(jsonPath) == false) {
-            u.printf("Error: Unable to read the following file:");
-            u.printf(args[0]);
-            u.returns(1);
+    //! Read any --options out of the arguments, leaving only the filenames.
+    /*
+     * @param     String[]   list of arguments
+     *
+     * @returns   String[]   list of filenames, or null if an unknown option
+     *                       was given
+     */
+    public static String[] parseOptions(String[] args) {
+
+        // Input validation
+        if (args == null) {
+            u.debugPrint("parseOptions() --> invalid input");
+            return null;
         }
 
-        // Dump the filename argument to a more meaningful variable name.
-        String jsonInputFile = args[0];
+        // Variable to hold the arguments that are not options.
+        List<String> filenames = new ArrayList<String>();
 
-        // Read the input JSON file into the class-wide byte buffer.
-        try {
-            byteBuffer = Files.readAllBytes(jsonPath);
+        // Cycle through the arguments, setting the class-wide option
+        // variables as they come up.
+        for (int i = 0; i < args.length; i++) {
 
-        // Otherwise reading the json file failed, go ahead and terminate
-        // the program.
-        } catch (IOException e) {
-            u.debugPrint("Error: Unable to copy byte data from the following file:");
-            u.debugPrint(jsonInputFile);
-            e.printStackTrace();
-            u.returns(1);
+            // Anything that doesn't start with a double dash is a filename.
+            if (args[i].startsWith("--") == false) {
+                filenames.add(args[i]);
+                continue;
+            }
+
+            // Parse the input into compact, array-backed objects.
+            if (args[i].equals("--compact")) {
+                compactObjects = true;
+                continue;
+            }
+
+            // Index the input lazily, decoding reservations only as needed.
+            if (args[i].equals("--lazy")) {
+                lazyParsing = true;
+                continue;
+            }
+
+            // Limit the search to a comma separated list of campsite ids.
+            if (args[i].startsWith("--campsites=")) {
+                campsiteFilter = new HashSet<Integer>();
+                String[] ids = args[i].substring("--campsites=".length())
+                                      .split(",");
+                try {
+                    for (int j = 0; j < ids.length; j++) {
+                        campsiteFilter.add(Integer.parseInt(ids[j].trim()));
+                    }
+                } catch (NumberFormatException e) {
+                    u.printf("Error: Invalid campsite id list " + args[i]);
+                    return null;
+                }
+                continue;
+            }
+
+            // Keep the reservations within a memory budget, in megabytes,
+            // writing sorted runs of them out to temporary files beyond it.
+            if (args[i].startsWith("--memory-budget=")) {
+                long megabytes = 0;
+                try {
+                    megabytes = Long.parseLong(args[i].substring(
+                                  "--memory-budget=".length()).trim());
+                } catch (NumberFormatException e) {
+                    megabytes = 0;
+                }
+                if (megabytes < 1) {
+                    u.printf("Error: Invalid memory budget " + args[i]);
+                    return null;
+                }
+                memoryBudget = megabytes * 1024 * 1024;
+                continue;
+            }
+
+            // Run another action over the dates of the search.
+            if (args[i].startsWith("--action=")) {
+                String name = args[i].substring("--action=".length());
+                for (int j = 0; j < requestableActions.length; j++) {
+                    if (requestableActions[j].equals(name)) {
+                        requestedAction = requestableActions[j];
+                    }
+                }
+                if (requestedAction == null) {
+                    u.printf("Error: Unknown action " + args[i]);
+                    return null;
+                }
+                continue;
+            }
+
+            // Check stays of a comma separated list of lengths, in days.
+            if (args[i].startsWith("--stay-lengths=")) {
+                String[] lengths = args[i].substring("--stay-lengths=".length())
+                                          .split(",");
+                stayLengths = new int[lengths.length];
+                try {
+                    for (int j = 0; j < lengths.length; j++) {
+                        stayLengths[j] = Integer.parseInt(lengths[j].trim());
+                        if (stayLengths[j] < 1) {
+                            throw new NumberFormatException();
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    u.printf("Error: Invalid stay length list " + args[i]);
+                    return null;
+                }
+                continue;
+            }
+
+            // Write the results out in another format.
+            if (args[i].startsWith("--format=")) {
+                outputFormat = args[i].substring("--format=".length());
+                if (ResultSink.forFormat(outputFormat, new StringWriter()) == null) {
+                    u.printf("Error: Unknown output format " + args[i]);
+                    return null;
+                }
+                continue;
+            }
+
+            // Write the results to a file rather than to stdout.
+            if (args[i].startsWith("--output=")) {
+                outputFile = args[i].substring("--output=".length());
+                if (outputFile.length() < 1) {
+                    u.printf("Error: Invalid output file " + args[i]);
+                    return null;
+                }
+                continue;
+            }
+
+            // Answer search commands read from stdin, one per line.
+            if (args[i].equals("--stdin")) {
+                answerStdin = true;
+                continue;
+            }
+
+            // Read the dataset in again whenever its files change.
+            if (args[i].equals("--watch")) {
+                watchDataset = true;
+                continue;
+            }
+
+            // Keep the dataset in memory and answer searches over HTTP.
+            if (args[i].startsWith("--serve=")) {
+                try {
+                    servePort = Integer.parseInt(args[i].substring(
+                                  "--serve=".length()).trim());
+                } catch (NumberFormatException e) {
+                    servePort = -1;
+                }
+                if (servePort < 0 || servePort > 65535) {
+                    u.printf("Error: Invalid port " + args[i]);
+                    return null;
+                }
+                continue;
+            }
+
+            // Apply a delta on top of the dataset, once it is read in.
+            if (args[i].startsWith("--delta=")) {
+                String delta = args[i].substring("--delta=".length());
+                if (Files.isReadable(FileSystems.getDefault().getPath(".", delta)) == false) {
+                    u.printf("Error: Unable to read the following delta:");
+                    u.printf(delta);
+                    return null;
+                }
+                deltaFiles.add(delta);
+                continue;
+            }
+
+            // Keep the parsed datasets in a cache directory, up to a size
+            // limit in megabytes.
+            if (args[i].startsWith("--cache-dir=")) {
+                cacheDir = args[i].substring("--cache-dir=".length());
+                if (cacheDir.length() < 1) {
+                    u.printf("Error: Invalid cache directory " + args[i]);
+                    return null;
+                }
+                continue;
+            }
+            if (args[i].startsWith("--cache-size=")) {
+                try {
+                    cacheSizeMB = Long.parseLong(args[i].substring(
+                                    "--cache-size=".length()).trim());
+                } catch (NumberFormatException e) {
+                    cacheSizeMB = 0;
+                }
+                if (cacheSizeMB < 1) {
+                    u.printf("Error: Invalid cache size " + args[i]);
+                    return null;
+                }
+                continue;
+            }
+
+            // Locate the search, gap rules, campsites or reservations at
+            // a JSON pointer such as /data/bookings.
+            if (args[i].startsWith("--search-pointer=")) {
+                searchPointer = parsePointer(args[i]);
+                if (searchPointer == null) {
+                    return null;
+                }
+                continue;
+            }
+            if (args[i].startsWith("--gap-rules-pointer=")) {
+                gapRulesPointer = parsePointer(args[i]);
+                if (gapRulesPointer == null) {
+                    return null;
+                }
+                continue;
+            }
+            if (args[i].startsWith("--campsites-pointer=")) {
+                campsitesPointer = parsePointer(args[i]);
+                if (campsitesPointer == null) {
+                    return null;
+                }
+                continue;
+            }
+            if (args[i].startsWith("--reservations-pointer=")) {
+                reservationsPointer = parsePointer(args[i]);
+                if (reservationsPointer == null) {
+                    return null;
+                }
+                continue;
+            }
+
+            // Otherwise the option is unknown.
+            u.printf("Error: Unknown option " + args[i]);
+            return null;
         }
 
-        // Convert the bytes into a large string.
-        String fileContents = new String(byteBuffer);
+        // Hand back the remaining filenames.
+        return filenames.toArray(new String[filenames.size()]);
+    }
 
-        // Sanity check, make sure this actually recovered a string and is
-        // of non-empty length.
-        if (fileContents == null || fileContents.length() < 1) {
-            u.printf("Error: Invalid or empty file.");
-            u.returns(1);
+    //! Check if a given filename refers to an NDJSON (JSON Lines) file.
+    /*
+     * @param     String    name of the input file
+     *
+     * @returns   bool      whether or not the file ends in .ndjson / .jsonl
+     */
+    public static boolean isNdjsonFile(String filename) {
+
+        // Input validation
+        if (filename == null || filename.length() < 1) {
+            u.debugPrint("isNdjsonFile() --> invalid input");
+            return false;
         }
 
-        // Initialize a new JSONObject.
-        JSONObject jsonObj = new JSONObject(fileContents);
+        // Compare the file extension against the known NDJSON extensions,
+        // ignoring any trailing .gz compression extension.
+        String lowercase = stripGzipExtension(filename.toLowerCase());
+        return lowercase.endsWith(".ndjson") || lowercase.endsWith(".jsonl");
+    }
 
-        // Sanity check, make sure this was able to initialize correctly.
-        if (jsonObj == null) {
-            u.printf("Error: Unable to create a valid JSONObject.");
-            u.returns(1);
+    //! Check if a given filename refers to a CSV reservations file.
+    /*
+     * @param     String    name of the input file
+     *
+     * @returns   bool      whether or not the file ends in .csv
+     */
+    public static boolean isCsvFile(String filename) {
+
+        // Input validation
+        if (filename == null || filename.length() < 1) {
+            u.debugPrint("isCsvFile() --> invalid input");
+            return false;
         }
 
-        // If debug, print out the current contents of the JSONObject.
-        u.debugPrint("\n------------------------------------------------------");
-        u.debugPrint("Mapped Contents of " + jsonInputFile);
-        u.debugPrint("------------------------------------------------------");
-        u.debugPrint(jsonObj.toString());
-        u.debugPrint("------------------------------------------------------\n");
+        // Compare the file extension against the CSV extension, ignoring
+        // any trailing .gz compression extension.
+        return stripGzipExtension(filename.toLowerCase()).endsWith(".csv");
+    }
 
-        // Grab the field names present in the json.
-        String[] fieldnames = jsonObj.getNames(jsonObj);
+    //! Check if a given filename refers to an XML file.
+    /*
+     * @param     String    name of the input file
+     *
+     * @returns   bool      whether or not the file ends in .xml
+     */
+    public static boolean isXmlFile(String filename) {
 
-        // Sanity check, make sure this was able to actually grab the
-        // fieldnames.
-        if (fieldnames == null || fieldnames.length < 1) {
-            u.printf("Error: Unable to correctly extract fieldname data.");
-            u.returns(1);
+        // Input validation
+        if (filename == null || filename.length() < 1) {
+            u.debugPrint("isXmlFile() --> invalid input");
+            return false;
         }
 
-        // If debug, print out the current contents of the JSONObject.
-        u.debugPrint("------------------------------------------------------");
-        u.debugPrint("Fieldname Contents of " + jsonInputFile);
-        u.debugPrint("------------------------------------------------------");
-        for (int i = 0; i < fieldnames.length; i++) {
-            u.debugPrint(fieldnames[i]);
+        // Compare the file extension against the XML extension, ignoring
+        // any trailing .gz compression extension.
+        return stripGzipExtension(filename.toLowerCase()).endsWith(".xml");
+    }
+
+    //! Check if a given filename refers to a gzip compressed file.
+    /*
+     * @param     String    name of the input file
+     *
+     * @returns   bool      whether or not the file ends in .gz
+     */
+    public static boolean isGzipFile(String filename) {
+
+        // Input validation
+        if (filename == null || filename.length() < 1) {
+            u.debugPrint("isGzipFile() --> invalid input");
+            return false;
         }
-        u.debugPrint("------------------------------------------------------\n");
 
-        // Check if the program was given a valid action, note that this
-        // function sets a global called `action` which is used later on to
-        // determine which course of action ought to be taken.
-        if (validActionRequested(fieldnames) == false) {
-            u.printf("Note: No valid action requested. Terminating program.");
-            u.returns(1);
+        // Compare the file extension against the gzip extension.
+        return filename.toLowerCase().endsWith(".gz");
+    }
+
+    //! Remove the trailing .gz extension of a filename, if any.
+    /*
+     * @param     String    name of the input file
+     *
+     * @returns   String    name of the file without the .gz extension
+     */
+    public static String stripGzipExtension(String filename) {
+        return isGzipFile(filename)
+          ? filename.substring(0, filename.length() - 3)
+          : filename;
+    }
+
+    //! Open an input file as a buffered character stream, decompressing it
+    //! on the fly if it happens to be gzipped.
+    /*
+     * @param     Path              location of the input file
+     *
+     * @returns   BufferedReader    UTF-8 reader of the (decompressed) file
+     */
+    public static BufferedReader openInputReader(Path path)
+      throws IOException {
+
+        // Plain files can simply be read as they are.
+        if (isGzipFile(path.toString()) == false) {
+            return Files.newBufferedReader(path);
         }
 
+        // Otherwise stream the file through the gzip decompressor, so that
+        // the uncompressed contents never have to be written to disk or held
+        // in memory all at once.
+        InputStream gzipStream
+          = new GZIPInputStream(Files.newInputStream(path), inputBufferSize);
+        return new BufferedReader(
+          new InputStreamReader(gzipStream, StandardCharsets.UTF_8),
+          inputBufferSize);
+    }
+
+    //! Open a dataset file, reading in as much of it as is needed to find
+    //! the requested action; the rest of it is read by readDataset().
+    /*
+     * @param     String    name of the dataset file, which is assumed to
+     *                      have already been checked for readability
+     *
+     * @returns   bool      whether or not the dataset could be opened, and
+     *                      held a valid action
+     */
+    public static boolean openDataset(String jsonInputFile) {
+
+        // Convert the filename into a path variable.
+        Path jsonPath = FileSystems.getDefault().getPath(".", jsonInputFile);
+
+        // If the file is NDJSON, only read the header line for now; the
+        // reservation lines are streamed later on by the JsonInputHandler.
+        if (isNdjsonFile(jsonInputFile)) {
+
+            // Attempt to open the file and read in the header line.
+            String header = null;
+            try {
+                ndjsonReader = openInputReader(jsonPath);
+                header = ndjsonReader.readLine();
+
+            // Otherwise reading the NDJSON file failed, go ahead and
+            // terminate the program.
+            } catch (IOException e) {
+                u.debugPrint("Error: Unable to read header line from the following file:");
+                u.debugPrint(jsonInputFile);
+                e.printStackTrace();
+                return false;
+            }
+
+            // Sanity check, make sure this actually recovered a header line
+            // and is of non-empty length.
+            if (header == null || header.trim().length() < 1) {
+                u.printf("Error: Invalid or empty NDJSON header line.");
+                return false;
+            }
+
+            // Initialize a new JSONObject from the header line.
+            JSONTokener headerTokener = new JSONBufferedTokener(header);
+            headerTokener.setCompactObjects(compactObjects);
+            headerTokener.setStringPool(stringPool);
+            jsonObj = new JSONObject(headerTokener);
+
+        // If the file is XML, only open it for now; its records are streamed
+        // later on by the JsonInputHandler, without building any JSONObjects.
+        } else if (isXmlFile(jsonInputFile)) {
+
+            // Attempt to open the file.
+            try {
+                xmlReader = openInputReader(jsonPath);
+
+            // Otherwise opening the XML file failed, go ahead and terminate
+            // the program.
+            } catch (IOException e) {
+                u.debugPrint("Error: Unable to read data from the following file:");
+                u.debugPrint(jsonInputFile);
+                e.printStackTrace();
+                return false;
+            }
+
+        // If lazy parsing was requested, only locate the members of the
+        // document for now; they are decoded later on as needed.
+        } else if (lazyParsing) {
+
+            // Read the input JSON file into memory and index it.
+            try (BufferedReader jsonReader = openInputReader(jsonPath)) {
+                lazyDoc = JSONLazyObject.parse(jsonReader)
+                                        .setCompactObjects(compactObjects)
+                                        .setStringPool(stringPool);
+
+            // Otherwise reading the json file failed, go ahead and terminate
+            // the program.
+            } catch (IOException e) {
+                u.debugPrint("Error: Unable to read data from the following file:");
+                u.debugPrint(jsonInputFile);
+                e.printStackTrace();
+                return false;
+
+            // Catch any empty or malformed JSON input.
+            } catch (JSONException je) {
+                u.printf("Error: Invalid or empty file.");
+                u.debugPrint(je.getMessage());
+                return false;
+            }
+
+        // Otherwise stream the entire JSON file straight into the tokenizer,
+        // rather than reading all of it into a byte buffer and a string.
+        } else {
+
+            // Read the input JSON file into a new JSONObject.
+            try (BufferedReader jsonReader = openInputReader(jsonPath)) {
+                JSONTokener jsonTokener = new JSONBufferedTokener(jsonReader);
+                jsonTokener.setCompactObjects(compactObjects);
+                jsonTokener.setStringPool(stringPool);
+                jsonObj = new JSONObject(jsonTokener);
+
+            // Otherwise reading the json file failed, go ahead and terminate
+            // the program.
+            } catch (IOException e) {
+                u.debugPrint("Error: Unable to read data from the following file:");
+                u.debugPrint(jsonInputFile);
+                e.printStackTrace();
+                return false;
+
+            // Catch any empty or malformed JSON input.
+            } catch (JSONException je) {
+                u.printf("Error: Invalid or empty file.");
+                u.debugPrint(je.getMessage());
+                return false;
+            }
+        }
+
+        // XML input is made up of records rather than a single object, and
+        // can only ever hold a search, which its records are checked for
+        // while being read in.
+        if (xmlReader != null) {
+            action = "search";
+        } else {
+
+            // Sanity check, make sure this was able to initialize correctly.
+            if (jsonObj == null && lazyDoc == null) {
+                u.printf("Error: Unable to create a valid JSONObject.");
+                return false;
+            }
+
+            // If debug, print out the current contents of the JSONObject.
+            u.debugPrint("\n------------------------------------------------------");
+            u.debugPrint("Mapped Contents of " + jsonInputFile);
+            u.debugPrint("------------------------------------------------------");
+            u.debugPrint((jsonObj != null) ? jsonObj.toString() : lazyDoc.toString());
+            u.debugPrint("------------------------------------------------------\n");
+
+            // Grab the field names present in the json.
+            String[] fieldnames = (jsonObj != null)
+              ? JSONObject.getNames(jsonObj)
+              : lazyDoc.keySet().toArray(new String[lazyDoc.length()]);
+
+            // Sanity check, make sure this was able to actually grab the
+            // fieldnames.
+            if (fieldnames == null || fieldnames.length < 1) {
+                u.printf("Error: Unable to correctly extract fieldname data.");
+                return false;
+            }
+
+            // If debug, print out the current contents of the JSONObject.
+            u.debugPrint("------------------------------------------------------");
+            u.debugPrint("Fieldname Contents of " + jsonInputFile);
+            u.debugPrint("------------------------------------------------------");
+            for (int i = 0; i < fieldnames.length; i++) {
+                u.debugPrint(fieldnames[i]);
+            }
+            u.debugPrint("------------------------------------------------------\n");
+
+            // Check if the program was given a valid action, note that this
+            // function sets a global called `action` which is used later on to
+            // determine which course of action ought to be taken. If the search
+            // was given a pointer of its own, look for it there instead.
+            boolean actionFound = (searchPointer != null)
+              ? validActionPointed((jsonObj != null) ? jsonObj : lazyDoc)
+              : validActionRequested(fieldnames);
+            if (actionFound == false) {
+                u.printf("Note: No valid action requested. Terminating program.");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //! Create a JsonInputHandler for the requested action, with each of
+    //! the options given on the command line applied to it.
+    /*
+     * @param     int                 number of files whose reservations will
+     *                                follow those of the handler's own
+     *
+     * @returns   JsonInputHandler    the new handler
+     */
+    public static JsonInputHandler newInputHandler(int feeds) {
+
+        // Initialize the JsonInputHandler as a "search" action, and let
+        // it know whether any further reservations will follow.
+        JsonInputHandler jih = new JsonInputHandler(action, debugMode);
+        jih.setReservationFeeds(feeds);
+        jih.setCampsiteFilter(campsiteFilter);
+        jih.setStringPool(stringPool);
+        jih.setReservationSpiller(reservationSpiller);
+
+        // Let it know where to find each portion of the input, if the
+        // layout differs from the usual one.
+        if (searchPointer != null) {
+            jih.setSearchPointer(searchPointer);
+        }
+        if (gapRulesPointer != null) {
+            jih.setGapRulesPointer(gapRulesPointer);
+        }
+        if (campsitesPointer != null) {
+            jih.setCampsitesPointer(campsitesPointer);
+        }
+        if (reservationsPointer != null) {
+            jih.setReservationsPointer(reservationsPointer);
+        }
+        return jih;
+    }
+
+    //! Convert the objects of the dataset opened by openDataset() into the
+    //! arrays of a JsonInputHandler, then let go of the dataset.
+    /*
+     * @param     JsonInputHandler    handler to read the dataset into
+     *
+     * @returns   bool                whether or not the dataset was read in
+     */
+    public static boolean readDataset(JsonInputHandler jih) {
+
+        // Convert the objects present in the input file into arrays that
+        // will be examined later.
+        boolean wasRead = false;
+        u.debugPrint("\nAttempting to call... jih.JsonToObjects()");
+        if (ndjsonReader != null) {
+            wasRead = jih.NdjsonToObjects(jsonObj, ndjsonReader);
+        } else if (xmlReader != null) {
+            wasRead = jih.XmlToObjects(xmlReader);
+        } else if (lazyDoc != null) {
+            wasRead = jih.LazyToObjects(lazyDoc);
+        } else {
+            wasRead = jih.JsonToObjects(jsonObj);
+        }
+        u.debugPrint("\nCompleting call... jih.JsonToObjects()");
+        closeDataset();
+        return wasRead;
+    }
+
+    //! Close any readers of the dataset opened by openDataset() that are
+    //! still open, and let go of the dataset so that the next one can be
+    //! opened.
+    /*
+     * @returns   none
+     */
+    public static void closeDataset() {
+        try {
+            if (ndjsonReader != null) {
+                ndjsonReader.close();
+            }
+            if (xmlReader != null) {
+                xmlReader.close();
+            }
+        } catch (IOException e) {
+            u.debugPrint("closeDataset() --> " + e.getMessage());
+        }
+        ndjsonReader = null;
+        xmlReader    = null;
+        lazyDoc      = null;
+        jsonObj      = null;
+    }
+
+    //! Hash the input files, along with every option that changes how they
+    //! are read in, into the key of their entry in the dataset cache.
+    /*
+     * @param     String[]  list of filenames, in the order they were given
+     *
+     * @returns   long      key of the dataset
+     */
+    public static long datasetKey(String[] filenames) throws IOException {
+
+        // Start off with the options, so that the same files read in some
+        // other way end up under another key.
+        long key = DatasetCache.hash(DatasetCache.FNV_OFFSET_BASIS,
+          "campsites=" + ((campsiteFilter != null)
+                          ? new TreeSet<Integer>(campsiteFilter).toString()
+                          : "") +
+          ";search=" + searchPointer + ";gapRules=" + gapRulesPointer +
+          ";campsites=" + campsitesPointer +
+          ";reservations=" + reservationsPointer + ";");
+
+        // Then hash the name and contents of each of the files, the name
+        // mattering since it determines the format the file is read as.
+        for (int i = 0; i < filenames.length; i++) {
+            key = DatasetCache.hash(key, filenames[i] + "\n");
+            key = DatasetCache.hash(key,
+                    FileSystems.getDefault().getPath(".", filenames[i]));
+        }
+        return key;
+    }
+
+    //! Read in the dataset, from the cache if it was kept there, followed
+    //! by any CSV feeds and deltas. Errors are reported rather than ending
+    //! the program, so that the dataset can also be read in again while
+    //! the program keeps running.
+    /*
+     * @param     String[]            list of filenames, in the order given
+     * @param     List<String>        dataset files among them
+     * @param     List<String>        CSV reservation feeds among them
+     *
+     * @returns   JsonInputHandler    handler holding the dataset, or null if
+     *                                it could not be read in
+     */
+    public static JsonInputHandler loadDataset(String[] args,
+      List<String> datasets, List<String> csvFeeds) {
+
         // Variable to hold the extracted from any input of JSON objects.
         JsonInputHandler jih = null;
 
+        // Start off each load with a string pool and, if a memory budget
+        // was given, a spiller of its own, so that nothing is shared with
+        // a dataset read in earlier.
+        stringPool         = new JSONStringPool();
+        reservationSpiller = (memoryBudget > 0)
+          ? new ReservationSpiller(memoryBudget,
+              FileSystems.getDefault().getPath(
+                System.getProperty("java.io.tmpdir")))
+          : null;
+
+        // If a cache directory was given, look for the dataset in it, in
+        // which case the input files do not need to be read in at all.
+        DatasetCache datasetCache = null;
+        long datasetKey           = 0;
+        boolean wasCached         = false;
+        if (cacheDir != null) {
+            datasetCache = new DatasetCache(
+              FileSystems.getDefault().getPath(cacheDir),
+              cacheSizeMB * 1024 * 1024);
+            try {
+                datasetKey = datasetKey(args);
+                jih        = newInputHandler(0);
+                wasCached  = jih.LoadCachedDataset(
+                               datasetCache.load(datasetKey));
+            } catch (IOException e) {
+                u.printf("Error: Unable to hash the input files.");
+                u.debugPrint(e.getMessage());
+                return null;
+            }
+            u.debugPrint("Dataset " + String.format("%016x", datasetKey) +
+                         (wasCached ? " was" : " was not") + " cached.");
+        }
+
+        // Cached datasets only ever hold a search; otherwise open the first
+        // dataset, which determines the requested action.
+        if (wasCached) {
+            action = "search";
+        } else if (openDataset(datasets.get(0)) == false) {
+            closeDataset();
+            return null;
+        }
+
+        // If another action was requested, run it over the dates of the
+        // search instead.
+        if (requestedAction != null && action == "search") {
+            action = requestedAction;
+        }
+
+        // Variable to hold whether or not the dataset has been read in
+        // successfully so far.
+        boolean wasRead = true;
+
+        // Otherwise read in each of the input files.
+        if (wasCached == false) {
+
+            // Reservations of every file other than the first one follow
+            // those of the first.
+            int feeds = args.length - 1;
+            jih = newInputHandler(feeds);
+
+            // A single dataset is read straight into the handler.
+            if (datasets.size() == 1) {
+                wasRead = readDataset(jih);
+
+            // Otherwise each dataset is read into a handler of its own and
+            // then merged in, which catches any campsite ids that conflict
+            // between the files and adds each file's reservations to the
+            // index as a sorted run.
+            } else {
+                for (int i = 0; i < datasets.size() && wasRead; i++) {
+                    if (i > 0 && openDataset(datasets.get(i)) == false) {
+                        closeDataset();
+                        wasRead = false;
+                        break;
+                    }
+                    JsonInputHandler part = newInputHandler(feeds);
+                    wasRead = readDataset(part) && jih.MergeDataset(part);
+                }
+            }
+
+            // If debug, report how often the string pool was able to hand
+            // back a string it already held rather than a new one.
+            u.debugPrint("String pool: " + stringPool.getHits() + " hits in " +
+                         stringPool.getLookups() + " lookups (" +
+                         String.format("%.1f", stringPool.getHitRate() * 100) +
+                         "% hit rate), " + stringPool.size() +
+                         " distinct strings");
+
+            // Stream the reservations of each of the CSV feeds, if any.
+            for (int i = 0; i < csvFeeds.size() && wasRead; i++) {
+                u.debugPrint("\nAttempting to call... jih.CsvToObjects()");
+                try (BufferedReader csvReader = openInputReader(
+                       FileSystems.getDefault().getPath(".", csvFeeds.get(i)))) {
+                    wasRead = jih.CsvToObjects(csvReader);
+
+                // Otherwise reading the CSV file failed.
+                } catch (IOException e) {
+                    u.printf("Error: Unable to read the following CSV file:");
+                    u.printf(csvFeeds.get(i));
+                    wasRead = false;
+                }
+                u.debugPrint("\nCompleting call... jih.CsvToObjects()");
+            }
+
+            // Keep the dataset in the cache for the next run, if a cache
+            // directory was given.
+            if (datasetCache != null && wasRead) {
+                DatasetCache.Entry entry = new DatasetCache.Entry();
+                entry.search    = jih.getSearchObject();
+                entry.gapRules  = jih.getGapRulesArray();
+                entry.campsites = jih.getCampsitesArray();
+                entry.index     = jih.getReservationIndex();
+                try {
+                    if (entry.search != null && entry.index != null) {
+                        datasetCache.store(datasetKey, entry);
+                    }
+                } catch (IOException e) {
+                    u.debugPrint("Unable to cache the dataset: " +
+                                 e.getMessage());
+                }
+            }
+        }
+
+        // Apply each of the deltas, in order, on top of the dataset whether
+        // it was read in or taken from the cache.
+        for (int i = 0; i < deltaFiles.size() && wasRead; i++) {
+            u.debugPrint("\nAttempting to call... jih.ApplyDelta()");
+            try (BufferedReader deltaReader = openInputReader(
+                   FileSystems.getDefault().getPath(".", deltaFiles.get(i)))) {
+                wasRead = jih.ApplyDelta(deltaReader);
+
+            // Otherwise reading the delta failed.
+            } catch (IOException e) {
+                u.printf("Error: Unable to read the following delta:");
+                u.printf(deltaFiles.get(i));
+                wasRead = false;
+            }
+            u.debugPrint("\nCompleting call... jih.ApplyDelta()");
+        }
+        return wasRead ? jih : null;
+    }
+
+    //! Run the requested action over a dataset that was read in.
+    /*
+     * @param     JsonInputHandler    handler holding the dataset
+     * @param     ResultSink          sink to write the results to
+     *
+     * @returns   bool                whether or not the action succeeded
+     */
+    public static boolean runAction(JsonInputHandler jih, ResultSink sink) {
+
+        // Export the availability of each campsite, if requested.
+        if (action == "availability") {
+            AvailabilityActionHandler aah
+              = new AvailabilityActionHandler(jih, debugMode);
+            aah.setResultSink(sink);
+            aah.setStayLengths(stayLengths);
+            u.debugPrint("\nAttempting to call... aah.exportAvailability()");
+            boolean wasExported = aah.exportAvailability();
+            u.debugPrint("\nCompleting call... aah.exportAvailability()");
+            return wasExported;
+        }
+
+        // Report each of the gaps already present, if requested.
+        if (action == "gaps") {
+            GapsActionHandler gah = new GapsActionHandler(jih, debugMode);
+            gah.setResultSink(sink);
+            u.debugPrint("\nAttempting to call... gah.reportGaps()");
+            boolean wasReported = gah.reportGaps();
+            u.debugPrint("\nCompleting call... gah.reportGaps()");
+            return wasReported;
+        }
+
+        // Otherwise initialize a SearchActionHandler since this needs to
+        // search through the data gathered via the JSONInputHandler.
+        SearchActionHandler sah = new SearchActionHandler(jih, debugMode);
+        sah.setResultSink(sink);
+
+        // Attempt to search for gaps.
+        u.debugPrint("\nAttempting to call... sah.searchForGaps()");
+        boolean wasSearched = sah.searchForGaps();
+        u.debugPrint("\nCompleting call... sah.searchForGaps()");
+        return wasSearched;
+    }
+
+    //! Answer search commands read one per line, each of the same form as
+    //! the "search" object, writing out one line of JSON for each of them.
+    /*
+     * @param     JsonInputHandler    handler holding the dataset
+     * @param     BufferedReader      reader of the search commands
+     * @param     Writer              writer to send the results to
+     *
+     * @returns   bool                whether or not every command could be
+     *                                answered
+     */
+    public static boolean answerSearchCommands(JsonInputHandler jih,
+      BufferedReader in, Writer out) {
+        return answerSearchCommands(new AtomicReference<JsonInputHandler>(jih),
+                                    in, out);
+    }
+
+    //! Answer search commands read one per line against the latest snapshot
+    //! of a dataset that may be swapped out while they are being answered.
+    /*
+     * @param     AtomicReference    snapshot of the dataset, which each
+     *                               command grabs once
+     * @param     BufferedReader     reader of the search commands
+     * @param     Writer             writer to send the results to
+     *
+     * @returns   bool               whether or not every command could be
+     *                               answered
+     */
+    public static boolean answerSearchCommands(
+      AtomicReference<JsonInputHandler> snapshot,
+      BufferedReader in, Writer out) {
+
+        // The same handler answers each of the commands against the same
+        // snapshot, writing each result out as a single JSON document on a
+        // line of its own.
+        JsonInputHandler jih    = snapshot.get();
+        SearchActionHandler sah = new SearchActionHandler(jih, debugMode);
+        sah.setResultSink(new JsonResultSink(out));
+
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+
+                // Skip any blank lines.
+                if (line.trim().length() < 1) {
+                    continue;
+                }
+
+                // If a newer snapshot of the dataset was swapped in, answer
+                // this command and those after it against that one.
+                if (snapshot.get() != jih) {
+                    jih = snapshot.get();
+                    sah = new SearchActionHandler(jih, debugMode);
+                    sah.setResultSink(new JsonResultSink(out));
+                }
+
+                // An invalid command still gets a line of its own, so that
+                // each result lines up with the command it answers.
+                Search searchObj = sah.parseSearch(line);
+                if (searchObj == null) {
+                    out.write(new JSONObject()
+                      .put("error", "Invalid search, expected " +
+                           "{\"startDate\":\"yyyy-MM-dd\"," +
+                           "\"endDate\":\"yyyy-MM-dd\"}.")
+                      .toString());
+                    out.write(System.lineSeparator());
+                    out.flush();
+                    continue;
+                }
+
+                // Otherwise search the dataset; the result is flushed as
+                // soon as it is written, for pipelines waiting on it.
+                if (sah.searchForGaps(searchObj) == false) {
+                    return false;
+                }
+            }
+            out.flush();
+
+        // Catch any errors while reading the commands or writing results.
+        } catch (IOException e) {
+            u.printf("Error: Unable to answer the search commands.");
+            u.debugPrint(e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    //! Program Main
+    /*
+     * @param      String[]    list of arguments
+     *
+     * @returns    void         exit code
+     *                          0 --> program success
+     *                          1 --> program failure
+     */
+    public static void main(String[] args) {
+
+        // Separate any options from the input filenames.
+        args = parseOptions(args);
+
+        // Input validation, make sure this program received arguments.
+        if (args == null || args.length < 1) {
+
+            // Otherwise print the help text and then leave the program.
+            u.printf("usage: java CampsiteGapFinder [--compact] [--lazy] " +
+                     "[--action=search|availability|gaps] " +
+                     "[--stay-lengths=days,days,...] " +
+                     "[--format=text|json|csv] [--output=file] " +
+                     "[--serve=port] [--stdin] [--watch] " +
+                     "[--campsites=id,id,...] [--memory-budget=MB] " +
+                     "[--cache-dir=path] [--cache-size=MB] " +
+                     "[--delta=delta.ndjson ...] " +
+                     "[--{search,gap-rules,campsites,reservations}" +
+                     "-pointer=/json/pointer] " +
+                     "filename.json|filename.ndjson|filename.xml " +
+                     "[more.json|more.ndjson|more.xml ...] " +
+                     "[reservations.csv ...]\n");
+            u.returns(1);
+        }
+        // Split the filenames into dataset files, whose campsites and
+        // reservations are merged together, and CSV reservation feeds.
+        List<String> datasets = new ArrayList<String>();
+        List<String> csvFeeds = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if (isCsvFile(args[i])) {
+                csvFeeds.add(args[i]);
+            } else {
+                datasets.add(args[i]);
+            }
+        }
+
+        // The first file has to be a dataset, since it holds the search.
+        if (datasets.isEmpty() || isCsvFile(args[0])) {
+            u.printf("Error: The first file has to be a JSON, NDJSON or XML " +
+                     "dataset.");
+            u.returns(1);
+        }
+
+        // Make sure each of the files is readable before doing any of the
+        // heavy lifting.
+        for (int i = 0; i < args.length; i++) {
+            if (Files.isReadable(FileSystems.getDefault().getPath(".", args[i])) == false) {
+                u.printf("Error: Unable to read the following file:");
+                u.printf(args[i]);
+                u.returns(1);
+            }
+        }
+
+        // Let the developer know this program is running in debug mode,
+        // just in case it's not obviously clear...
+        u.debugPrint("--------------------------------------------");
+        u.debugPrint("CampsiteGapFinder is running in debug mode!");
+        u.debugPrint("--------------------------------------------");
+
+        // Read in the dataset, from the cache if it was kept there.
+        JsonInputHandler jih = loadDataset(args, datasets, csvFeeds);
+
         // Variable to hold whether or not a given action has succeed or
         // failed.
-        boolean wasActionSuccessful = false;
+        boolean wasActionSuccessful = (jih != null);
+
+        // Hold the dataset as a snapshot, so that a newer one may be swapped
+        // in while searches are served or read from stdin.
+        AtomicReference<JsonInputHandler> snapshot
+          = new AtomicReference<JsonInputHandler>(jih);
+
+        // If the dataset is to be watched, read it in again in the
+        // background whenever any of its files change.
+        if (watchDataset && wasActionSuccessful
+          && (servePort >= 0 || answerStdin)) {
+            List<String> files = new ArrayList<String>(datasets);
+            files.addAll(csvFeeds);
+            files.addAll(deltaFiles);
+            String[] inputs = args;
+            DatasetWatcher watcher = new DatasetWatcher(snapshot, files, () -> {
+                try {
+                    return loadDataset(inputs, datasets, csvFeeds);
 
-        // If a "search" action was requested, perform that.
-        if (action == "search") {
+                // Make sure no input file is left open, even if reading it
+                // in failed part of the way through.
+                } finally {
+                    closeDataset();
+                }
+            }, debugMode);
+            if (watcher.start() == false) {
+                u.returns(1);
+            }
+        }
 
-            // Initialize the JsonInputHandler as a "search" action.
-            jih = new JsonInputHandler(action, debugMode);
+        // Each of the actions runs over the dataset, which was read in.
+        if (action == "search" || action == "availability"
+          || action == "gaps") {
 
-            // Convert the objects present in the JSON input file into
-            // arrays will be examined later.
-            u.debugPrint("\nAttempting to call... jih.JsonToObjects()");
-            wasActionSuccessful = jih.JsonToObjects(jsonObj);
-            u.debugPrint("\nCompleting call... jih.JsonToObjects()");
+            // If a port to serve on was given, keep the dataset in memory
+            // and answer searches over HTTP until the program is stopped,
+            // rather than running a single action.
+            if (servePort >= 0 && wasActionSuccessful) {
+                if (action != "search") {
+                    u.printf("Error: Only searches can be served.");
+                    u.returns(1);
+                }
+                SearchServer server
+                  = new SearchServer(snapshot, outputFormat.equals("csv")
+                                          ? "csv" : "json",
+                                     debugMode);
+                if (server.start(servePort) == false) {
+                    u.returns(1);
+                }
+                u.printf("Answering searches on port " + server.getPort() +
+                         "...");
+                return;
+            }
 
-            // Initialize a SearchActionHandler since this needs to search
-            // through the data gathered via the JSONInputHandler above.
-            SearchActionHandler sah = new SearchActionHandler(jih, debugMode);
+            // If search commands are to be read from stdin, answer each of
+            // them in turn against the dataset until stdin runs out.
+            if (answerStdin && wasActionSuccessful) {
+                if (action != "search") {
+                    u.printf("Error: Only searches can be read from stdin.");
+                    u.returns(1);
+                }
+                u.returns(answerSearchCommands(snapshot,
+                  new BufferedReader(new InputStreamReader(System.in,
+                    StandardCharsets.UTF_8), inputBufferSize),
+                  ResultSink.stdout()) ? 0 : 1);
+            }
 
-            // Sanity check, make sure the SearchActionHandler initialized
-            // correctly.
-            if (sah == null) {
+            // Write the results to the output file, if one was given, or
+            // otherwise to stdout.
+            ResultSink sink = null;
+            try {
+                sink = ResultSink.forFormat(outputFormat, (outputFile != null)
+                  ? ResultSink.open(FileSystems.getDefault().getPath(outputFile))
+                  : ResultSink.stdout());
+            } catch (IOException e) {
+                u.printf("Error: Unable to write to the following file:");
+                u.printf(outputFile);
                 wasActionSuccessful = false;
-                u.debugPrint("Error: Unable to assign memory for a " +
-                             "SearchAction object.");
             }
 
             // If the action was succesful up to this point, go ahead
-            // with attempting to search for gaps.
-            u.debugPrint("\nAttempting to call... sah.searchForGaps()");
+            // with the requested action.
             wasActionSuccessful
-              = (wasActionSuccessful == true) ? sah.searchForGaps() : false;
-            u.debugPrint("\nCompleting call... sah.searchForGaps()");
+              = (wasActionSuccessful == true) ? runAction(jih, sink) : false;
+
+            // Close the output file, if the results were written to one.
+            if (outputFile != null && sink != null) {
+                try {
+                    sink.close();
+                } catch (IOException e) {
+                    u.printf("Error: Unable to write to the following file:");
+                    u.printf(outputFile);
+                    wasActionSuccessful = false;
+                }
+            }
 
         // A default fall-through in the event the end-user somehow ends up
         // accessing a valid action that has yet to be implemented.
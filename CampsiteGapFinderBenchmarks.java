@@ -0,0 +1,367 @@
+/*
+ * @file           CampsiteGapFinderBenchmarks.java
+ *
+ * @class          CampsiteGapFinderBenchmarks
+ *
+ * @author         Robert Bisewski <contact@ibiscybernetics.com>
+ *
+ * @description    This file contains a series of rough benchmarks for the
+ *                 hot paths of this program, so that the effects of any
+ *                 performance work can be checked on the developer's own
+ *                 machine:
+ *
+ *                 1) Wrapping Campsite and Reservation beans as JSON
+ *                 2) Writing out the results of a search, line by line
+ *                 3) Quoting campsite names as JSON strings
+ *
+ *                 Each benchmark runs a few warm-up rounds before timing,
+ *                 and reports the best of several timed rounds, which is
+ *                 marginally sufficient to compare one approach with
+ *                 another on the same machine; it is not a replacement for
+ *                 a proper benchmarking harness.
+ *
+ * @usage          Build the CampsiteGapFinderBenchmarks as a normal Java
+ *                 binary and then run it as show below:
+ *
+ *                 java CampsiteGapFinderBenchmarks
+ */
+
+// Other Imports
+import com.campspot.*;
+import java.io.*;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.LocalDate;
+import java.util.*;
+import org.json.*;
+import misc.Utils;
+
+// Class begins here.
+public class CampsiteGapFinderBenchmarks {
+
+    /**
+     * Class-wide variables
+     */
+
+    // Variable will hide debug messages.
+    static boolean debugMode = false;
+
+    // Instance of a utility class to easily access various small
+    // functions that might be needed.
+    static Utils u = new Utils(debugMode);
+
+    // Number of untimed rounds run before each benchmark, and the number
+    // of timed rounds the best result is taken from.
+    static final int warmupRounds = 3;
+    static final int timedRounds  = 5;
+
+    // Number of beans wrapped in each round of the bean benchmark.
+    static final int beanCount = 200000;
+
+    // Number of campsites written out in each round of the output benchmark.
+    static final int resultCount = 1000000;
+
+    // Variable to keep the results of each round alive, so the JIT cannot
+    // throw away the work being measured.
+    static long sink = 0;
+
+    /**
+     * Class-wide functions
+     */
+
+    //! Run a benchmark several times and return the best time of the lot.
+    /*
+     * @param      Runnable    a single round of the benchmark
+     *
+     * @returns    long        the fastest round, in milliseconds
+     */
+    public static long bestOf(Runnable round) {
+        for (int i = 0; i < warmupRounds; i++) {
+            round.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < timedRounds; i++) {
+            long start = System.nanoTime();
+            round.run();
+            best = Math.min(best, (System.nanoTime() - start) / 1000000);
+        }
+        return best;
+    }
+
+    //! Wrap a bean by reflecting over its getters every single time, much
+    //! as JSONObject(Object bean) did before its accessors were cached per
+    //! class; kept here purely as a baseline.
+    /*
+     * @param      Object        bean to wrap
+     *
+     * @returns    JSONObject    map of the bean's getters
+     */
+    public static JSONObject reflectBean(Object bean) {
+        JSONObject obj = new JSONObject();
+        Method[] methods = bean.getClass().getMethods();
+        for (int i = 0; i < methods.length; i++) {
+            Method method = methods[i];
+            String name   = method.getName();
+            if (Modifier.isPublic(method.getModifiers()) == false
+              || method.getParameterTypes().length != 0
+              || name.startsWith("get") == false || name.length() < 4
+              || name.equals("getClass")
+              || Character.isUpperCase(name.charAt(3)) == false) {
+                continue;
+            }
+            String key = Character.toLowerCase(name.charAt(3)) +
+                         name.substring(4);
+            try {
+                Object result = method.invoke(bean);
+                if (result != null) {
+                    obj.put(key, JSONObject.wrap(result));
+                }
+            } catch (Exception ignore) {
+            }
+        }
+        return obj;
+    }
+
+    //! Compare wrapping many Campsite and Reservation beans through the
+    //! cached accessors against reflecting over them each time.
+    /*
+     * @returns    none
+     */
+    public static void benchmarkBeanWrapping() {
+
+        // Build a list of beans like those a search would produce.
+        List<Object> beans = new ArrayList<Object>();
+        LocalDate day      = LocalDate.of(2018, 6, 1);
+        for (int i = 0; i < beanCount / 2; i++) {
+            Campsite cs = new Campsite(i, "Campsite " + i);
+            beans.add(cs);
+            beans.add(new Reservation(cs, day, day.plusDays(i % 7)));
+        }
+
+        // Time both approaches over the very same beans.
+        long reflected = bestOf(() -> {
+            for (Object bean : beans) {
+                sink += reflectBean(bean).length();
+            }
+        });
+        long cached = bestOf(() -> {
+            for (Object bean : beans) {
+                sink += new JSONObject(bean).length();
+            }
+        });
+
+        // Report the results.
+        u.printf("Bean wrapping, " + beans.size() + " beans per round:");
+        u.printf("  reflection per bean:     " + reflected + " ms");
+        u.printf("  cached accessors:        " + cached + " ms");
+        u.printf("  speedup:                 " +
+                 String.format("%.1fx", (double) reflected / Math.max(cached, 1)));
+    }
+
+    //! Compare writing out a large response through a result sink, which
+    //! flushes once at the end, against printing it line by line through an
+    //! auto-flushing PrintStream, as Utils.printf does.
+    /*
+     * @returns    none
+     */
+    public static void benchmarkResultSinks() {
+
+        // Build a list of campsites like those a search would find.
+        List<Campsite> found = new ArrayList<Campsite>();
+        for (int i = 0; i < resultCount; i++) {
+            found.add(new Campsite(i, "Campsite " + i));
+        }
+        LocalDate day    = LocalDate.of(2018, 6, 1);
+        Search searchObj = new Search(day, day.plusDays(3));
+
+        // Stream that throws away the output, but counts how much there was.
+        OutputStream discard = new OutputStream() {
+            public void write(int b) {
+                sink++;
+            }
+            public void write(byte[] b, int off, int len) {
+                sink += len;
+            }
+        };
+
+        // Time both approaches over the very same campsites.
+        long printed = bestOf(() -> {
+            PrintStream ps = new PrintStream(discard, true);
+            for (Campsite cs : found) {
+                ps.println(cs.getName());
+            }
+        });
+        String[] formats = {"text", "json", "csv"};
+        long[] buffered  = new long[formats.length];
+        for (int f = 0; f < formats.length; f++) {
+            String format = formats[f];
+            buffered[f] = bestOf(() -> {
+                ResultSink rs = ResultSink.forFormat(format,
+                  new BufferedWriter(new OutputStreamWriter(discard),
+                                     64 * 1024));
+                try {
+                    rs.beginSearch(searchObj);
+                    for (Campsite cs : found) {
+                        rs.addCampsite(cs);
+                    }
+                    rs.endSearch();
+                } catch (IOException e) {
+                    u.printf("Error: " + e.getMessage());
+                }
+            });
+        }
+
+        // Report the results.
+        u.printf("Result output, " + found.size() + " campsites per round:");
+        u.printf("  println per line:        " + printed + " ms");
+        for (int f = 0; f < formats.length; f++) {
+            u.printf(String.format("  %-25s", formats[f] + " sink:") +
+                     buffered[f] + " ms");
+        }
+    }
+
+    //! Quote a string as JSON one character at a time, the way the
+    //! org.json library used to, as a point of comparison.
+    /*
+     * @param      String    string to quote
+     * @param      Writer    writer to send the quoted string to
+     *
+     * @returns    none
+     */
+    static void quotePerChar(String string, Writer w) throws IOException {
+        char b;
+        char c = 0;
+        String hhhh;
+        w.write('"');
+        for (int i = 0; i < string.length(); i++) {
+            b = c;
+            c = string.charAt(i);
+            switch (c) {
+            case '\\':
+            case '"':
+                w.write('\\');
+                w.write(c);
+                break;
+            case '/':
+                if (b == '<') {
+                    w.write('\\');
+                }
+                w.write(c);
+                break;
+            case '\b':
+                w.write("\\b");
+                break;
+            case '\t':
+                w.write("\\t");
+                break;
+            case '\n':
+                w.write("\\n");
+                break;
+            case '\f':
+                w.write("\\f");
+                break;
+            case '\r':
+                w.write("\\r");
+                break;
+            default:
+                if (c < ' ' || (c >= '\u0080' && c < '\u00a0')
+                        || (c >= '\u2000' && c < '\u2100')) {
+                    w.write("\\u");
+                    hhhh = Integer.toHexString(c);
+                    w.write("0000", 0, 4 - hhhh.length());
+                    w.write(hhhh);
+                } else {
+                    w.write(c);
+                }
+            }
+        }
+        w.write('"');
+    }
+
+    //! Time the quoting of campsite names as JSON strings, one character at
+    //! a time against the escape table of JSONObject.quote.
+    /*
+     * @returns    none
+     */
+    public static void benchmarkQuoting() {
+
+        // Build a list of names, a few of which need escaping.
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < resultCount; i++) {
+            if (i % 10 == 0) {
+                names.add("Campsite " + i + " \"by the lake\"");
+            } else {
+                names.add("Daniel Boone Bungalow " + i);
+            }
+        }
+
+        // Writer that throws away the output, but counts how much there was.
+        Writer discard = new Writer() {
+            public void write(int c) {
+                sink++;
+            }
+            public void write(char[] cbuf, int off, int len) {
+                sink += len;
+            }
+            public void write(String str, int off, int len) {
+                sink += len;
+            }
+            public void flush() {
+            }
+            public void close() {
+            }
+        };
+
+        // Time both approaches over the very same names.
+        long perChar = bestOf(() -> {
+            try {
+                for (String name : names) {
+                    quotePerChar(name, discard);
+                }
+            } catch (IOException e) {
+                u.printf("Error: " + e.getMessage());
+            }
+        });
+        long table = bestOf(() -> {
+            try {
+                for (String name : names) {
+                    JSONObject.quote(name, discard);
+                }
+            } catch (IOException e) {
+                u.printf("Error: " + e.getMessage());
+            }
+        });
+
+        // Report the results.
+        u.printf("JSON quoting, " + names.size() + " campsite names per round:");
+        u.printf("  one character at a time: " + perChar + " ms");
+        u.printf("  escape table:            " + table + " ms");
+    }
+
+    //! Main
+    /*
+     * @param     String[]    command line arguments, unused
+     *
+     * @returns   none
+     */
+    public static void main(String[] args) {
+
+        // Let the developer know this program is running the benchmarks.
+        u.printf("--------------------------------------------");
+        u.printf("CampsiteGapFinderBenchmarks are now running...");
+        u.printf("--------------------------------------------");
+
+        // Time the wrapping of beans as JSON objects.
+        benchmarkBeanWrapping();
+
+        // Time the writing out of a large response.
+        benchmarkResultSinks();
+
+        // Time the quoting of campsite names as JSON strings.
+        benchmarkQuoting();
+
+        // Keep the results alive until the very end.
+        u.printf("--------------------------------------------");
+        u.debugPrint("sink: " + sink);
+    }
+}
@@ -259,6 +259,1400 @@ public class CampsiteGapFinderTests {
           "ought to return true and print ", sah.searchForGaps());
     }
 
+    @Test
+    //! Test to ensure JsonInputHandler can stream NDJSON reservation lines
+    /*
+     * @returns    none
+     */
+    public static void testNdjsonToObjects() {
+
+        // Variable declaration
+        String action        = "search";
+        JsonInputHandler jih = new JsonInputHandler(action, debugMode);
+
+        // Sample NDJSON header line.
+        JSONObject header = new JSONObject("{\"search\":{" +
+                                       "\"startDate\": \"2016-06-07\"," +
+                                       "\"endDate\": \"2016-06-10\"}," +
+                                       "\"gapRules\":[{\"gapSize\": 2}]," +
+                                       "\"campsites\":[{\"id\": 1," +
+                                       "\"name\": \"Grizzly\"}]}");
+
+        // Sample reservation lines, including a blank trailing line.
+        java.io.BufferedReader lines = new java.io.BufferedReader(
+          new java.io.StringReader(
+            "{\"campsiteId\": 1, \"startDate\": \"2016-06-01\", " +
+            "\"endDate\": \"2016-06-04\"}\n" +
+            "{\"campsiteId\": 1, \"startDate\": \"2016-06-11\", " +
+            "\"endDate\": \"2016-06-13\"}\n\n"));
+
+        // Feeding in the header and lines should succeed, and both of the
+        // reservation lines ought to have been read in.
+        Assert.assertTrue("valid NDJSON input in NdjsonToObjects should be " +
+          "true", jih.NdjsonToObjects(header, lines));
+        Assert.assertTrue("NdjsonToObjects should read every reservation " +
+          "line", jih.getReservationsArray().size() == 2);
+    }
+
+    @Test
+    //! Test to ensure JsonInputHandler can stream CSV reservation rows
+    /*
+     * @returns    none
+     */
+    public static void testCsvToObjects() {
+
+        // Variable declaration
+        String action        = "search";
+        JsonInputHandler jih = new JsonInputHandler(action, debugMode);
+
+        // Sample JSON input, leaving out the reservations since those come
+        // from the CSV feed.
+        JSONObject jsonObj = new JSONObject("{\"search\":{" +
+                                        "\"startDate\": \"2016-06-07\"," +
+                                        "\"endDate\": \"2016-06-10\"}," +
+                                        "\"gapRules\":[{\"gapSize\": 2}]," +
+                                        "\"campsites\":[{\"id\": 1," +
+                                        "\"name\": \"Grizzly\"}]}");
+
+        // Populate the JsonInputHandler, while expecting a single feed.
+        jih.setReservationFeeds(1);
+        Assert.assertTrue("JSON input without reservations should be true " +
+          "when a feed is expected", jih.JsonToObjects(jsonObj));
+
+        // Feed in CSV rows whose columns are in a different order than the
+        // reservation fields.
+        Assert.assertTrue("valid CSV input in CsvToObjects should be true",
+          jih.CsvToObjects(new java.io.StringReader(
+            "endDate,campsiteId,startDate\n" +
+            "2016-06-04,1,2016-06-01\n" +
+            "2016-06-13,1,2016-06-11\n")));
+        Assert.assertTrue("CsvToObjects should read every reservation row",
+          jih.getReservationsArray().size() == 2);
+
+        // Rows that refer to an unknown campsite should cause a failure.
+        Assert.assertFalse("CSV rows with an unknown campsite should be " +
+          "false", jih.CsvToObjects(new java.io.StringReader(
+            "campsiteId,startDate,endDate\n2,2016-06-01,2016-06-04\n")));
+    }
+
+    @Test
+    //! Test to ensure gzipped datasets are read in the same as plain ones
+    /*
+     * @returns    none
+     */
+    public static void testGzipInput() {
+
+        // Variable declaration
+        String search = "{\"startDate\":\"2016-06-07\",\"endDate\":\"2016-06-10\"}\n";
+        String[] names = {"test-case.json", null, null};
+        String[] found = new String[names.length];
+        java.nio.file.Path dir = null;
+
+        try {
+
+            // Write out the test case gzipped as it is, and as NDJSON, named
+            // relative to the current directory as input files are.
+            dir = java.nio.file.Files.createTempDirectory("gzip-");
+            JSONObject doc = new JSONObject(new String(
+              java.nio.file.Files.readAllBytes(
+                java.nio.file.Paths.get("test-case.json")), "UTF-8"));
+            StringBuilder ndjson = new StringBuilder();
+            JSONArray reservations = doc.getJSONArray("reservations");
+            JSONObject header = new JSONObject(doc.toString());
+            header.remove("reservations");
+            ndjson.append(header.toString()).append('\n');
+            for (int i = 0; i < reservations.length(); i++) {
+                ndjson.append(reservations.get(i).toString()).append('\n');
+            }
+            String[] contents = {null, doc.toString(), ndjson.toString()};
+            String[] files    = {null, "test-case.json.gz", "test-case.ndjson.gz"};
+            for (int i = 1; i < names.length; i++) {
+                java.nio.file.Path file = dir.resolve(files[i]);
+                try (java.io.OutputStream out = new java.util.zip.GZIPOutputStream(
+                       java.nio.file.Files.newOutputStream(file))) {
+                    out.write(contents[i].getBytes("UTF-8"));
+                }
+                names[i] = java.nio.file.Paths.get("").toAbsolutePath()
+                                              .relativize(file).toString();
+            }
+
+            // The gzipped files should decompress back to what was written.
+            try (java.io.BufferedReader in = CampsiteGapFinder.openInputReader(
+                   dir.resolve(files[2]))) {
+                Assert.assertEquals("gzipped input should be decompressed",
+                  header.toString(), in.readLine());
+            }
+
+            // Read in and search each of the files the same way.
+            for (int i = 0; i < names.length; i++) {
+                String[] inputs = {names[i]};
+                JsonInputHandler jih = CampsiteGapFinder.loadDataset(inputs,
+                  java.util.Arrays.asList(inputs),
+                  new java.util.ArrayList<String>());
+                Assert.assertNotNull("the dataset should be read in", jih);
+                java.io.StringWriter out = new java.io.StringWriter();
+                CampsiteGapFinder.answerSearchCommands(jih,
+                  new java.io.BufferedReader(new java.io.StringReader(search)),
+                  out);
+                found[i] = out.toString();
+            }
+
+            // Clean up the gzipped files.
+            for (int i = 1; i < files.length; i++) {
+                java.nio.file.Files.delete(dir.resolve(files[i]));
+            }
+            java.nio.file.Files.delete(dir);
+        } catch (java.io.IOException e) {
+            u.printf("Error: " + e.getMessage());
+        }
+
+        // Each of the gzipped files should give the same results as the
+        // plain one.
+        Assert.assertTrue("the plain dataset should find campsites",
+          found[0] != null && found[0].contains("\"campsites\":[{"));
+        Assert.assertEquals("gzipped JSON should match the plain dataset",
+          found[0], found[1]);
+        Assert.assertEquals("gzipped NDJSON should match the plain dataset",
+          found[0], found[2]);
+    }
+
+    @Test
+    //! Test to ensure the block-buffered tokenizer parses the same as the
+    //! regular one, even when values straddle the block boundaries
+    /*
+     * @returns    none
+     */
+    public static void testJSONBufferedTokener() {
+
+        // Sample JSON input with escapes, numbers and nested values.
+        String json = "{\"search\": {\"startDate\": \"2016-06-07\"}, " +
+                      "\"name\": \"Bear \\\"Grylls\\\" Cave\\u0021\", " +
+                      "\"ids\": [1, -25, 3000000000, 1.5e3, true, null], " +
+                      "\"empty\": {}, \"text\": \"a rather long string " +
+                      "which does not fit in a single small block\"}";
+
+        // Parse the input with the regular tokenizer as a reference.
+        JSONObject expected = new JSONObject(new JSONTokener(json));
+
+        // Parse the input with a range of tiny block sizes, each of which
+        // should produce the same result as the regular tokenizer.
+        for (int size = 2; size < 24; size++) {
+            JSONObject actual = new JSONObject(new JSONBufferedTokener(
+              new java.io.StringReader(json), size));
+            Assert.assertTrue("JSONBufferedTokener with a block size of " +
+              size + " should parse the same as JSONTokener",
+              expected.similar(actual));
+        }
+
+        // Parsing straight out of a string should also be the same.
+        Assert.assertTrue("JSONBufferedTokener over a string should parse " +
+          "the same as JSONTokener",
+          expected.similar(new JSONObject(new JSONBufferedTokener(json))));
+
+        // Stepping back from the start of a range should fail rather than
+        // step onto the character before it.
+        char[] chars = "x{\"a\":1}".toCharArray();
+        JSONBufferedTokener ranged = new JSONBufferedTokener(chars, 1, 7);
+        boolean refused = false;
+        try {
+            ranged.back();
+        } catch (JSONException e) {
+            refused = true;
+        }
+        Assert.assertTrue("stepping back before a range should be refused",
+          refused && ranged.next() == '{');
+    }
+
+    @Test
+    //! Test to ensure compact JSON objects behave the same as regular ones
+    /*
+     * @returns    none
+     */
+    public static void testCompactObjects() {
+
+        // Sample JSON input with both small objects and one that has more
+        // keys than are kept in the flat arrays.
+        String json = "{\"search\": {\"startDate\": \"2016-06-07\"}, " +
+                      "\"big\": {\"a\":1,\"b\":2,\"c\":3,\"d\":4," +
+                      "\"e\":5,\"f\":6,\"g\":7,\"h\":8,\"i\":9," +
+                      "\"j\":10}}";
+
+        // Parse the input into both regular and compact objects.
+        JSONObject expected = new JSONObject(json);
+        JSONTokener x = new JSONBufferedTokener(json);
+        x.setCompactObjects(true);
+        JSONObject actual = new JSONObject(x);
+
+        // The compact objects ought to hold the very same contents.
+        Assert.assertTrue("compact JSONObject should be similar to a " +
+          "regular one", expected.similar(actual));
+        Assert.assertTrue("compact JSONObject should hold all of the keys " +
+          "of a large object", actual.getJSONObject("big").length() == 10);
+
+        // Removing and replacing keys should work as usual.
+        JSONObject search = actual.getJSONObject("search");
+        search.put("endDate", "2016-06-10");
+        search.put("startDate", "2016-06-08");
+        search.remove("endDate");
+        Assert.assertTrue("compact JSONObject should support put and remove",
+          search.length() == 1
+          && search.getString("startDate").equals("2016-06-08"));
+
+        // Equal maps should hash the same, whether compact or not, so the
+        // maps behind two compact objects are compared with a HashMap.
+        java.util.Map<?, ?>[] maps = new java.util.Map<?, ?>[2];
+        try {
+            java.lang.reflect.Field field
+              = JSONObject.class.getDeclaredField("map");
+            field.setAccessible(true);
+            for (int i = 0; i < maps.length; i++) {
+                JSONTokener t = new JSONBufferedTokener("{\"id\":1,\"name\":\"Birch\"}");
+                t.setCompactObjects(true);
+                maps[i] = (java.util.Map<?, ?>) field.get(new JSONObject(t));
+            }
+        } catch (ReflectiveOperationException e) {
+            u.printf("Error: " + e.getMessage());
+        }
+        java.util.Map<String, Object> hashed
+          = new java.util.HashMap<String, Object>();
+        hashed.put("id", 1);
+        hashed.put("name", "Birch");
+        Assert.assertTrue("equal compact maps should have equal hash codes",
+          maps[0] != null && maps[0].getClass() != hashed.getClass()
+          && maps[0].equals(maps[1]) && maps[0].hashCode() == maps[1].hashCode()
+          && maps[0].equals(hashed) && maps[0].hashCode() == hashed.hashCode());
+    }
+
+    @Test
+    //! Test to ensure plain integers are read the same through the fast path
+    /*
+     * @returns    none
+     */
+    public static void testIntegerFastPath() {
+
+        // Sample JSON input holding integers of various sizes and forms.
+        String json = "{\"a\": 0, \"b\": -0, \"c\": 007, \"d\": 42 , " +
+                      "\"e\": 2147483648, \"f\": -2147483648, " +
+                      "\"g\": 123456789012345678901}";
+
+        // Parse the input with both of the tokenizers.
+        JSONObject regular  = new JSONObject(new JSONTokener(json));
+        JSONObject buffered = new JSONObject(new JSONBufferedTokener(json));
+
+        // Both should produce values of the very same type and value.
+        String[] keys = {"a", "b", "c", "d", "e", "f", "g"};
+        for (int i = 0; i < keys.length; i++) {
+            Assert.assertTrue("integer fast path should keep the value of " +
+              "key " + keys[i], regular.get(keys[i]).equals(
+              buffered.get(keys[i])));
+        }
+
+        // Small integers become Integers, larger ones Longs, and numbers
+        // that are not in canonical form are kept as they were.
+        Assert.assertTrue("42 should be an Integer",
+          buffered.get("d") instanceof Integer && buffered.getInt("d") == 42);
+        Assert.assertTrue("2147483648 should be a Long",
+          buffered.get("e") instanceof Long);
+        Assert.assertTrue("007 should stay a String",
+          buffered.get("c") instanceof String);
+    }
+
+    @Test
+    //! Test to ensure JsonInputHandler can read a lazily indexed document,
+    //! decoding only the reservations at campsites that pass the filter
+    /*
+     * @returns    none
+     */
+    public static void testLazyToObjects() {
+
+        // Variable declaration
+        String action        = "search";
+        JsonInputHandler jih = new JsonInputHandler(action, debugMode);
+
+        // Sample JSON input, where the reservation at campsite 2 is
+        // malformed and would fail to decode if it was ever decoded.
+        String json = "{\"search\":{\"startDate\": \"2016-06-07\"," +
+                      "\"endDate\": \"2016-06-10\"}," +
+                      "\"gapRules\":[{\"gapSize\": 2}]," +
+                      "\"campsites\":[{\"id\": 1, \"name\": \"A\"}," +
+                      "{\"id\": 2, \"name\": \"B\"}]," +
+                      "\"reservations\":[" +
+                      "{\"campsiteId\": 1, \"startDate\": \"2016-06-01\"," +
+                      "\"endDate\": \"2016-06-04\"}," +
+                      "{\"campsiteId\": 2, \"startDate\": {\"a\" \"b\"}," +
+                      "\"endDate\": \"2016-06-04\"}]}";
+
+        // Only keep campsite 1, so the malformed reservation is skipped
+        // without being decoded.
+        jih.setCampsiteFilter(new java.util.HashSet<Integer>(
+          java.util.Arrays.asList(1)));
+        Assert.assertTrue("lazy JSON input in LazyToObjects should be true",
+          jih.LazyToObjects(JSONLazyObject.parse(
+            new java.io.StringReader(json))));
+        Assert.assertTrue("LazyToObjects should only keep campsite 1",
+          jih.getCampsitesArray().size() == 1
+          && jih.getReservationsArray().size() == 1);
+
+        // A trailing comma in an object should be accepted, as it is when
+        // the input is read in all at once.
+        String trailing = "{\"search\":{\"startDate\": \"2016-06-07\"," +
+                          "\"endDate\": \"2016-06-10\",}," +
+                          "\"gapRules\":[{\"gapSize\": 2}]," +
+                          "\"campsites\":[{\"id\": 1, \"name\": \"A\"}]," +
+                          "\"reservations\":[],}";
+        jih = new JsonInputHandler(action, debugMode);
+        Assert.assertTrue("trailing commas should be accepted when lazy",
+          new JSONObject(trailing).length() == 4
+          && jih.LazyToObjects(JSONLazyObject.parse(
+               new java.io.StringReader(trailing)))
+          && jih.getSearchObject() != null);
+    }
+
+    @Test
+    //! Test to ensure a string pool hands back the very same instance for
+    //! keys and values that come up more than once
+    /*
+     * @returns    none
+     */
+    public static void testStringPool() {
+
+        // Sample JSON input where every element repeats the same keys and
+        // a few of the same values, both with and without escapes.
+        String json = "[{\"campsiteId\": 1, \"startDate\": \"2018-06-01\"}," +
+                      " {\"campsiteId\": 2, \"startDate\": \"2018-06-01\"}," +
+                      " {\"campsiteId\": 3, \"startDate\": \"2018\\u002d06-01\"}]";
+
+        // Parse the input with a pool, using each of the tokenizers.
+        JSONStringPool pool    = new JSONStringPool();
+        JSONTokener tokener    = new JSONBufferedTokener(json);
+        tokener.setStringPool(pool);
+        JSONArray elements     = new JSONArray(tokener);
+        JSONTokener plain      = new JSONTokener(json);
+        plain.setStringPool(pool);
+        JSONArray plainElements = new JSONArray(plain);
+
+        // Repeated values should be one and the same String, whether or not
+        // they were written with escapes, and across both parses.
+        String first = elements.getJSONObject(0).getString("startDate");
+        Assert.assertTrue("repeated values should share one instance",
+          first == elements.getJSONObject(1).getString("startDate"));
+        Assert.assertTrue("escaped values should share one instance",
+          first == elements.getJSONObject(2).getString("startDate"));
+        Assert.assertTrue("values from another parse should share one instance",
+          first == plainElements.getJSONObject(0).getString("startDate"));
+
+        // Repeated keys should be one and the same String too.
+        String key = elements.getJSONObject(0).keys().next();
+        Assert.assertTrue("repeated keys should share one instance",
+          key == pool.intern(key.toCharArray(), 0, key.length()));
+
+        // Only the first of each distinct string should have missed.
+        Assert.assertTrue("the pool should only hold the distinct strings",
+          pool.size() == 3);
+        Assert.assertTrue("the pool should report its hit rate",
+          pool.getHitRate() > 0.5 && pool.getHits() < pool.getLookups());
+
+        // Strings too long to be pooled should still parse as they were.
+        String longValue = "abcdefghijklmnopqrstuvwxyz0123456789";
+        Assert.assertTrue("long strings should not be pooled",
+          pool.intern(longValue).equals(longValue) && pool.size() == 3);
+    }
+
+    @Test
+    //! Test to ensure JsonInputHandler can read a document laid out in some
+    //! other way, by way of compiled JSON pointers
+    /*
+     * @returns    none
+     */
+    public static void testJsonPointerLayout() {
+
+        // Sample vendor feed that nests everything under a "data" member and
+        // uses names of its own.
+        String json = "{\"data\": {" +
+          "\"query\": {\"startDate\": \"2018-06-04\", \"endDate\": \"2018-06-06\"}," +
+          "\"rules\": [{\"gapSize\": 2}]," +
+          "\"sites\": [{\"id\": 1, \"name\": \"Cozy Cabin\"}]," +
+          "\"bookings\": [{\"campsiteId\": 1, \"startDate\": \"2018-06-01\"," +
+          " \"endDate\": \"2018-06-03\"}]}}";
+
+        // A compiled pointer should resolve array indices and nested keys
+        // in both regular and lazily indexed documents.
+        JSONPointer siteName = new JSONPointer("/data/sites/0/name");
+        JSONLazyObject lazy  = JSONLazyObject.parse(new java.io.StringReader(json));
+        Assert.assertTrue("compiled pointer should resolve in a JSONObject",
+          "Cozy Cabin".equals(new JSONObject(json).query(siteName)));
+        Assert.assertTrue("compiled pointer should resolve in a lazy document",
+          "Cozy Cabin".equals(siteName.queryFrom(lazy)));
+        Assert.assertTrue("missing keys should resolve to null",
+          new JSONObject(json).optQuery(new JSONPointer("/data/sites/1")) == null);
+
+        // Read the feed in through pointers, both in full and lazily.
+        for (int pass = 0; pass < 2; pass++) {
+            JsonInputHandler jih = new JsonInputHandler("search", debugMode);
+            jih.setSearchPointer(new JSONPointer("/data/query"));
+            jih.setGapRulesPointer(new JSONPointer("/data/rules"));
+            jih.setCampsitesPointer(new JSONPointer("/data/sites"));
+            jih.setReservationsPointer(new JSONPointer("/data/bookings"));
+            Assert.assertTrue("pointed input should be read in",
+              (pass == 0) ? jih.JsonToObjects(new JSONObject(json))
+                          : jih.LazyToObjects(JSONLazyObject.parse(
+                              new java.io.StringReader(json))));
+            Assert.assertTrue("pointed input should fill in every array",
+              jih.getSearchObject() != null
+              && jih.getGapRulesArray().size() == 1
+              && jih.getCampsitesArray().size() == 1
+              && jih.getReservationsArray().size() == 1);
+        }
+
+        // Pointing at something that is not there should fail cleanly.
+        JsonInputHandler jih = new JsonInputHandler("search", debugMode);
+        jih.setSearchPointer(new JSONPointer("/data/query"));
+        Assert.assertFalse("missing gap rules should be rejected",
+          jih.JsonToObjects(new JSONObject(json)));
+    }
+
+    @Test
+    //! Test to ensure campsites and reservations can be wrapped as JSON beans,
+    //! both the first time their class is seen and from then on
+    /*
+     * @returns    none
+     */
+    public static void testBeanAccessors() {
+
+        // Variable declaration
+        Campsite cs       = new Campsite(7, "Cozy Cabin");
+        Reservation res   = new Reservation(cs, LocalDate.of(2018, 6, 1),
+                                            LocalDate.of(2018, 6, 3));
+
+        // Wrap each of the beans twice, so the second pass goes through the
+        // accessors cached by the first.
+        for (int pass = 0; pass < 2; pass++) {
+            JSONObject campsite    = new JSONObject(cs);
+            JSONObject reservation = (JSONObject) JSONObject.wrap(res);
+
+            Assert.assertTrue("a wrapped campsite should hold its getters",
+              campsite.length() == 2 && campsite.getInt("id") == 7
+              && "Cozy Cabin".equals(campsite.getString("name")));
+            Assert.assertTrue("a wrapped reservation should hold its getters",
+              reservation.length() == 3
+              && reservation.getInt("campsiteId") == 7
+              && "2018-06-01".equals(reservation.getString("startDate"))
+              && "2018-06-03".equals(reservation.getString("endDate")));
+        }
+    }
+
+    @Test
+    //! Test to ensure JsonInputHandler can stream records out of XML input,
+    //! whether their fields are attributes or child elements
+    /*
+     * @returns    none
+     */
+    public static void testXmlToObjects() {
+
+        // Variable declaration
+        String action        = "search";
+        JsonInputHandler jih = new JsonInputHandler(action, debugMode);
+
+        // Sample XML input, mixing both ways of writing the fields along
+        // with comments, entities and CDATA.
+        String xml = "<?xml version=\"1.0\"?>\n" +
+          "<campground><!-- a partner feed -->" +
+          "<search startDate=\"2018-06-04\" endDate=\"2018-06-06\"/>" +
+          "<gapRules><gapRule><gapSize>2</gapSize></gapRule></gapRules>" +
+          "<campsites>" +
+          "<campsite id=\"1\"><name>Bears &amp; Trees</name></campsite>" +
+          "<campsite><id>2</id><name><![CDATA[<Lakeside>]]></name></campsite>" +
+          "</campsites>" +
+          "<reservations>" +
+          "<reservation campsiteId=\"1\" startDate=\"2018-06-01\" endDate=\"2018-06-03\"/>" +
+          "<reservation><campsiteId>2</campsiteId><startDate>2018-06-07</startDate>" +
+          "<endDate>2018-06-09</endDate></reservation>" +
+          "</reservations></campground>";
+
+        // Every record should be read in, with its text decoded.
+        Assert.assertTrue("valid XML input in XmlToObjects should be true",
+          jih.XmlToObjects(new java.io.StringReader(xml)));
+        Assert.assertTrue("XmlToObjects should read in every record",
+          jih.getSearchObject() != null
+          && jih.getGapRulesArray().size() == 1
+          && jih.getCampsitesArray().size() == 2
+          && jih.getReservationsArray().size() == 2);
+        Assert.assertTrue("XmlToObjects should decode entities and CDATA",
+          "Bears & Trees".equals(jih.getCampsitesArray().get(0).getName())
+          && "<Lakeside>".equals(jih.getCampsitesArray().get(1).getName()));
+
+        // Reservations that come before the gap rules and campsites should
+        // still be read in, once the campsites they refer to are known.
+        jih = new JsonInputHandler(action, debugMode);
+        Assert.assertTrue("reservations ahead of the campsites should be kept",
+          jih.XmlToObjects(new java.io.StringReader("<campground>" +
+            "<reservations>" +
+            "<reservation campsiteId=\"2\" startDate=\"2018-06-01\" endDate=\"2018-06-02\"/>" +
+            "<reservation campsiteId=\"1\" startDate=\"2018-06-07\" endDate=\"2018-06-09\"/>" +
+            "</reservations>" +
+            "<search startDate=\"2018-06-04\" endDate=\"2018-06-06\"/>" +
+            "<gapRules><gapRule gapSize=\"2\"/></gapRules><campsites>" +
+            "<campsite id=\"1\" name=\"Birch\"/>" +
+            "<campsite id=\"2\" name=\"Cedar\"/>" +
+            "</campsites></campground>"))
+          && jih.getReservationsArray().size() == 2
+          && jih.getReservationsArray().get(0).getCampsiteId() == 2);
+
+        // Held reservations should still be checked against the campsites.
+        jih = new JsonInputHandler(action, debugMode);
+        Assert.assertFalse("held reservations at unknown campsites should be false",
+          jih.XmlToObjects(new java.io.StringReader("<campground>" +
+            "<reservation campsiteId=\"3\" startDate=\"2018-06-01\" endDate=\"2018-06-02\"/>" +
+            "<search startDate=\"2018-06-04\" endDate=\"2018-06-06\"/>" +
+            "<gapRule gapSize=\"2\"/><campsite id=\"1\" name=\"Birch\"/>" +
+            "</campground>")));
+
+        // Mismatched tags should be rejected.
+        jih = new JsonInputHandler(action, debugMode);
+        Assert.assertFalse("malformed XML input should be false",
+          jih.XmlToObjects(new java.io.StringReader(
+            "<campground><search></campground>")));
+    }
+
+    //! Test merging several datasets through the reservation index
+    /*
+     * @returns    none
+     */
+    @Test
+    public static void testMergeDatasets() {
+
+        // Variable declaration
+        String action = "search";
+        String header = "<campground>" +
+          "<search startDate=\"2018-06-04\" endDate=\"2018-06-06\"/>" +
+          "<gapRules><gapRule gapSize=\"2\"/></gapRules><campsites>";
+
+        // Two shards of the same campground, each holding some of the
+        // reservations, and a third that names campsite 2 differently.
+        String[] shards = {
+          header + "<campsite id=\"1\" name=\"Birch\"/>" +
+          "<campsite id=\"2\" name=\"Cedar\"/></campsites><reservations>" +
+          "<reservation campsiteId=\"2\" startDate=\"2018-06-10\" endDate=\"2018-06-12\"/>" +
+          "<reservation campsiteId=\"1\" startDate=\"2018-06-07\" endDate=\"2018-06-09\"/>" +
+          "</reservations></campground>",
+          header + "<campsite id=\"2\" name=\"Cedar\"/>" +
+          "<campsite id=\"3\" name=\"Maple\"/></campsites><reservations>" +
+          "<reservation campsiteId=\"2\" startDate=\"2018-06-01\" endDate=\"2018-06-03\"/>" +
+          "<reservation campsiteId=\"3\" startDate=\"2018-06-01\" endDate=\"2018-06-01\"/>" +
+          "</reservations></campground>",
+          header + "<campsite id=\"2\" name=\"Spruce\"/></campsites>" +
+          "<reservations/></campground>"};
+
+        // Merge the first two shards.
+        JsonInputHandler jih = new JsonInputHandler(action, debugMode);
+        for (int i = 0; i < 2; i++) {
+            JsonInputHandler part = new JsonInputHandler(action, debugMode);
+            part.setReservationFeeds(1);
+            Assert.assertTrue("valid shards should be read in",
+              part.XmlToObjects(new java.io.StringReader(shards[i])));
+            Assert.assertTrue("shards that agree should be merged",
+              jih.MergeDataset(part));
+        }
+
+        // The campsite both shards hold should only be there once, and
+        // every reservation should be indexed under its campsite, sorted.
+        Assert.assertTrue("merged campsites should be distinct",
+          jih.getCampsitesArray().size() == 3
+          && jih.getReservationsArray().size() == 4);
+        ReservationIndex index = jih.getReservationIndex();
+        Assert.assertTrue("reservations should be indexed by campsite",
+          index.size() == 4
+          && index.endOf(1) - index.startOf(1) == 1
+          && index.endOf(2) - index.startOf(2) == 2
+          && index.endOf(4) == index.startOf(4));
+        Assert.assertTrue("reservations should be sorted within a campsite",
+          ReservationIndex.startDateOf(index.get(index.startOf(2)))
+            .equals(java.time.LocalDate.of(2018, 6, 1)));
+
+        // The third shard reuses an id for another campsite.
+        JsonInputHandler part = new JsonInputHandler(action, debugMode);
+        part.XmlToObjects(new java.io.StringReader(shards[2]));
+        Assert.assertFalse("conflicting campsite ids should be rejected",
+          jih.MergeDataset(part));
+    }
+
+    //! Test building the reservation index out of runs written to disk
+    /*
+     * @returns    none
+     */
+    @Test
+    public static void testReservationSpiller() {
+
+        // A budget of only four keys, so most of them are written out, then
+        // merged on disk with a run still in memory.
+        ReservationSpiller spiller = new ReservationSpiller(32,
+          java.nio.file.Paths.get(System.getProperty("java.io.tmpdir")));
+        java.time.LocalDate day = java.time.LocalDate.of(2018, 6, 1);
+        ReservationIndex index  = null;
+        try {
+            for (int i = 0; i < 25; i++) {
+                int id = (i * 7) % 5;
+                spiller.add(ReservationIndex.pack(id, day.plusDays(i),
+                                                  day.plusDays(i + 1)));
+            }
+            java.util.List<long[]> runs = new java.util.ArrayList<long[]>();
+            runs.add(new long[] {ReservationIndex.pack(2, day, day)});
+            index = spiller.build(runs);
+        } catch (java.io.IOException e) {
+            u.printf("Error: " + e.getMessage());
+        }
+
+        // Every key should be in the merged index, sorted by campsite.
+        Assert.assertNotNull("runs written out should be merged", index);
+        Assert.assertTrue("every key should be in the merged index",
+          spiller.hasSpilled() && index.size() == 26);
+        for (int i = 1; i < index.size(); i++) {
+            Assert.assertTrue("the merged index should be sorted",
+              index.get(i - 1) <= index.get(i));
+        }
+        Assert.assertTrue("each campsite should have its own range",
+          index.endOf(2) - index.startOf(2) == 6
+          && ReservationIndex.startDateOf(index.get(index.startOf(2)))
+               .equals(day));
+
+        // A large budget should only take up as much as the keys need, no
+        // files should be left behind once the index is mapped, and keys
+        // added after a build should be merged in exactly once.
+        java.nio.file.Path dir = null;
+        String[] leftOver      = null;
+        int bufferLength       = -1;
+        ReservationIndex again = null;
+        try {
+            dir     = java.nio.file.Files.createTempDirectory("spill-");
+            spiller = new ReservationSpiller(1L << 30, dir);
+            spiller.add(ReservationIndex.pack(1, day, day));
+            bufferLength = spiller.bufferLength();
+            spiller = new ReservationSpiller(32, dir);
+            for (int i = 0; i < 10; i++) {
+                spiller.add(ReservationIndex.pack(i % 3, day.plusDays(i),
+                                                  day.plusDays(i)));
+            }
+            spiller.build(new java.util.ArrayList<long[]>());
+            spiller.add(ReservationIndex.pack(3, day, day));
+            java.util.List<long[]> runs = new java.util.ArrayList<long[]>();
+            runs.add(new long[] {ReservationIndex.pack(4, day, day)});
+            again    = spiller.build(runs);
+            leftOver = dir.toFile().list();
+            dir.toFile().delete();
+        } catch (java.io.IOException e) {
+            u.printf("Error: " + e.getMessage());
+        }
+        Assert.assertTrue("the buffer should grow as keys are added",
+          bufferLength > 0 && bufferLength <= 1024);
+        Assert.assertTrue("no files should be left once the index is mapped",
+          leftOver != null && leftOver.length == 0);
+        Assert.assertTrue("rebuilding should merge each key in exactly once",
+          again != null && again.size() == 12 && spiller.size() == 11
+          && spiller.bufferLength() == 0);
+
+        // Reading reservations in with a budget should go the same way.
+        JsonInputHandler jih = new JsonInputHandler("search", debugMode);
+        jih.setReservationSpiller(new ReservationSpiller(16,
+          java.nio.file.Paths.get(System.getProperty("java.io.tmpdir"))));
+        Assert.assertTrue("reservations within a budget should be read in",
+          jih.XmlToObjects(new java.io.StringReader("<campground>" +
+            "<search startDate=\"2018-06-04\" endDate=\"2018-06-06\"/>" +
+            "<gapRules><gapRule gapSize=\"2\"/></gapRules>" +
+            "<campsites><campsite id=\"1\" name=\"Birch\"/></campsites>" +
+            "<reservations>" +
+            "<reservation campsiteId=\"1\" startDate=\"2018-06-10\" endDate=\"2018-06-12\"/>" +
+            "<reservation campsiteId=\"1\" startDate=\"2018-06-01\" endDate=\"2018-06-02\"/>" +
+            "<reservation campsiteId=\"1\" startDate=\"2018-06-07\" endDate=\"2018-06-08\"/>" +
+            "</reservations></campground>")));
+        Assert.assertTrue("reservations within a budget should be indexed",
+          jih.getReservationIndex().size() == 3
+          && jih.getReservationsArray().size() == 3);
+    }
+
+    //! Test storing, loading and evicting datasets in the cache
+    /*
+     * @returns    none
+     */
+    @Test
+    public static void testDatasetCache() {
+
+        // Variable declaration
+        java.time.LocalDate day = java.time.LocalDate.of(2018, 6, 1);
+        DatasetCache.Entry entry = new DatasetCache.Entry();
+        entry.search = new Search(day, day.plusDays(2));
+        entry.gapRules.add(new GapRule(2));
+        entry.campsites.add(new Campsite(1, "Birch"));
+        entry.index = new ReservationIndex(new long[] {
+          ReservationIndex.pack(1, day.plusDays(3), day.plusDays(4))});
+
+        // Hashes should differ as soon as the contents differ.
+        Assert.assertTrue("changed contents should hash differently",
+          DatasetCache.hash(DatasetCache.FNV_OFFSET_BASIS, "2018-06-01")
+          != DatasetCache.hash(DatasetCache.FNV_OFFSET_BASIS, "2018-06-02"));
+
+        // Store the entry, then load it straight back in.
+        DatasetCache.Entry loaded = null;
+        java.nio.file.Path dir    = null;
+        try {
+            dir = java.nio.file.Files.createTempDirectory("cache-");
+            DatasetCache cache = new DatasetCache(dir, 1024 * 1024);
+            cache.store(42, entry);
+            loaded = cache.load(42);
+            Assert.assertNull("a missing key should not be loaded",
+              cache.load(43));
+
+            // With room for only one entry, storing a second one should
+            // evict the first.
+            cache = new DatasetCache(dir, 1);
+            cache.store(43, entry);
+            Assert.assertNull("older entries should be evicted",
+              cache.load(42));
+            Assert.assertNotNull("the newest entry should be kept",
+              cache.load(43));
+
+            // Clean up the cache directory.
+            for (java.io.File f : dir.toFile().listFiles()) {
+                f.delete();
+            }
+            dir.toFile().delete();
+        } catch (java.io.IOException e) {
+            u.printf("Error: " + e.getMessage());
+        }
+
+        // Everything should have come back as it was stored.
+        Assert.assertNotNull("a stored entry should be loaded", loaded);
+        Assert.assertTrue("a loaded entry should match the stored one",
+          loaded.search.toString().equals(entry.search.toString())
+          && loaded.gapRules.get(0).getSize() == 2
+          && loaded.campsites.get(0).getName().equals("Birch")
+          && loaded.index.size() == 1
+          && loaded.index.get(0) == entry.index.get(0));
+    }
+
+    //! Test applying a delta on top of a dataset
+    /*
+     * @returns    none
+     */
+    @Test
+    public static void testApplyDelta() {
+
+        // Variable declaration
+        JsonInputHandler jih = new JsonInputHandler("search", debugMode);
+        jih.XmlToObjects(new java.io.StringReader("<campground>" +
+          "<search startDate=\"2018-06-04\" endDate=\"2018-06-06\"/>" +
+          "<gapRules><gapRule gapSize=\"2\"/></gapRules>" +
+          "<campsites><campsite id=\"1\" name=\"Birch\"/></campsites>" +
+          "<reservations>" +
+          "<reservation campsiteId=\"1\" startDate=\"2018-06-01\" endDate=\"2018-06-02\"/>" +
+          "<reservation campsiteId=\"1\" startDate=\"2018-06-10\" endDate=\"2018-06-12\"/>" +
+          "</reservations></campground>"));
+
+        // Remove one reservation, then add a campsite and a reservation.
+        String delta =
+          "{\"op\":\"removeReservation\",\"campsiteId\":1," +
+          "\"startDate\":\"2018-06-10\",\"endDate\":\"2018-06-12\"}\n" +
+          "{\"op\":\"addCampsite\",\"id\":2,\"name\":\"Cedar\"}\n" +
+          "{\"op\":\"addReservation\",\"campsiteId\":2," +
+          "\"startDate\":\"2018-06-08\",\"endDate\":\"2018-06-09\"}\n";
+        Assert.assertTrue("a valid delta should be applied",
+          jih.ApplyDelta(new java.io.StringReader(delta)));
+        ReservationIndex index = jih.getReservationIndex();
+        Assert.assertTrue("the delta should be reflected in the index",
+          jih.getCampsitesArray().size() == 2
+          && index.size() == 2
+          && index.endOf(1) - index.startOf(1) == 1
+          && index.endOf(2) - index.startOf(2) == 1
+          && jih.getReservationsArray().size() == 2);
+
+        // Unknown operations, and campsites that conflict, should fail.
+        Assert.assertFalse("an unknown operation should be rejected",
+          jih.ApplyDelta(new java.io.StringReader("{\"op\":\"rename\"}")));
+        Assert.assertFalse("a conflicting campsite should be rejected",
+          jih.ApplyDelta(new java.io.StringReader(
+            "{\"op\":\"addCampsite\",\"id\":2,\"name\":\"Maple\"}")));
+
+        // An index mapped from disk should be patched on disk as well.
+        jih = new JsonInputHandler("search", debugMode);
+        jih.setReservationSpiller(new ReservationSpiller(16,
+          java.nio.file.Paths.get(System.getProperty("java.io.tmpdir"))));
+        jih.XmlToObjects(new java.io.StringReader("<campground>" +
+          "<search startDate=\"2018-06-04\" endDate=\"2018-06-06\"/>" +
+          "<gapRules><gapRule gapSize=\"2\"/></gapRules>" +
+          "<campsites><campsite id=\"1\" name=\"Birch\"/></campsites>" +
+          "<reservations>" +
+          "<reservation campsiteId=\"1\" startDate=\"2018-06-01\" endDate=\"2018-06-02\"/>" +
+          "<reservation campsiteId=\"1\" startDate=\"2018-06-07\" endDate=\"2018-06-08\"/>" +
+          "<reservation campsiteId=\"1\" startDate=\"2018-06-10\" endDate=\"2018-06-12\"/>" +
+          "</reservations></campground>"));
+        Assert.assertTrue("a delta on a mapped index should be applied",
+          jih.ApplyDelta(new java.io.StringReader(
+            "{\"op\":\"removeReservation\",\"campsiteId\":1," +
+            "\"startDate\":\"2018-06-07\",\"endDate\":\"2018-06-08\"}")));
+        index = jih.getReservationIndex();
+        Assert.assertTrue("the patched index should stay mapped from disk",
+          index.isMapped() && index.size() == 2
+          && ReservationIndex.startDateOf(index.get(1))
+               .equals(java.time.LocalDate.of(2018, 6, 10)));
+        // Removing a reservation that is not there should not cancel out
+        // the same reservation added by a later delta, whereas removing one
+        // added earlier, and then adding it back, should keep it.
+        String[] removeAbsent = {
+          "{\"op\":\"removeReservation\",\"campsiteId\":1," +
+          "\"startDate\":\"2018-06-20\",\"endDate\":\"2018-06-21\"}",
+          "{\"op\":\"addReservation\",\"campsiteId\":1," +
+          "\"startDate\":\"2018-06-20\",\"endDate\":\"2018-06-21\"}\n" +
+          "{\"op\":\"removeReservation\",\"campsiteId\":1," +
+          "\"startDate\":\"2018-06-20\",\"endDate\":\"2018-06-21\"}\n" +
+          "{\"op\":\"removeReservation\",\"campsiteId\":1," +
+          "\"startDate\":\"2018-06-20\",\"endDate\":\"2018-06-21\"}\n" +
+          "{\"op\":\"addReservation\",\"campsiteId\":1," +
+          "\"startDate\":\"2018-06-20\",\"endDate\":\"2018-06-21\"}"};
+        for (int mapped = 0; mapped < 2; mapped++) {
+            jih = new JsonInputHandler("search", debugMode);
+            if (mapped == 1) {
+                jih.setReservationSpiller(new ReservationSpiller(8,
+                  java.nio.file.Paths.get(System.getProperty("java.io.tmpdir"))));
+            }
+            jih.XmlToObjects(new java.io.StringReader("<campground>" +
+              "<search startDate=\"2018-06-04\" endDate=\"2018-06-06\"/>" +
+              "<gapRules><gapRule gapSize=\"2\"/></gapRules>" +
+              "<campsites><campsite id=\"1\" name=\"Birch\"/></campsites>" +
+              "<reservations>" +
+              "<reservation campsiteId=\"1\" startDate=\"2018-06-01\" endDate=\"2018-06-02\"/>" +
+              "</reservations></campground>"));
+            boolean applied = true;
+            for (int d = 0; d < removeAbsent.length; d++) {
+                applied = applied && jih.ApplyDelta(
+                  new java.io.StringReader(removeAbsent[d]));
+            }
+            index = jih.getReservationIndex();
+            Assert.assertTrue("removals should only match reservations " +
+              "present at that point in the deltas",
+              applied && index.size() == 2
+              && index.count(ReservationIndex.pack(1,
+                   java.time.LocalDate.of(2018, 6, 20),
+                   java.time.LocalDate.of(2018, 6, 21))) == 1);
+        }
+    }
+
+    //! Test writing results out through each of the sinks
+    /*
+     * @returns    none
+     */
+    @Test
+    public static void testResultSinks() {
+
+        // Variable declaration
+        java.time.LocalDate day = java.time.LocalDate.of(2018, 6, 1);
+        Search searchObj        = new Search(day, day.plusDays(2));
+        Campsite[] found        = {new Campsite(1, "Birch"),
+                                   new Campsite(2, "Cedar, \"Old\" Grove")};
+        String nl               = System.lineSeparator();
+
+        // Write the same response out in each of the formats.
+        String[] formats = {"text", "json", "csv"};
+        String[] written = new String[formats.length];
+        for (int i = 0; i < formats.length; i++) {
+            java.io.StringWriter out = new java.io.StringWriter();
+            ResultSink sink = ResultSink.forFormat(formats[i], out);
+            try {
+                sink.beginSearch(searchObj);
+                for (int j = 0; j < found.length; j++) {
+                    sink.addCampsite(found[j]);
+                }
+                sink.endSearch();
+            } catch (java.io.IOException e) {
+                u.printf("Error: " + e.getMessage());
+            }
+            written[i] = out.toString();
+        }
+
+        // Each format should hold both campsites, escaped as needed.
+        Assert.assertTrue("text output should list the campsite names",
+          written[0].contains(nl + "Birch" + nl)
+          && written[0].contains("2018-06-01 and 2018-06-03"));
+        Assert.assertEquals("json output should be a single document",
+          "{\"search\":{\"startDate\":\"2018-06-01\",\"endDate\":\"2018-06-03\"}," +
+          "\"campsites\":[{\"id\":1,\"name\":\"Birch\"}," +
+          "{\"id\":2,\"name\":\"Cedar, \\\"Old\\\" Grove\"}]}" + nl,
+          written[1]);
+        Assert.assertEquals("csv output should quote fields as needed",
+          "startDate,endDate,id,name" + nl +
+          "2018-06-01,2018-06-03,1,Birch" + nl +
+          "2018-06-01,2018-06-03,2,\"Cedar, \"\"Old\"\" Grove\"" + nl,
+          written[2]);
+
+        // Unknown formats should not have a sink.
+        Assert.assertNull("unknown formats should be rejected",
+          ResultSink.forFormat("yaml", new java.io.StringWriter()));
+    }
+
+    //! Test looking campsites up by id through the dense index
+    /*
+     * @returns    none
+     */
+    @Test
+    public static void testCampsiteLookup() {
+
+        // Campsites with small, repeated, negative and very sparse ids.
+        JsonInputHandler jih = new JsonInputHandler("search", debugMode);
+        java.util.List<Campsite> campsites = jih.getCampsitesArray();
+        campsites.add(new Campsite(3, "Birch"));
+        campsites.add(new Campsite(3, "Cedar"));
+        campsites.add(new Campsite(-5, "Maple"));
+        campsites.add(new Campsite(1000000000, "Spruce"));
+
+        // Each id should find the first campsite added under it.
+        Assert.assertTrue("small ids should be found in the dense array",
+          jih.CampsiteById(3).getName().equals("Birch"));
+        Assert.assertTrue("negative and sparse ids should still be found",
+          jih.CampsiteById(-5).getName().equals("Maple")
+          && jih.CampsiteById(1000000000).getName().equals("Spruce"));
+        Assert.assertNull("unknown ids should not be found",
+          jih.CampsiteById(4));
+
+        // Campsites added later should be indexed on the next lookup.
+        campsites.add(new Campsite(4, "Willow"));
+        Assert.assertTrue("later campsites should be found",
+          jih.CampsiteById(4).getName().equals("Willow"));
+    }
+
+    //! Test streaming the results of a search through a JSON sink
+    /*
+     * @returns    none
+     */
+    @Test
+    public static void testStreamingResults() {
+
+        // Variable declaration
+        JsonInputHandler jih = new JsonInputHandler("search", debugMode);
+        jih.XmlToObjects(new java.io.StringReader("<campground>" +
+          "<search startDate=\"2018-06-04\" endDate=\"2018-06-06\"/>" +
+          "<gapRules><gapRule gapSize=\"2\"/></gapRules><campsites>" +
+          "<campsite id=\"1\" name=\"Birch\"/>" +
+          "<campsite id=\"2\" name=\"Cedar\"/></campsites><reservations>" +
+          "<reservation campsiteId=\"1\" startDate=\"2018-06-01\" endDate=\"2018-06-01\"/>" +
+          "<reservation campsiteId=\"2\" startDate=\"2018-06-01\" endDate=\"2018-06-03\"/>" +
+          "</reservations></campground>"));
+
+        // Search, writing the results to a string rather than to stdout.
+        java.io.StringWriter out = new java.io.StringWriter();
+        SearchActionHandler sah  = new SearchActionHandler(jih, debugMode);
+        sah.setResultSink(ResultSink.forFormat("json", out));
+        Assert.assertTrue("a valid search should succeed", sah.searchForGaps());
+
+        // Only the campsite without a two day gap should be written out.
+        Assert.assertEquals("the results should be written as they are found",
+          "{\"search\":{\"startDate\":\"2018-06-04\",\"endDate\":\"2018-06-06\"}," +
+          "\"campsites\":[{\"id\":2,\"name\":\"Cedar\"}]}" +
+          System.lineSeparator(), out.toString());
+    }
+
+    //! Test the escaping of strings by JSONObject.quote
+    /*
+     * @returns    none
+     */
+    @Test
+    public static void testJsonQuoting() {
+
+        // Strings without anything to escape are only wrapped in quotes.
+        Assert.assertEquals("plain strings should be copied as they are",
+          "\"Daniel Boone Bungalow\"",
+          JSONObject.quote("Daniel Boone Bungalow"));
+        Assert.assertEquals("empty strings should be an empty pair of quotes",
+          "\"\"", JSONObject.quote(""));
+
+        // Quotes, backslashes and control characters are escaped, wherever
+        // they appear in the string.
+        Assert.assertEquals("special characters should be escaped",
+          "\"\\\"a\\\\b\\tc\\n\\u0001\\\"\"",
+          JSONObject.quote("\"a\\b\tc\n\u0001\""));
+
+        // A solidus is only escaped after a less-than sign.
+        Assert.assertEquals("only </ should be escaped",
+          "\"/a/<\\/b>\"", JSONObject.quote("/a/</b>"));
+
+        // Characters in the ranges that are escaped outside of ASCII.
+        Assert.assertEquals("unicode escapes should be padded to four digits",
+          "\"\\u0085\u00e9\\u2028\"",
+          JSONObject.quote("\u0085\u00e9\u2028"));
+
+        // The JSONWriter should escape strings the same way.
+        java.io.StringWriter out = new java.io.StringWriter();
+        new JSONWriter(out).object().key("a\"b").value("</c>").endObject();
+        Assert.assertEquals("JSONWriter should escape keys and values",
+          "{\"a\\\"b\":\"<\\/c>\"}", out.toString());
+    }
+
+    //! Test the availability export against a search for each day and
+    //! stay length
+    /*
+     * @returns    none
+     */
+    @Test
+    public static void testAvailabilityExport() {
+
+        // Variable declaration
+        JsonInputHandler jih = new JsonInputHandler("search", debugMode);
+        jih.XmlToObjects(new java.io.StringReader("<campground>" +
+          "<search startDate=\"2018-06-01\" endDate=\"2018-06-14\"/>" +
+          "<gapRules><gapRule gapSize=\"1\"/><gapRule gapSize=\"3\"/>" +
+          "</gapRules><campsites>" +
+          "<campsite id=\"1\" name=\"Birch\"/>" +
+          "<campsite id=\"2\" name=\"Cedar\"/>" +
+          "<campsite id=\"3\" name=\"Maple\"/></campsites><reservations>" +
+          "<reservation campsiteId=\"1\" startDate=\"2018-06-03\" endDate=\"2018-06-04\"/>" +
+          "<reservation campsiteId=\"1\" startDate=\"2018-06-04\" endDate=\"2018-06-06\"/>" +
+          "<reservation campsiteId=\"1\" startDate=\"2018-06-12\" endDate=\"2018-06-13\"/>" +
+          "<reservation campsiteId=\"2\" startDate=\"2018-05-28\" endDate=\"2018-06-02\"/>" +
+          "<reservation campsiteId=\"2\" startDate=\"2018-06-09\" endDate=\"2018-06-09\"/>" +
+          "</reservations></campground>"));
+        Search searchObj = jih.getSearchObject();
+        LocalDate start  = searchObj.getStartDate();
+        int[] lengths    = {1, 2, 3, 5};
+
+        // Export the availability as JSON.
+        java.io.StringWriter out      = new java.io.StringWriter();
+        AvailabilityActionHandler aah = new AvailabilityActionHandler(jih, debugMode);
+        aah.setResultSink(ResultSink.forFormat("json", out));
+        aah.setStayLengths(lengths);
+        Assert.assertTrue("a valid export should succeed", aah.exportAvailability());
+        JSONArray sites = new JSONObject(out.toString()).getJSONArray("campsites");
+        Assert.assertEquals("every campsite should be exported", 3, sites.length());
+
+        // For each stay length and each day, a search for that very stay
+        // should find exactly those campsites whose runs hold that day.
+        for (int s = 0; s < lengths.length; s++) {
+            for (int d = 0; d < 14; d++) {
+                searchObj.setStartDate(start.plusDays(d));
+                searchObj.setEndDate(start.plusDays(d + lengths[s] - 1));
+                java.io.StringWriter found = new java.io.StringWriter();
+                SearchActionHandler sah = new SearchActionHandler(jih, debugMode);
+                sah.setResultSink(ResultSink.forFormat("csv", found));
+                Assert.assertTrue("a valid search should succeed", sah.searchForGaps());
+
+                for (int c = 0; c < sites.length(); c++) {
+                    JSONArray runs = sites.getJSONObject(c)
+                                          .getJSONArray("runs").getJSONArray(s);
+                    boolean available = false;
+                    for (int r = 0; r < runs.length(); r += 2) {
+                        available |= d >= runs.getInt(r)
+                                  && d < runs.getInt(r) + runs.getInt(r + 1);
+                    }
+                    String row = "," + sites.getJSONObject(c).getInt("id") +
+                                 "," + sites.getJSONObject(c).getString("name");
+                    Assert.assertEquals("availability should match the search " +
+                      "for a stay of " + lengths[s] + " days from day " + d,
+                      found.toString().contains(row), available);
+                }
+            }
+        }
+        searchObj.setStartDate(start);
+        searchObj.setEndDate(start.plusDays(13));
+    }
+
+    //! Test the report of the gaps present at each campsite
+    /*
+     * @returns    none
+     */
+    @Test
+    public static void testGapReport() {
+
+        // Build a park of more campsites than are swept in a single batch,
+        // where every third campsite has a gap of two days.
+        int count = GapsActionHandler.campsitesPerBatch + 100;
+        StringBuilder xml = new StringBuilder("<campground>" +
+          "<search startDate=\"2018-06-05\" endDate=\"2018-06-10\"/>" +
+          "<gapRules><gapRule gapSize=\"2\"/></gapRules><campsites>");
+        for (int i = 1; i <= count; i++) {
+            xml.append("<campsite id=\"" + i + "\" name=\"Site " + i + "\"/>");
+        }
+        xml.append("</campsites><reservations>");
+        for (int i = 1; i <= count; i++) {
+            xml.append("<reservation campsiteId=\"" + i + "\" " +
+                       "startDate=\"2018-06-01\" endDate=\"2018-06-05\"/>");
+            xml.append("<reservation campsiteId=\"" + i + "\" " +
+                       "startDate=\"2018-06-0" + (8 + i % 3) + "\" " +
+                       "endDate=\"2018-06-12\"/>");
+        }
+        xml.append("</reservations></campground>");
+        JsonInputHandler jih = new JsonInputHandler("search", debugMode);
+        jih.XmlToObjects(new java.io.StringReader(xml.toString()));
+
+        // Report the gaps as CSV.
+        java.io.StringWriter out = new java.io.StringWriter();
+        GapsActionHandler gah    = new GapsActionHandler(jih, debugMode);
+        gah.setResultSink(ResultSink.forFormat("csv", out));
+        Assert.assertTrue("a valid report should succeed", gah.reportGaps());
+
+        // Only the campsites with a gap of exactly two days should show up,
+        // in the order of the campsites.
+        String[] rows = out.toString().split(System.lineSeparator());
+        Assert.assertEquals("there should be one row per gap, plus a header",
+          1 + count / 3, rows.length);
+        for (int r = 1; r < rows.length; r++) {
+            int id = 3 * r;
+            Assert.assertEquals("gaps should be written in campsite order",
+              "2018-06-05,2018-06-10," + id + ",Site " + id + ",2018-06-06,2,2",
+              rows[r]);
+        }
+    }
+
+    //! Test answering searches over HTTP against a dataset kept in memory
+    /*
+     * @returns    none
+     */
+    @Test
+    public static void testSearchServer() {
+
+        // Variable declaration
+        JsonInputHandler jih = new JsonInputHandler("search", debugMode);
+        jih.XmlToObjects(new java.io.StringReader("<campground>" +
+          "<search startDate=\"2018-06-04\" endDate=\"2018-06-06\"/>" +
+          "<gapRules><gapRule gapSize=\"2\"/></gapRules><campsites>" +
+          "<campsite id=\"1\" name=\"Birch\"/>" +
+          "<campsite id=\"2\" name=\"Cedar\"/></campsites><reservations>" +
+          "<reservation campsiteId=\"1\" startDate=\"2018-06-01\" endDate=\"2018-06-01\"/>" +
+          "<reservation campsiteId=\"2\" startDate=\"2018-06-01\" endDate=\"2018-06-03\"/>" +
+          "</reservations></campground>"));
+
+        // Start the server on any free port.
+        SearchServer server = new SearchServer(jih, "json", debugMode);
+        Assert.assertTrue("the server should start", server.start(0));
+
+        // Send it two different searches, along with an invalid one.
+        String[] bodies = {
+          "{\"startDate\":\"2018-06-04\",\"endDate\":\"2018-06-06\"}",
+          "{\"startDate\":\"2018-06-03\",\"endDate\":\"2018-06-06\"}",
+          "{\"startDate\":\"2018-06-31\"}"};
+        int[] statuses      = new int[bodies.length];
+        String[] responses  = new String[bodies.length];
+        for (int i = 0; i < bodies.length; i++) {
+            try {
+                java.net.HttpURLConnection conn = (java.net.HttpURLConnection)
+                  new java.net.URL("http://localhost:" + server.getPort() +
+                                   "/search").openConnection();
+                conn.setRequestMethod("POST");
+                conn.setDoOutput(true);
+                conn.getOutputStream().write(bodies[i].getBytes("UTF-8"));
+                statuses[i] = conn.getResponseCode();
+                java.io.InputStream in = (statuses[i] == 200)
+                  ? conn.getInputStream() : conn.getErrorStream();
+                responses[i] = new String(in.readAllBytes(), "UTF-8");
+                in.close();
+            } catch (java.io.IOException e) {
+                u.printf("Error: " + e.getMessage());
+            }
+        }
+
+        // Send a burst of searches at once, each of which should be
+        // answered in full.
+        int burst = 32;
+        java.util.concurrent.atomic.AtomicInteger answered
+          = new java.util.concurrent.atomic.AtomicInteger();
+        Thread[] clients = new Thread[burst];
+        for (int i = 0; i < burst; i++) {
+            clients[i] = new Thread(() -> {
+                try {
+                    java.net.HttpURLConnection conn = (java.net.HttpURLConnection)
+                      new java.net.URL("http://localhost:" + server.getPort() +
+                                       "/search").openConnection();
+                    conn.setRequestMethod("POST");
+                    conn.setDoOutput(true);
+                    conn.getOutputStream().write(bodies[0].getBytes("UTF-8"));
+                    java.io.InputStream in = conn.getInputStream();
+                    if (new String(in.readAllBytes(), "UTF-8").equals(responses[0])) {
+                        answered.incrementAndGet();
+                    }
+                    in.close();
+                } catch (java.io.IOException e) {
+                    u.printf("Error: " + e.getMessage());
+                }
+            });
+            clients[i].start();
+        }
+        for (int i = 0; i < burst; i++) {
+            try {
+                clients[i].join();
+            } catch (InterruptedException e) {
+                u.printf("Error: " + e.getMessage());
+            }
+        }
+
+        // Searches run on virtual threads only if the JDK has them.
+        boolean hasVirtualThreads = true;
+        try {
+            java.util.concurrent.Executors.class
+              .getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            hasVirtualThreads = false;
+        }
+        Assert.assertEquals("virtual threads should be used where available",
+          hasVirtualThreads, server.usesVirtualThreads());
+        server.stop();
+        Assert.assertEquals("every search of the burst should be answered",
+          burst, answered.get());
+
+        // Each valid search should be answered on its own dates, without
+        // touching the search of the dataset.
+        Assert.assertEquals("the first search should succeed", 200, statuses[0]);
+        Assert.assertEquals("the first search should find Cedar",
+          "{\"search\":{\"startDate\":\"2018-06-04\",\"endDate\":\"2018-06-06\"}," +
+          "\"campsites\":[{\"id\":2,\"name\":\"Cedar\"}]}" +
+          System.lineSeparator(), responses[0]);
+        Assert.assertEquals("the second search should succeed", 200, statuses[1]);
+        Assert.assertTrue("the second search should be answered on its dates",
+          responses[1].contains("\"startDate\":\"2018-06-03\""));
+        Assert.assertEquals("invalid searches should be rejected", 400, statuses[2]);
+        Assert.assertTrue("the dataset's search should be left as it was",
+          jih.getSearchObject().getStartDate().toString().equals("2018-06-04"));
+    }
+
+    //! Test answering a stream of search commands, one per line
+    /*
+     * @returns    none
+     */
+    @Test
+    public static void testSearchCommands() {
+
+        // Variable declaration
+        JsonInputHandler jih = new JsonInputHandler("search", debugMode);
+        jih.XmlToObjects(new java.io.StringReader("<campground>" +
+          "<search startDate=\"2018-06-04\" endDate=\"2018-06-06\"/>" +
+          "<gapRules><gapRule gapSize=\"2\"/></gapRules><campsites>" +
+          "<campsite id=\"1\" name=\"Birch\"/>" +
+          "<campsite id=\"2\" name=\"Cedar\"/></campsites><reservations>" +
+          "<reservation campsiteId=\"1\" startDate=\"2018-06-01\" endDate=\"2018-06-01\"/>" +
+          "<reservation campsiteId=\"2\" startDate=\"2018-06-01\" endDate=\"2018-06-03\"/>" +
+          "</reservations></campground>"));
+        String nl = System.lineSeparator();
+
+        // Answer two searches, with a blank line and an invalid command
+        // between them.
+        java.io.StringWriter out = new java.io.StringWriter();
+        Assert.assertTrue("the commands should be answered",
+          CampsiteGapFinder.answerSearchCommands(jih,
+            new java.io.BufferedReader(new java.io.StringReader(
+              "{\"startDate\":\"2018-06-04\",\"endDate\":\"2018-06-06\"}\n" +
+              "\n" +
+              "not a search\n" +
+              "{\"startDate\":\"2018-06-02\",\"endDate\":\"2018-06-02\"}\n")),
+            out));
+
+        // Each command should be answered on a line of its own, in order.
+        String[] lines = out.toString().split(nl);
+        Assert.assertEquals("there should be one line per command", 3, lines.length);
+        Assert.assertEquals("the first search should find Cedar",
+          "{\"search\":{\"startDate\":\"2018-06-04\",\"endDate\":\"2018-06-06\"}," +
+          "\"campsites\":[{\"id\":2,\"name\":\"Cedar\"}]}", lines[0]);
+        Assert.assertTrue("invalid commands should get an error line",
+          lines[1].startsWith("{\"error\":"));
+        Assert.assertTrue("the last search should be answered on its dates",
+          lines[2].contains("\"startDate\":\"2018-06-02\"")
+          && lines[2].contains("\"name\":\"Birch\"")
+          && lines[2].contains("\"name\":\"Cedar\"") == false);
+    }
+
+    //! Test reading a watched dataset in again once its file changes
+    /*
+     * @returns    none
+     */
+    @Test
+    public static void testDatasetReload() {
+
+        // Variable declaration
+        String header = "{\"search\":{\"startDate\":\"2018-06-04\"," +
+          "\"endDate\":\"2018-06-06\"},\"gapRules\":[{\"gapSize\":2}]," +
+          "\"campsites\":[{\"id\":1,\"name\":\"Birch\"}," +
+          "{\"id\":2,\"name\":\"Cedar\"}],\"reservations\":[" +
+          "{\"campsiteId\":2,\"startDate\":\"2018-06-01\",\"endDate\":\"2018-06-02\"}";
+        String search = "{\"startDate\":\"2018-06-04\",\"endDate\":\"2018-06-06\"}\n";
+        java.nio.file.Path dir  = null;
+        java.nio.file.Path file = null;
+        DatasetWatcher watcher  = null;
+        JsonInputHandler first  = null;
+        java.util.concurrent.atomic.AtomicReference<JsonInputHandler> snapshot
+          = new java.util.concurrent.atomic.AtomicReference<JsonInputHandler>();
+        java.io.StringWriter before = new java.io.StringWriter();
+        java.io.StringWriter after  = new java.io.StringWriter();
+        boolean keptOnFailure       = false;
+
+        try {
+
+            // Write out the dataset, named relative to the current directory
+            // as input files are.
+            dir  = java.nio.file.Files.createTempDirectory("watch-");
+            file = dir.resolve("dataset.json");
+            java.nio.file.Files.write(file, (header + "]}").getBytes("UTF-8"));
+            String name = java.nio.file.Paths.get("").toAbsolutePath()
+                                             .relativize(file).toString();
+            String[] inputs = {name};
+            java.util.List<String> datasets = java.util.Arrays.asList(inputs);
+            java.util.List<String> csvFeeds = new java.util.ArrayList<String>();
+
+            // Read it in, then start watching it.
+            first = CampsiteGapFinder.loadDataset(inputs, datasets, csvFeeds);
+            Assert.assertNotNull("the dataset should be read in", first);
+            snapshot.set(first);
+            watcher = new DatasetWatcher(snapshot, datasets,
+              () -> CampsiteGapFinder.loadDataset(inputs, datasets, csvFeeds),
+              debugMode);
+            Assert.assertTrue("the dataset should be watched", watcher.start());
+
+            // Reserve a day at Birch that leaves a gap of two, then wait for
+            // the new snapshot to be swapped in.
+            java.nio.file.Files.write(file, (header + ",{\"campsiteId\":1," +
+              "\"startDate\":\"2018-06-01\",\"endDate\":\"2018-06-01\"}]}")
+              .getBytes("UTF-8"));
+            for (int i = 0; i < 200 && watcher.getReloads() < 1; i++) {
+                Thread.sleep(50);
+            }
+            watcher.stop();
+
+            // A dataset that cannot be read in should leave the snapshot
+            // as it was.
+            JsonInputHandler reloaded = snapshot.get();
+            java.nio.file.Files.write(file, "{\"search\":".getBytes("UTF-8"));
+            keptOnFailure = (watcher.reload() == false)
+                         && (snapshot.get() == reloaded);
+
+            // Nor should running out of memory while reading it in, which
+            // should not escape the watcher either.
+            DatasetWatcher failing = new DatasetWatcher(snapshot, datasets,
+              () -> { throw new OutOfMemoryError("reload"); }, debugMode);
+            keptOnFailure = keptOnFailure && (failing.reload() == false)
+                         && (snapshot.get() == reloaded);
+
+            // Search both the snapshot grabbed before the change and the
+            // one swapped in after it.
+            CampsiteGapFinder.answerSearchCommands(first,
+              new java.io.BufferedReader(new java.io.StringReader(search)),
+              before);
+            CampsiteGapFinder.answerSearchCommands(snapshot,
+              new java.io.BufferedReader(new java.io.StringReader(search)),
+              after);
+
+            // Clean up the dataset.
+            java.nio.file.Files.delete(file);
+            java.nio.file.Files.delete(dir);
+        } catch (java.io.IOException | InterruptedException e) {
+            u.printf("Error: " + e.getMessage());
+        }
+
+        // The old snapshot should still answer on the old data, and the new
+        // one on the data written since.
+        Assert.assertTrue("the dataset should have been read in again",
+          watcher != null && watcher.getReloads() >= 1
+          && snapshot.get() != first);
+        Assert.assertTrue("a failed reload should keep the old snapshot",
+          keptOnFailure);
+        Assert.assertTrue("the old snapshot should still find Birch",
+          before.toString().contains("\"name\":\"Birch\""));
+        Assert.assertTrue("the new snapshot should no longer find Birch",
+          after.toString().contains("\"name\":\"Birch\"") == false
+          && after.toString().contains("\"name\":\"Cedar\""));
+    }
+
     //! Program Main for testing
     /*
      * @returns    none
@@ -286,6 +1680,78 @@ public class CampsiteGapFinderTests {
         // Attempt to access a reservations array.
         testGetReservationsArray();
 
+        // Attempt to stream reservations from NDJSON input.
+        testNdjsonToObjects();
+
+        // Attempt to stream reservations from CSV input.
+        testCsvToObjects();
+
+        // Attempt to read in gzipped JSON and NDJSON input.
+        testGzipInput();
+
+        // Attempt to parse JSON with the block-buffered tokenizer.
+        testJSONBufferedTokener();
+
+        // Attempt to parse JSON into compact objects.
+        testCompactObjects();
+
+        // Attempt to parse integers through the fast path.
+        testIntegerFastPath();
+
+        // Attempt to read a lazily indexed document.
+        testLazyToObjects();
+
+        // Attempt to share repeated strings through a pool.
+        testStringPool();
+
+        // Attempt to read input laid out in some other way via pointers.
+        testJsonPointerLayout();
+
+        // Attempt to wrap beans through the cached accessors.
+        testBeanAccessors();
+
+        // Attempt to stream records from XML input.
+        testXmlToObjects();
+
+        // Attempt to merge several datasets, catching conflicting ids.
+        testMergeDatasets();
+
+        // Attempt to build the reservation index out of runs on disk.
+        testReservationSpiller();
+
+        // Attempt to store and load datasets through the cache.
+        testDatasetCache();
+
+        // Attempt to apply a delta on top of a dataset.
+        testApplyDelta();
+
+        // Attempt to write results out through each of the sinks.
+        testResultSinks();
+
+        // Attempt to look campsites up by id.
+        testCampsiteLookup();
+
+        // Attempt to stream the results of a search as JSON.
+        testStreamingResults();
+
+        // Attempt to escape strings as JSON.
+        testJsonQuoting();
+
+        // Attempt to export the availability of each campsite.
+        testAvailabilityExport();
+
+        // Attempt to report the gaps present at each campsite.
+        testGapReport();
+
+        // Attempt to answer searches over HTTP.
+        testSearchServer();
+
+        // Attempt to answer a stream of search commands.
+        testSearchCommands();
+
+        // Attempt to read a watched dataset in again once it changes.
+        testDatasetReload();
+
         // Run a lengthy test of the SearchActionHandler constructor.
         testSearchActionHandlerConstructor();
 
@@ -0,0 +1,190 @@
+/*
+ * @file           CsvResultSink.java
+ *
+ * @class          CsvResultSink
+ *
+ * @author         Robert Bisewski <contact@ibiscybernetics.com>
+ *
+ * @description    Writes the results of an action out as CSV, one row per
+ *                 campsite under a header row, with the dates of the search
+ *                 repeated on each row so that the rows of several responses
+ *                 can be told apart:
+ *
+ *                 startDate,endDate,id,name
+ *                 2016-06-07,2016-06-10,5,Daniel Boone Bungalow
+ *
+ *                 The availability of each campsite is written out as one
+ *                 row per campsite and stay length, with each run of days
+ *                 a stay could start on given as the day it starts on,
+ *                 counted from startDate, and the number of days in a row:
+ *
+ *                 startDate,endDate,id,name,stayLength,runs
+ *                 2016-06-07,2016-06-10,5,Daniel Boone Bungalow,2,0:2 3:1
+ *
+ *                 The gaps are written out as one row per gap, along with
+ *                 the size of the gap rule it violates:
+ *
+ *                 startDate,endDate,id,name,gapStartDate,length,gapRule
+ *                 2016-06-07,2016-06-10,5,Daniel Boone Bungalow,2016-06-05,2,2
+ */
+
+// Imports
+import com.campspot.*;
+import java.io.*;
+import java.time.LocalDate;
+
+public class CsvResultSink extends ResultSink {
+
+    /**
+     * Class-wide variables
+     */
+
+    // Dates of the search being responded to, as the first two columns.
+    String searchColumns = "";
+
+    // Lengths of the stays of the current availability export, in days.
+    int[] stayLengths = null;
+
+    /**
+     * Class-wide functions
+     */
+
+    //! Constructor for the CsvResultSink
+    /*
+     * @param      Writer           writer to send the results to
+     *
+     * @returns    CsvResultSink    ref to newly created object
+     */
+    public CsvResultSink(Writer w) {
+        super(w);
+    }
+
+    //! Begin the response to a search, writing out the header row.
+    /*
+     * @param      Search    the search being responded to
+     *
+     * @returns    none
+     */
+    public void beginSearch(Search searchObj) throws IOException {
+        searchColumns = searchObj.getStartDate().toString() + "," +
+                        searchObj.getEndDate().toString() + ",";
+        writeLine("startDate,endDate,id,name");
+    }
+
+    //! Add a campsite that is free of gaps to the response.
+    /*
+     * @param      Campsite    campsite that fits the search
+     *
+     * @returns    none
+     */
+    public void addCampsite(Campsite cs) throws IOException {
+        writeLine(searchColumns + cs.getId() + "," + quote(cs.getName()));
+    }
+
+    //! End the response to a search, and flush it out.
+    /*
+     * @returns    none
+     */
+    public void endSearch() throws IOException {
+        flush();
+    }
+
+    //! Begin the response to an availability export, writing out the
+    //! header row.
+    /*
+     * @param      Search    the search whose dates the stays start within
+     * @param      int[]     lengths of the stays, in days
+     *
+     * @returns    none
+     */
+    public void beginAvailability(Search searchObj, int[] lengths)
+      throws IOException {
+        searchColumns = searchObj.getStartDate().toString() + "," +
+                        searchObj.getEndDate().toString() + ",";
+        stayLengths   = lengths;
+        writeLine("startDate,endDate,id,name,stayLength,runs");
+    }
+
+    //! Add the availability of a campsite to the response, one row per
+    //! stay length.
+    /*
+     * @param      Campsite    the campsite
+     * @param      int[][]     for each stay length, the runs of days a stay
+     *                         could start on
+     *
+     * @returns    none
+     */
+    public void addAvailability(Campsite cs, int[][] runs) throws IOException {
+        for (int s = 0; s < runs.length; s++) {
+            StringBuilder row = new StringBuilder(searchColumns);
+            row.append(cs.getId()).append(',').append(quote(cs.getName()))
+               .append(',').append(stayLengths[s]).append(',');
+            for (int r = 0; r < runs[s].length; r += 2) {
+                if (r > 0) {
+                    row.append(' ');
+                }
+                row.append(runs[s][r]).append(':').append(runs[s][r + 1]);
+            }
+            writeLine(row.toString());
+        }
+    }
+
+    //! End the response to an availability export, and flush it out.
+    /*
+     * @returns    none
+     */
+    public void endAvailability() throws IOException {
+        flush();
+    }
+
+    //! Begin the report of the gaps, writing out the header row.
+    /*
+     * @param      Search    the search whose dates the gaps lie within
+     *
+     * @returns    none
+     */
+    public void beginGaps(Search searchObj) throws IOException {
+        searchColumns = searchObj.getStartDate().toString() + "," +
+                        searchObj.getEndDate().toString() + ",";
+        writeLine("startDate,endDate,id,name,gapStartDate,length,gapRule");
+    }
+
+    //! Add a gap to the report.
+    /*
+     * @param      Campsite     campsite the gap is at
+     * @param      LocalDate    first free day of the gap
+     * @param      int          number of free days
+     * @param      GapRule      gap rule it violates
+     *
+     * @returns    none
+     */
+    public void addGap(Campsite cs, LocalDate startDate, int length,
+                       GapRule gr) throws IOException {
+        writeLine(searchColumns + cs.getId() + "," + quote(cs.getName()) +
+                  "," + startDate.toString() + "," + length + "," +
+                  gr.getSize());
+    }
+
+    //! End the report of the gaps, and flush it out.
+    /*
+     * @returns    none
+     */
+    public void endGaps() throws IOException {
+        flush();
+    }
+
+    //! Quote a field if it holds a comma, a quote or a line break, doubling
+    //! any quotes within it.
+    /*
+     * @param      String    field to quote
+     *
+     * @returns    String    the field, quoted if needed
+     */
+    static String quote(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0
+          && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+            return field;
+        }
+        return "\"" + field.replace("\"", "\"\"") + "\"";
+    }
+}
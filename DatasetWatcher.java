@@ -0,0 +1,255 @@
+/*
+ * @file           DatasetWatcher.java
+ *
+ * @class          DatasetWatcher
+ *
+ * @author         Robert Bisewski <contact@ibiscybernetics.com>
+ *
+ * @description    Watches the files a dataset was read in from and, whenever
+ *                 any of them changes, reads the dataset in all over again
+ *                 on a thread of its own, for programs that keep running
+ *                 such as the search service started with --serve.
+ *
+ *                 The dataset is held as a snapshot, a JsonInputHandler
+ *                 that is never changed once it is published, inside of an
+ *                 AtomicReference. Each search grabs the snapshot once and
+ *                 then only ever uses that one, so once the new dataset has
+ *                 been read in and indexed it is swapped in with a single
+ *                 write; searches already in progress finish against the
+ *                 old snapshot, and no search ever waits on a reload.
+ *
+ *                 Editors and scripts tend to write a file in several steps,
+ *                 so the dataset is only read in again once its files have
+ *                 been left alone for a moment. If it cannot be read in, the
+ *                 old snapshot is kept until the files change again.
+ *
+ * @usage          Give the watcher the snapshot to publish to, the files to
+ *                 watch, and how to read in the dataset, then start it:
+ *
+ *                 DatasetWatcher watcher
+ *                   = new DatasetWatcher(snapshot, files, loader, debugMode);
+ *
+ *                 watcher.start();
+ */
+
+// Imports
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import misc.Utils;
+
+public class DatasetWatcher {
+
+    /**
+     * Class-wide variables
+     */
+
+    // Number of milliseconds the files have to be left alone before the
+    // dataset is read in again.
+    static final long settleMillis = 250;
+
+    // Instance of a utility class to easily access various small
+    // functions that might be needed.
+    Utils u = null;
+
+    // Holds the dataset the searches are run against.
+    AtomicReference<JsonInputHandler> snapshot = null;
+
+    // Reads the dataset in again, returning null if it could not be.
+    Supplier<JsonInputHandler> loader = null;
+
+    // Names of the files watched in each directory.
+    Map<Path, Set<Path>> watchedFiles = new HashMap<Path, Set<Path>>();
+
+    // The underlying watch service and the thread reading its events, once
+    // started.
+    WatchService watchService = null;
+    Thread thread             = null;
+
+    // Number of times a new snapshot has been published.
+    volatile int reloads = 0;
+
+    /**
+     * Class-wide functions
+     */
+
+    //! Constructor for the DatasetWatcher
+    /*
+     * @param      AtomicReference     snapshot of the dataset to publish to
+     * @param      List<String>        files the dataset is read in from
+     * @param      Supplier            reads in the dataset, or returns null
+     * @param      bool                whether or not debug msg are printed
+     *
+     * @returns    DatasetWatcher      ref to newly created object
+     */
+    public DatasetWatcher(AtomicReference<JsonInputHandler> s,
+      List<String> files, Supplier<JsonInputHandler> l, boolean dm) {
+        snapshot = s;
+        loader   = l;
+        u        = new Utils(dm);
+
+        // Group the files by the directory they are in, since only
+        // directories can be watched.
+        for (int i = 0; i < files.size(); i++) {
+            Path file = FileSystems.getDefault().getPath(".", files.get(i))
+                                   .toAbsolutePath().normalize();
+            watchedFiles.computeIfAbsent(file.getParent(),
+                                         k -> new HashSet<Path>())
+                        .add(file.getFileName());
+        }
+    }
+
+    //! Start watching the files of the dataset.
+    /*
+     * @returns    bool    whether or not the files could be watched
+     */
+    public boolean start() {
+
+        // Input validation
+        if (snapshot == null || loader == null || watchedFiles.isEmpty()) {
+            u.printf("start() --> invalid snapshot, loader or files");
+            return false;
+        }
+
+        // Attempt to watch each of the directories for files that are
+        // written to, or replaced by another file.
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            for (Path dir : watchedFiles.keySet()) {
+                dir.register(watchService,
+                             StandardWatchEventKinds.ENTRY_CREATE,
+                             StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        } catch (IOException e) {
+            u.printf("Error: Unable to watch the dataset for changes.");
+            u.debugPrint(e.getMessage());
+            stop();
+            return false;
+        }
+
+        // Read the events on a thread of its own, which does not keep the
+        // program running by itself.
+        thread = new Thread(this::watch, "DatasetWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    //! Stop watching the files of the dataset.
+    /*
+     * @returns    none
+     */
+    public void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                u.debugPrint(e.getMessage());
+            }
+            watchService = null;
+        }
+    }
+
+    //! Grab the number of times the dataset has been swapped out.
+    /*
+     * @returns    int    number of snapshots published since starting
+     */
+    public int getReloads() {
+        return reloads;
+    }
+
+    //! Wait for any of the files to change, then read the dataset in again
+    //! once they have settled, until stopped.
+    /*
+     * @returns    none
+     */
+    void watch() {
+        WatchService ws = watchService;
+        try {
+            while (true) {
+
+                // Wait for any of the files to change.
+                if (changed(ws.take()) == false) {
+                    continue;
+                }
+
+                // Then wait until they have been left alone for a moment,
+                // in case they are still being written to.
+                WatchKey key;
+                while ((key = ws.poll(settleMillis,
+                                      TimeUnit.MILLISECONDS)) != null) {
+                    changed(key);
+                }
+                reload();
+            }
+
+        // Closing the watch service, or interrupting the thread, ends it.
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            u.debugPrint("watch() --> no longer watching the dataset");
+        }
+    }
+
+    //! Check whether the events of a directory touch any watched file.
+    /*
+     * @param      WatchKey    events of a watched directory
+     *
+     * @returns    bool        whether or not any of its files changed
+     */
+    boolean changed(WatchKey key) {
+        Set<Path> files = watchedFiles.get((Path) key.watchable());
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+              || (files != null && files.contains(event.context()))) {
+                touched = true;
+            }
+        }
+        key.reset();
+        return touched;
+    }
+
+    //! Read the dataset in again and, if that worked, publish it as the new
+    //! snapshot.
+    /*
+     * @returns    bool    whether or not a new snapshot was published
+     */
+    boolean reload() {
+        u.debugPrint("reload() --> reading in the dataset again");
+
+        // Attempt to read in the dataset, then build the index of the
+        // reservations before publishing it, so that no search ever has to
+        // build it. Any failure, even running out of memory, leaves the old
+        // snapshot in place and the watcher running.
+        JsonInputHandler next = null;
+        boolean wasRead       = false;
+        try {
+            next    = loader.get();
+            wasRead = next != null && next.getSearchObject() != null
+                   && (next.getReservationIndex() != null
+                       || next.isReservationIndexRequired() == false);
+        } catch (RuntimeException | Error e) {
+            u.printf("Error: Reading in the dataset again failed with " +
+                     e.toString());
+            next    = null;
+            wasRead = false;
+        }
+        if (wasRead == false) {
+            u.printf("Note: The dataset changed but could not be read in " +
+                     "again, so the previous one is still being searched.");
+            return false;
+        }
+
+        // Swap in the new snapshot; searches in progress keep the old one.
+        snapshot.set(next);
+        reloads++;
+        u.debugPrint("reload() --> published a new snapshot of the dataset");
+        return true;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * @file           GapsActionHandler.java
+ *
+ * @class          GapsActionHandler
+ *
+ * @author         Robert Bisewski <contact@ibiscybernetics.com>
+ *
+ * @description    Handles an event where the user wants a report of every
+ *                 gap already present in the reservations of the park,
+ *                 between the dates of the search, along with the campsite
+ *                 it is at, the day it starts on, its length and the gap
+ *                 rule it violates.
+ *
+ *                 The days reserved at each campsite are merged into runs in
+ *                 a single pass over its reservations, which are already
+ *                 sorted within the index, so that each gap is simply the
+ *                 free days between one run and the next. The campsites are
+ *                 swept in parallel, a batch at a time, and each batch is
+ *                 written out in campsite order as soon as it is done.
+ *
+ * @usage          First, this class requires a "JsonInputHandler" object
+ *                 that both works and converts the input successfully, just
+ *                 as the SearchActionHandler does:
+ *
+ *                 GapsActionHandler gah
+ *                   = new GapsActionHandler(jih, debugMode);
+ *
+ *                 Second, write out each gap through the ResultSink, as
+ *                 plain text on stdout unless another sink was given:
+ *
+ *                 gah.reportGaps();
+ */
+
+// Imports
+import com.campspot.*;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import misc.Utils;
+
+public class GapsActionHandler {
+
+    /**
+     * Class-wide variables
+     */
+
+    // Number of campsites swept in parallel before their gaps are written.
+    static final int campsitesPerBatch = 4096;
+
+    // Instance of a utility class to easily access various small
+    // functions that might be needed.
+    Utils u = null;
+
+    // Holds the data extracted from JSON objects.
+    JsonInputHandler jih = null;
+
+    // Receives the gaps found, as plain text on stdout unless another sink
+    // is given.
+    ResultSink sink = null;
+
+    /**
+     * Class-wide functions
+     */
+
+    //! Constructor for the GapsActionHandler
+    /*
+     * @param      JSONInputHandler     object containing the parsed data
+     *                                  input
+     * @param      bool                 whether or not debug msg are printed
+     *
+     * @returns    GapsActionHandler    ref to newly created object
+     */
+    public GapsActionHandler(JsonInputHandler j, boolean dm) {
+        jih  = j;
+        u    = new Utils(dm);
+        sink = new TextResultSink(ResultSink.stdout());
+    }
+
+    //! Set the sink the gaps are written to.
+    /*
+     * @param      ResultSink    sink for the results, e.g. as JSON or CSV
+     *
+     * @returns    none
+     */
+    public void setResultSink(ResultSink s) {
+        sink = s;
+    }
+
+    //! Find every gap between the dates of the search that violates one of
+    //! the gap rules, and write each of them out.
+    /*
+     * @returns   bool    whether or not an error occurred
+     */
+    public boolean reportGaps() {
+
+        // Safety check, make sure the class-wide "JSONInputHandler jih"
+        // variable is defined.
+        if (jih == null || jih.getSearchObject() == null) {
+            u.printf("reportGaps() --> invalid JSONInputHandler");
+            return false;
+        }
+
+        // Grab the data from the JSON input handler; the reservations are
+        // only ever read through the index, a campsite at a time.
+        Search searchObj            = jih.getSearchObject();
+        List<GapRule> gapRulesArray = jih.getGapRulesArray();
+        List<Campsite> campsites    = jih.getCampsitesArray();
+        ReservationIndex index      = jih.getReservationIndex();
+
+        // Sanity check, make sure each of them is present.
+        if (gapRulesArray == null || campsites == null) {
+            u.printf("reportGaps() --> invalid array lists in jih");
+            return false;
+        }
+        if (index == null) {
+            u.printf("reportGaps() --> unable to index the reservations");
+            return false;
+        }
+
+        // Map each gap size that applies to the first gap rule of that
+        // size, since a gap only violates a rule if it is exactly as long.
+        Map<Integer, GapRule> rulesBySize = new HashMap<Integer, GapRule>();
+        for (int l = 0; l < gapRulesArray.size(); l++) {
+            GapRule gr = gapRulesArray.get(l);
+            if (gr != null && gr.getSize() > 0) {
+                rulesBySize.putIfAbsent(gr.getSize(), gr);
+            }
+        }
+
+        // Grab the range of days to report the gaps of.
+        int rangeStart = (int) searchObj.getStartDate().toEpochDay();
+        int rangeEnd   = (int) searchObj.getEndDate().toEpochDay();
+
+        try {
+            sink.beginGaps(searchObj);
+
+            // Sweep a batch of campsites at a time in parallel, then write
+            // out their gaps in campsite order before moving on.
+            for (int first = 0; first < campsites.size();
+                 first += campsitesPerBatch) {
+                int last = Math.min(first + campsitesPerBatch,
+                                    campsites.size());
+                List<int[]> batch = IntStream.range(first, last)
+                  .parallel()
+                  .mapToObj(i -> gapsAt(index.reservedRuns(
+                                          campsites.get(i).getId()),
+                                        rangeStart, rangeEnd,
+                                        rulesBySize.keySet()))
+                  .collect(Collectors.toList());
+
+                for (int i = 0; i < batch.size(); i++) {
+                    int[] gaps = batch.get(i);
+                    for (int g = 0; g < gaps.length; g += 2) {
+                        sink.addGap(campsites.get(first + i),
+                                    LocalDate.ofEpochDay(gaps[g]),
+                                    gaps[g + 1],
+                                    rulesBySize.get(gaps[g + 1]));
+                    }
+                }
+            }
+            sink.endGaps();
+
+        // Catch any errors while writing out the results.
+        } catch (IOException e) {
+            u.printf("Error: Unable to write out the gaps.");
+            u.debugPrint(e.getMessage());
+            return false;
+        }
+
+        // Since everything executed correctly, return true.
+        return true;
+    }
+
+    //! Find the gaps at a campsite that overlap a range of days and are
+    //! exactly as long as one of the gap rules, in one pass over the runs
+    //! of reserved days.
+    /*
+     * @param      int[]           runs of reserved days at the campsite, as
+     *                             pairs of first and last day
+     * @param      int             first day of the range
+     * @param      int             last day of the range
+     * @param      Set<Integer>    sizes of the gaps that are not allowed
+     *
+     * @returns    int[]           the gaps, as pairs of the first free day
+     *                             and the number of free days
+     */
+    static int[] gapsAt(int[] reserved, int rangeStart, int rangeEnd,
+                        Set<Integer> gapSizes) {
+        int[] gaps = new int[Math.max(reserved.length - 2, 0)];
+        int count  = 0;
+
+        // Each gap lies between the end of one run and the start of the
+        // next, which are never back-to-back.
+        for (int r = 2; r < reserved.length; r += 2) {
+            int gapStart = reserved[r - 1] + 1;
+            int gapEnd   = reserved[r] - 1;
+            if (gapStart > rangeEnd) {
+                break;
+            }
+            if (gapEnd >= rangeStart
+              && gapSizes.contains(gapEnd - gapStart + 1)) {
+                gaps[count++] = gapStart;
+                gaps[count++] = gapEnd - gapStart + 1;
+            }
+        }
+        return Arrays.copyOf(gaps, count);
+    }
+}
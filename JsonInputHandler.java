@@ -39,10 +39,38 @@
  *                 as a parameter into other classes, like the included
  *                 module "SearchActionHandler", for the sake of developer
  *                 convenience.
+ *
+ *                 NDJSON input is handled in much the same way, except the
+ *                 first line is parsed as a header holding the search, gap
+ *                 rules and campsites, and the rest of the reader is fed in
+ *                 so that reservations can be streamed one line at a time:
+ *
+ *                 jih.NdjsonToObjects(header, bufferedReader);
+ *
+ *                 Reservations can also be streamed in from CSV exports
+ *                 with a campsiteId,startDate,endDate header row, after
+ *                 the main input has been read in. If so, the number of
+ *                 feeds should be given beforehand, so the main input may
+ *                 leave out its own reservations:
+ *
+ *                 jih.setReservationFeeds(1);
+ *                 jih.JsonToObjects(jsonObj);
+ *                 jih.CsvToObjects(reader);
+ *
+ *                 Lastly, a lazily indexed document may be given instead of
+ *                 a JSONObject, in which case only the search, gap rules and
+ *                 campsites are decoded up front. Reservations are decoded
+ *                 one at a time, and only if their campsite was not left out
+ *                 by a campsite filter:
+ *
+ *                 jih.setCampsiteFilter(ids);
+ *                 jih.LazyToObjects(JSONLazyObject.parse(reader));
  */
 
 // Imports
 import com.campspot.*;
+import java.io.*;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.util.*;
 import org.json.*;
@@ -67,6 +95,68 @@ public class JsonInputHandler {
     ArrayList<Campsite> campsites       = new ArrayList<Campsite>();
     ArrayList<Reservation> reservations = new ArrayList<Reservation>();
 
+    // Reservations of any other datasets merged into this one, each of them
+    // packed into a sorted run.
+    List<long[]> reservationRuns          = new ArrayList<long[]>();
+    long mergedReservations               = 0;
+
+    // Index from campsite id to Campsite, so that reservations and results
+    // can find their campsite with a single lookup. Ids are used directly
+    // as positions in a dense array, unless they are too sparse for that,
+    // in which case they are kept in a map instead. Campsites are indexed
+    // in the order they were added, the first of any repeated id winning.
+    Campsite[] campsitesByIdArray         = new Campsite[0];
+    Map<Integer, Campsite> campsitesById  = new HashMap<Integer, Campsite>();
+    int indexedCampsites                  = 0;
+
+    // Index of all of the reservations, sorted by campsite, along with how
+    // many of the reservations above and the runs it was built from.
+    ReservationIndex reservationIndex     = null;
+    int indexedReservations               = 0;
+    int indexedRuns                       = 0;
+    long indexedSpilled                   = 0;
+    int indexedChanges                    = 0;
+
+    // Reservations taken out by deltas, as packed keys along with how many
+    // times each of them was removed, and the number of delta operations
+    // applied so far.
+    Map<Long, Integer> removedReservations = new HashMap<Long, Integer>();
+    int deltaChanges                       = 0;
+
+    // While a delta is applied, the index its first removal was checked
+    // against, and how many times each packed reservation was added, less
+    // the times it was removed, by the lines of the delta since then.
+    ReservationIndex deltaBase             = null;
+    Map<Long, Integer> deltaNetChanges     = new HashMap<Long, Integer>();
+
+    // Index loaded along with the rest of the dataset from the cache of an
+    // earlier run, if any.
+    ReservationIndex cachedIndex          = null;
+
+    // Holds the reservations as packed keys instead, written out to disk in
+    // sorted runs whenever they exceed the memory budget, if one was set.
+    ReservationSpiller reservationSpiller = null;
+
+    // Number of separate reservation feeds, such as CSV files, that are
+    // still expected to be read in after the main JSON input.
+    int reservationFeeds = 0;
+
+    // Ids of the only campsites that should be read in, or null if every
+    // campsite should be.
+    Set<Integer> campsiteFilter = null;
+
+    // Pool through which the strings of each NDJSON reservation line are
+    // shared, or null if every line should get strings of its own.
+    JSONStringPool stringPool = null;
+
+    // Compiled pointers to the search, gap rules, campsites and reservations
+    // within the input, so that feeds with some other layout can be read in
+    // as they are.
+    JSONPointer searchPointer       = new JSONPointer("/search");
+    JSONPointer gapRulesPointer     = new JSONPointer("/gapRules");
+    JSONPointer campsitesPointer    = new JSONPointer("/campsites");
+    JSONPointer reservationsPointer = new JSONPointer("/reservations");
+
     /**
      * Class-wide functions
      */
@@ -83,6 +173,92 @@ public class JsonInputHandler {
         u      = new Utils(dm);
     }
 
+    //! Set how many separate reservation feeds will follow the main input.
+    /*
+     * @param      int    number of feeds, such as CSV files
+     *
+     * @returns    none
+     */
+    public void setReservationFeeds(int count) {
+        reservationFeeds = count;
+    }
+
+    //! Keep reservations as packed keys within a memory budget, writing
+    //! them out to disk in sorted runs rather than holding them as objects.
+    /*
+     * @param      ReservationSpiller    spiller to add the reservations to,
+     *                                   which may be shared with the handlers
+     *                                   of other datasets
+     *
+     * @returns    none
+     */
+    public void setReservationSpiller(ReservationSpiller spiller) {
+        reservationSpiller = spiller;
+    }
+
+    //! Limit the campsites read in to those with the given ids.
+    /*
+     * @param      Set<Integer>    ids of the campsites to keep, or null to
+     *                             keep every campsite
+     *
+     * @returns    none
+     */
+    public void setCampsiteFilter(Set<Integer> ids) {
+        campsiteFilter = ids;
+    }
+
+    //! Share the strings of parsed reservation lines through a pool.
+    /*
+     * @param      JSONStringPool    pool to intern keys and short values
+     *                               with, or null to not pool them
+     *
+     * @returns    none
+     */
+    public void setStringPool(JSONStringPool pool) {
+        stringPool = pool;
+    }
+
+    //! Set where the search is located within the input.
+    /*
+     * @param      JSONPointer    pointer to the search object
+     *
+     * @returns    none
+     */
+    public void setSearchPointer(JSONPointer pointer) {
+        searchPointer = pointer;
+    }
+
+    //! Set where the gap rules are located within the input.
+    /*
+     * @param      JSONPointer    pointer to the array of gap rules
+     *
+     * @returns    none
+     */
+    public void setGapRulesPointer(JSONPointer pointer) {
+        gapRulesPointer = pointer;
+    }
+
+    //! Set where the campsites are located within the input.
+    /*
+     * @param      JSONPointer    pointer to the array of campsites
+     *
+     * @returns    none
+     */
+    public void setCampsitesPointer(JSONPointer pointer) {
+        campsitesPointer = pointer;
+    }
+
+    //! Set where the reservations are located within the input, such as
+    //! "/data/bookings"; this does not apply to NDJSON reservation lines.
+    /*
+     * @param      JSONPointer    pointer to the array of reservations
+     *
+     * @returns    none
+     */
+    public void setReservationsPointer(JSONPointer pointer) {
+        reservationsPointer = pointer;
+    }
+
     //! Returns a ref to the internal Search object.
     /*
      * @returns    Search   the Search object populated by the handler.
@@ -112,185 +288,688 @@ public class JsonInputHandler {
      * @returns    ArrayList<Reservation>   list of reservations.
      */
     public ArrayList<Reservation> getReservationsArray() {
-        return reservations;
+
+        // If no other datasets were merged in, these are all of them.
+        if (reservationRuns.isEmpty() && isReservationIndexRequired() == false) {
+            return reservations;
+        }
+
+        // Reservations kept within a memory budget, loaded from the cache
+        // or taken out by a delta are only right in the index, so unpack
+        // each of them from it.
+        if (isReservationIndexRequired()) {
+            ArrayList<Reservation> all = new ArrayList<Reservation>();
+            ReservationIndex index     = getReservationIndex();
+            for (int i = 0; index != null && i < index.size(); i++) {
+                long key = index.get(i);
+                all.add(new Reservation(
+                  CampsiteById(ReservationIndex.campsiteIdOf(key)),
+                  ReservationIndex.startDateOf(key),
+                  ReservationIndex.endDateOf(key)));
+            }
+            return all;
+        }
+
+        // Otherwise unpack the reservations out of each of the merged runs,
+        // followed by those read directly into this handler.
+        ArrayList<Reservation> all = new ArrayList<Reservation>();
+        for (int r = 0; r < reservationRuns.size(); r++) {
+            long[] run = reservationRuns.get(r);
+            for (int i = 0; i < run.length; i++) {
+                all.add(new Reservation(
+                  CampsiteById(ReservationIndex.campsiteIdOf(run[i])),
+                  ReservationIndex.startDateOf(run[i]),
+                  ReservationIndex.endDateOf(run[i])));
+            }
+        }
+        all.addAll(reservations);
+        return all;
     }
 
-    //! Take a JSON object and populate the Search object and element arrays.
+    //! Returns an index of all of the reservations sorted by campsite,
+    //! merging the reservations of every dataset read in so far.
     /*
-     * @param     JSONObject    map to search through for gaps
-     *
-     * @returns   bool          whether or not a valid action was given
+     * @returns    ReservationIndex   index of the reservations, or null if
+     *                                any of them fall outside of the dates
+     *                                the index is able to hold, or it could
+     *                                not be written out within the budget
      */
-    public boolean JsonToObjects(JSONObject jsonObj) {
+    public ReservationIndex getReservationIndex() {
 
-        // Input validation.
-        if (jsonObj == null || jsonObj.length() < 1) {
-            u.printf("JsonToObjects() --> invalid input");
-            return false;
+        // Reuse the index if nothing was added since it was built.
+        if (reservationIndex != null
+          && indexedReservations == reservations.size()
+          && indexedRuns == reservationRuns.size()
+          && indexedChanges == deltaChanges
+          && (reservationSpiller == null
+              || indexedSpilled == reservationSpiller.size())) {
+            return reservationIndex;
         }
 
-        // Variable declaration
-        JSONObject searchJsonRaw         = null;
-        LocalDate  searchStartDate       = null;
-        LocalDate  searchEndDate         = null;
-        LocalDate  reservationStartDate  = null;
-        LocalDate  reservationEndDate    = null;
-        JSONArray  gapRulesJsonArray     = null;
-        JSONArray  campsitesJsonArray    = null;
-        JSONArray  reservationsJsonArray = null;
+        try {
+
+            // A dataset loaded from the cache comes with its index already
+            // built, so only the reservations added since then need to be
+            // patched into it.
+            long[] added = new long[0];
+            if (cachedIndex != null) {
+                reservationIndex = cachedIndex;
+                added            = ReservationIndex.sortedRun(reservations);
+
+            // Otherwise pack the reservations read directly into this
+            // handler into a run of their own, then merge it with the runs
+            // of any other datasets and, if a memory budget was set, with
+            // the runs written out to disk.
+            } else {
+                List<long[]> runs = new ArrayList<long[]>(reservationRuns);
+                runs.add(ReservationIndex.sortedRun(reservations));
+                reservationIndex = (reservationSpiller != null)
+                                 ? reservationSpiller.build(runs)
+                                 : ReservationIndex.merge(runs);
+            }
+
+            // Patch in any reservations added to a cached dataset, and take
+            // out any removed by a delta. An index mapped from disk may not
+            // fit onto the heap, so it is patched on disk instead.
+            if (added.length > 0 || removedReservations.isEmpty() == false) {
+                Map<Long, Integer> unmatched
+                  = new HashMap<Long, Integer>(removedReservations);
+                reservationIndex = reservationIndex.isMapped()
+                  ? ReservationSpiller.patch(reservationIndex, added,
+                      unmatched, Paths.get(System.getProperty("java.io.tmpdir")))
+                  : ReservationIndex.patch(reservationIndex, added, unmatched);
+                if (unmatched.isEmpty() == false) {
+                    u.printf("Warning: " + unmatched.size() + " of the " +
+                             "reservations removed by a delta did not exist.");
+                }
+            }
+
+        // Any dates the index is unable to hold leave the caller to fall
+        // back on the plain list of reservations.
+        } catch (IllegalArgumentException e) {
+            u.debugPrint("getReservationIndex() --> " + e.getMessage());
+            return null;
+
+        // Otherwise the runs could not be merged on disk.
+        } catch (IOException e) {
+            u.printf("Error: Unable to build the reservation index on disk.");
+            u.debugPrint(e.getMessage());
+            return null;
+        }
+
+        // Note what the index was built from, and hand it back.
+        indexedReservations = reservations.size();
+        indexedRuns         = reservationRuns.size();
+        indexedSpilled      = (reservationSpiller != null)
+                            ? reservationSpiller.size() : 0;
+        indexedChanges      = deltaChanges;
+        return reservationIndex;
+    }
 
-        // Grab a list of names from the json object.
-        JSONArray names = jsonObj.names(); 
+    //! Merge another dataset, such as a separate campground or export
+    //! shard, into this one.
+    /*
+     * @param      JsonInputHandler    handler holding the dataset that was
+     *                                 read in from another file
+     *
+     * @returns    bool                false if a campsite id in the dataset
+     *                                 conflicts with an earlier one, true
+     *                                 otherwise
+     */
+    public boolean MergeDataset(JsonInputHandler other) {
 
-        // Sanity check, make sure this actually got an object.
-        if (names == null) {
-            u.printf("JsonToObjects() --> malformed JSONObject names");
+        // Input validation.
+        if (other == null || other.getSearchObject() == null) {
+            u.printf("MergeDataset() --> invalid input");
             return false;
         }
 
-        // If debug mode, print out a list of keys present in the array.
-        u.debugPrint("--------------------------------------------------------");
-        u.debugPrint("JsonToObjects() --> JSON Names Data");
-        u.debugPrint("--------------------------------------------------------");
-        u.debugPrint(names.toString());
-        u.debugPrint("--------------------------------------------------------");
+        // The first dataset provides the search and gap rules, and later
+        // ones are only expected to repeat them.
+        if (searchObj == null) {
+            searchObj = other.searchObj;
+            gapRulesArray.addAll(other.gapRulesArray);
+        } else {
+            reservationFeeds--;
+            if (searchObj.toString().equals(other.searchObj.toString()) == false
+              || GapSizes(gapRulesArray).equals(GapSizes(other.gapRulesArray))
+                 == false) {
+                u.printf("Warning: A dataset with a different search or " +
+                         "gap rules was merged in; those of the first " +
+                         "dataset are used.");
+            }
+        }
 
-        // Grab the JSONObject associated with the "search" action.
+        // Add each campsite not seen so far. A campsite that comes up again
+        // under the same name is the same campsite, for instance one that
+        // appears in several export shards, whereas another name means the
+        // datasets disagree about what the id refers to.
+        for (int i = 0; i < other.campsites.size(); i++) {
+            Campsite cs    = other.campsites.get(i);
+            Campsite known = CampsiteById(cs.getId());
+            if (known == null) {
+                campsites.add(cs);
+            } else if (known.getName().equals(cs.getName()) == false) {
+                u.printf("Error: Conflicting campsite id " + cs.getId() +
+                         " refers to both `" + known.getName() + "` and `" +
+                         cs.getName() + "`.");
+                return false;
+            }
+        }
+
+        // Pack the reservations of the dataset into a sorted run of their
+        // own, to be merged with the others once the index is needed.
         try {
-            searchJsonRaw = (JSONObject) jsonObj.get("search");
-            u.debugPrint("JsonToObjects() --> Search JSON: " + searchJsonRaw.toString());
+            long[] run = ReservationIndex.sortedRun(other.reservations);
+            reservationRuns.add(run);
+            mergedReservations += run.length;
 
-        // Catch any JSONArray initialization errors, if they occur.
-        } catch (JSONException je) {
-            u.printf("Error: Unable to create JSONObject from search input.");
-            je.printStackTrace();
+        // Catch any dates the index is unable to hold.
+        } catch (IllegalArgumentException e) {
+            u.printf("Error: " + e.getMessage());
             return false;
         }
 
-        // If debug mode, go ahead and output the raw, unconverted start
-        // and end dates.
-        u.debugPrint("JsonToObjects() --> Raw start date: " +
-                   searchJsonRaw.get("startDate"));
-        u.debugPrint("JsonToObjects() --> Raw end date: " +
-                   searchJsonRaw.get("endDate"));
+        // If this was the last dataset and still no reservations are
+        // present, tell the end-user about it.
+        NoteIfNoReservations();
+        return true;
+    }
 
-        // Extract the start and end date 
-        searchStartDate
-          = u.stringToLocalDate("" + searchJsonRaw.get("startDate"));
-        searchEndDate
-          = u.stringToLocalDate("" + searchJsonRaw.get("endDate"));
+    //! Whether the reservations are only held in the index, which a search
+    //! is then unable to do without.
+    /*
+     * @returns    bool    true if a memory budget was set
+     */
+    public boolean isReservationIndexRequired() {
+        return reservationSpiller != null || cachedIndex != null
+          || removedReservations.isEmpty() == false;
+    }
 
-        // Sanity check, make sure the the parsing didn't just throw back
-        // a null value.
-        if (searchStartDate == null || searchEndDate == null) {
-            u.printf("Warning: Improperly parsed Date objects for the " +
-                   "`search` action start / end dates.");
+    //! Take the search, gap rules, campsites and reservations of a dataset
+    //! from the cache of an earlier run, rather than from the input files.
+    /*
+     * @param      DatasetCache.Entry    entry loaded from the cache
+     *
+     * @returns    bool                  whether or not the entry was valid
+     */
+    public boolean LoadCachedDataset(DatasetCache.Entry entry) {
+
+        // Input validation.
+        if (entry == null || entry.search == null || entry.index == null) {
+            u.debugPrint("LoadCachedDataset() --> invalid input");
             return false;
         }
 
-        // If debug mode, tell the developer what the search start and
-        // end dates are.
-        u.debugPrint("Search action starting date is: " +
-                   searchStartDate.toString());
-        u.debugPrint("Search action ending date is: " +
-                   searchEndDate.toString());
+        // Take each portion of the dataset as it is.
+        searchObj = entry.search;
+        gapRulesArray.addAll(entry.gapRules);
+        campsites.addAll(entry.campsites);
+        cachedIndex = entry.index;
 
-        // Populate the Search object with the given dates.
-        searchObj = new Search(searchStartDate, searchEndDate);
-      
-        // Sanity check, make sure the Search object was initialized
-        // correctly and didn't end up null.
-        if (searchObj == null) {
-            u.printf("Error: Possible memory error in assignment of " +
-                   "Search object.");
-            return false;
+        // If there were no reservations, tell the end-user about it.
+        if (cachedIndex.size() == 0) {
+            u.printf("Note: No campsite reservations were detected. Ergo, " +
+                   "a search returns no results.");
         }
- 
-        // Read in the gap rules from the JSON data so that this program
-        // can determine the size of the gaps to be looking for.
-        try {
-            gapRulesJsonArray = jsonObj.getJSONArray("gapRules");
+        return true;
+    }
 
-        // Catch any JSONArray initialization errors, if they occur.
-        } catch (JSONException je) {
-            u.printf("Error: Unable to create JSONArray from gap rules input.");
-            return false;
+    //! Find the campsite with a given id.
+    /*
+     * @param      int         id of the campsite
+     *
+     * @returns    Campsite    the campsite, or null if there is none
+     */
+    Campsite CampsiteById(int id) {
+
+        // Index any campsites added since the last lookup.
+        if (indexedCampsites != campsites.size()) {
+            IndexCampsites();
         }
 
-        // Iterate through a list of gap rules and add 'em to the array of rules.
-        Iterator<Object> itObj = gapRulesJsonArray.iterator();
-        while (itObj.hasNext()) {
+        // Look in the dense array first, then in the map of sparse ids.
+        Campsite cs = (id >= 0 && id < campsitesByIdArray.length)
+                    ? campsitesByIdArray[id] : null;
+        return (cs != null) ? cs : campsitesById.get(id);
+    }
 
-            // Assign the current element on the iterator to a variable.
-            JSONObject gapElement = (JSONObject) itObj.next();
+    //! Add any campsites not indexed yet to the index from id to Campsite.
+    /*
+     * @returns    none
+     */
+    void IndexCampsites() {
+        for (; indexedCampsites < campsites.size(); indexedCampsites++) {
+            Campsite cs = campsites.get(indexedCampsites);
+            int id      = cs.getId();
 
-            // If the element is null or damaged, skip to the next one.
-            if (gapElement == null || gapElement.get("gapSize") == null) {
-                u.debugPrint("JsonToObjects() --> damaged or unusable " +
-                           "element detected, skipping...");
-                continue;
+            // Ids that are not much larger than the number of campsites
+            // go into the dense array, growing it as needed.
+            if (id >= 0 && id < 4L * campsites.size() + 1024) {
+                if (id >= campsitesByIdArray.length) {
+                    campsitesByIdArray = Arrays.copyOf(campsitesByIdArray,
+                      Math.max(id + 1, 2 * campsitesByIdArray.length));
+                }
+                if (campsitesByIdArray[id] == null
+                  && campsitesById.containsKey(id) == false) {
+                    campsitesByIdArray[id] = cs;
+                }
+
+            // Any others go into the map.
+            } else {
+                campsitesById.putIfAbsent(id, cs);
             }
+        }
+    }
 
-            // If debug mode, print out the gap element info.
-            u.debugPrint(gapElement.toString());
+    //! Gather the sizes of a list of gap rules, for comparing lists.
+    /*
+     * @param      List<GapRule>    list of gap rules
+     *
+     * @returns    List<Integer>    the size of each of the gap rules
+     */
+    List<Integer> GapSizes(List<GapRule> rules) {
+        List<Integer> sizes = new ArrayList<Integer>();
+        for (int i = 0; i < rules.size(); i++) {
+            sizes.add(rules.get(i).getSize());
+        }
+        return sizes;
+    }
 
-            // Since the element has been harvested out of the JSON, go
-            // ahead and create a new GapRule.
-            GapRule gr = new GapRule((int) gapElement.get("gapSize"));
+    //! Take a JSON object and populate the Search object and element arrays.
+    /*
+     * @param     JSONObject    map to search through for gaps
+     *
+     * @returns   bool          whether or not a valid action was given
+     */
+    public boolean JsonToObjects(JSONObject jsonObj) {
 
-            // Safety check, make sure this actually created a gap element.
-            if (gr == null) {
-                u.debugPrint("JsonToObjects() --> unable to create " + 
-                             "GapRule, skipping...");
-                continue;
-            }
+        // Input validation.
+        if (jsonObj == null || jsonObj.length() < 1) {
+            u.printf("JsonToObjects() --> invalid input");
+            return false;
+        }
 
-            // As the rule was created successfully, go ahead and add it to
-            // an array holding all of the given gap rules.
-            gapRulesArray.add(gr);
+        // Variable declaration
+        JSONArray reservationsJsonArray = null;
+
+        // Read in the search, gap rules and campsites portion of the input.
+        if (HeaderToObjects(jsonObj) == false) {
+            return false;
         }
 
-        // If the gap rules array currently has zero elements, go ahead and
-        // return back since there is no need to check for gaps.
-        if (gapRulesArray.isEmpty()) {
-            u.printf("No gaps rules were relevant between " +
-                   searchStartDate.toString() + " and " +
-                   searchEndDate.toString() + ".");
+        // If either the gap rules or the campsites turned out to be empty,
+        // then there is nothing left to search through.
+        if (gapRulesArray.isEmpty() || campsites.isEmpty()) {
             return true;
         }
- 
-        // Grab the JSONArray associated with the campsite info.
+
+        // Grab the JSONArray associated with the campsite reservations; this
+        // may be left out if the reservations come from separate feeds.
         try {
-            campsitesJsonArray = jsonObj.getJSONArray("campsites");
+            reservationsJsonArray = PointedArray(jsonObj, reservationsPointer,
+                                                 reservationFeeds <= 0);
 
         // Catch any JSONArray initialization errors, if they occur.
         } catch (JSONException je) {
-            u.printf("Error: Unable to create JSONArray from campsites input.");
+            u.printf("Error: Unable to create JSONArray from reservations input.");
             return false;
         }
 
-        // Iterate through a list of campsites and add 'em to the array of rules.
-        Iterator<Object> itObjCamp = campsitesJsonArray.iterator();
-        while (itObjCamp.hasNext()) {
-
-            // Assign the current element on the iterator to a variable.
-            JSONObject campsiteElement = (JSONObject) itObjCamp.next();
+        // Iterate through a list of campsites and add 'em to the array of
+        // reservations.
+        Iterator<Object> itObjReserv = (reservationsJsonArray != null)
+          ? reservationsJsonArray.iterator()
+          : Collections.emptyIterator();
+        while (itObjReserv.hasNext()) {
 
-            // If the element is null or damaged, skip to the next one.
-            if (campsiteElement == null || campsiteElement.get("id") == null
-              || campsiteElement.get("name") == null) {
-                u.debugPrint("JsonToObjects() --> damaged or unusable " +
-                           "element detected, skipping...");
-                continue;
+            // Assign the current element on the iterator to a variable, and
+            // attempt to convert it into a Reservation.
+            if (ReservationToObject((JSONObject) itObjReserv.next()) == false) {
+                return false;
             }
+        }
 
-            // If debug mode, print out the campsite element info.
-            u.debugPrint(campsiteElement.toString());
+        // If the reservations array currently has zero elements, tell the
+        // end-user since there is no need to check for gaps.
+        NoteIfNoReservations();
 
-            // Since the element has been harvested out of the JSON, go
-            // ahead and create a new Campsite.
-            Campsite cs = new Campsite((int) campsiteElement.get("id"),
-                                       campsiteElement.get("name").toString());
+        // If the search was handled correctly, return true.
+        return true;
+    }
+
+    //! Take a lazily indexed JSON document and populate the Search object
+    //! and element arrays, decoding each reservation only if needed.
+    /*
+     * @param     JSONLazyObject    document to search through for gaps
+     *
+     * @returns   bool              whether or not the input was valid
+     */
+    public boolean LazyToObjects(JSONLazyObject doc) {
+
+        // Input validation.
+        if (doc == null || doc.length() < 1) {
+            u.printf("LazyToObjects() --> invalid input");
+            return false;
+        }
+
+        // Variables to hold the reservations, which stay undecoded for now.
+        JSONLazyArray lazyReservations     = null;
+        long skippedReservations           = 0;
+
+        try {
+
+            // Read in the search, gap rules and campsites; only the members
+            // the pointers lead through are decoded.
+            if (HeaderToObjects(doc) == false) {
+                return false;
+            }
+
+            // If either the gap rules or the campsites turned out to be
+            // empty, then none of the reservations need to be decoded.
+            if (gapRulesArray.isEmpty() || campsites.isEmpty()) {
+                return true;
+            }
+
+            // Index the reservations array; this may be left out if the
+            // reservations come from separate feeds.
+            Object pointed = PointedValue(doc, reservationsPointer, false);
+            if (pointed instanceof JSONLazyArray) {
+                lazyReservations = (JSONLazyArray) pointed;
+            } else if (pointed != null || reservationFeeds <= 0) {
+                u.printf("Error: Unable to create JSONArray from reservations input.");
+                return false;
+            }
+
+            // Decode the reservations one at a time, first peeking at the
+            // campsite id so that reservations at campsites that did not
+            // survive the campsite filter are never decoded at all.
+            for (int i = 0; lazyReservations != null
+                            && i < lazyReservations.length(); i++) {
+
+                // Index the members of the reservation.
+                JSONLazyObject element = lazyReservations.getLazyObject(i);
+
+                // Skip the reservation if its campsite was filtered out.
+                Object campsiteId = element.opt("campsiteId");
+                if (campsiteId instanceof Integer
+                  && isFilteredOut((Integer) campsiteId)) {
+                    skippedReservations++;
+                    continue;
+                }
+
+                // Otherwise decode the reservation in full.
+                if (ReservationToObject(element.toJSONObject()) == false) {
+                    return false;
+                }
+            }
+
+        // Catch any malformed members of the document, if they occur.
+        } catch (JSONException je) {
+            u.printf("Error: Malformed JSON input.");
+            u.debugPrint(je.getMessage());
+            return false;
+        }
+
+        // If debug mode, tell the developer how many reservations never
+        // needed to be decoded.
+        u.debugPrint("LazyToObjects() --> skipped decoding " +
+                     skippedReservations + " reservations");
+
+        // If the reservations array currently has zero elements, tell the
+        // end-user since there is no need to check for gaps.
+        NoteIfNoReservations();
+
+        // If the search was handled correctly, return true.
+        return true;
+    }
+
+    //! Take a NDJSON header and stream of reservation lines, and populate
+    //! the Search object and element arrays.
+    /*
+     * @param     JSONObject        header holding search, gap rules and
+     *                              campsites
+     * @param     BufferedReader    remaining lines, one reservation each
+     *
+     * @returns   bool              whether or not the input was valid
+     */
+    public boolean NdjsonToObjects(JSONObject header, BufferedReader reader) {
+
+        // Input validation.
+        if (header == null || header.length() < 1 || reader == null) {
+            u.printf("NdjsonToObjects() --> invalid input");
+            return false;
+        }
+
+        // Read in the search, gap rules and campsites portion of the input.
+        if (HeaderToObjects(header) == false) {
+            return false;
+        }
+
+        // If either the gap rules or the campsites turned out to be empty,
+        // then there is no need to read any of the reservation lines.
+        if (gapRulesArray.isEmpty() || campsites.isEmpty()) {
+            return true;
+        }
+
+        // Variables to hold the current line and its position in the input;
+        // the header is always the first line.
+        String line    = null;
+        long lineCount = 1;
+
+        // Read the reservations one line at a time, so that only a single
+        // line of raw text is ever held in memory.
+        try {
+            while ((line = reader.readLine()) != null) {
+
+                // Keep track of the line number for the sake of errors.
+                lineCount++;
+
+                // Skip any blank lines, such as a trailing newline.
+                if (line.trim().length() < 1) {
+                    continue;
+                }
+
+                // Convert the line into a reservation, sharing its keys and
+                // dates with the lines that came before it.
+                JSONTokener lineTokener = new JSONBufferedTokener(line);
+                lineTokener.setStringPool(stringPool);
+                if (ReservationToObject(new JSONObject(lineTokener)) == false) {
+                    return false;
+                }
+            }
+
+        // Catch any errors caused by reading from the input stream.
+        } catch (IOException ioe) {
+            u.printf("Error: Unable to read reservation lines from input.");
+            return false;
+
+        // Catch any malformed reservation lines, if they occur.
+        } catch (JSONException je) {
+            u.printf("Error: Malformed reservation on line " + lineCount +
+                     " of the input.");
+            return false;
+        }
+
+        // If the reservations array currently has zero elements, tell the
+        // end-user since there is no need to check for gaps.
+        NoteIfNoReservations();
+
+        // If the search was handled correctly, return true.
+        return true;
+    }
+
+    //! Populate the Search object, gap rules and campsites from a JSON
+    //! document, leaving the reservations to the caller.
+    /*
+     * @param     Object        JSONObject or JSONLazyObject holding the
+     *                          search, gap rules and campsites at the
+     *                          locations given by their pointers
+     *
+     * @returns   bool          whether or not the header was valid
+     */
+    boolean HeaderToObjects(Object jsonObj) {
+
+        // Variable declaration
+        JSONObject searchJsonRaw         = null;
+        LocalDate  searchStartDate       = null;
+        LocalDate  searchEndDate         = null;
+        JSONArray  gapRulesJsonArray     = null;
+        JSONArray  campsitesJsonArray    = null;
+
+        // If debug mode, print out where each portion of the input will be
+        // looked for.
+        u.debugPrint("--------------------------------------------------------");
+        u.debugPrint("JsonToObjects() --> JSON Pointers");
+        u.debugPrint("--------------------------------------------------------");
+        u.debugPrint("search:    " + searchPointer.toString());
+        u.debugPrint("gapRules:  " + gapRulesPointer.toString());
+        u.debugPrint("campsites: " + campsitesPointer.toString());
+        u.debugPrint("--------------------------------------------------------");
+
+        // Grab the JSONObject associated with the "search" action.
+        try {
+            searchJsonRaw = PointedObject(jsonObj, searchPointer);
+            u.debugPrint("JsonToObjects() --> Search JSON: " + searchJsonRaw.toString());
+
+        // Catch any JSONArray initialization errors, if they occur.
+        } catch (JSONException je) {
+            u.printf("Error: Unable to create JSONObject from search input.");
+            je.printStackTrace();
+            return false;
+        }
+
+        // If debug mode, go ahead and output the raw, unconverted start
+        // and end dates.
+        u.debugPrint("JsonToObjects() --> Raw start date: " +
+                   searchJsonRaw.get("startDate"));
+        u.debugPrint("JsonToObjects() --> Raw end date: " +
+                   searchJsonRaw.get("endDate"));
+
+        // Extract the start and end date 
+        searchStartDate
+          = u.stringToLocalDate("" + searchJsonRaw.get("startDate"));
+        searchEndDate
+          = u.stringToLocalDate("" + searchJsonRaw.get("endDate"));
+
+        // Sanity check, make sure the the parsing didn't just throw back
+        // a null value.
+        if (searchStartDate == null || searchEndDate == null) {
+            u.printf("Warning: Improperly parsed Date objects for the " +
+                   "`search` action start / end dates.");
+            return false;
+        }
+
+        // If debug mode, tell the developer what the search start and
+        // end dates are.
+        u.debugPrint("Search action starting date is: " +
+                   searchStartDate.toString());
+        u.debugPrint("Search action ending date is: " +
+                   searchEndDate.toString());
+
+        // Populate the Search object with the given dates.
+        searchObj = new Search(searchStartDate, searchEndDate);
+      
+        // Sanity check, make sure the Search object was initialized
+        // correctly and didn't end up null.
+        if (searchObj == null) {
+            u.printf("Error: Possible memory error in assignment of " +
+                   "Search object.");
+            return false;
+        }
+ 
+        // Read in the gap rules from the JSON data so that this program
+        // can determine the size of the gaps to be looking for.
+        try {
+            gapRulesJsonArray = PointedArray(jsonObj, gapRulesPointer, true);
+
+        // Catch any JSONArray initialization errors, if they occur.
+        } catch (JSONException je) {
+            u.printf("Error: Unable to create JSONArray from gap rules input.");
+            return false;
+        }
+
+        // Iterate through a list of gap rules and add 'em to the array of rules.
+        Iterator<Object> itObj = gapRulesJsonArray.iterator();
+        while (itObj.hasNext()) {
+
+            // Assign the current element on the iterator to a variable.
+            JSONObject gapElement = (JSONObject) itObj.next();
+
+            // If the element is null or damaged, skip to the next one.
+            if (gapElement == null || gapElement.get("gapSize") == null) {
+                u.debugPrint("JsonToObjects() --> damaged or unusable " +
+                           "element detected, skipping...");
+                continue;
+            }
+
+            // If debug mode, print out the gap element info.
+            u.debugPrint(gapElement.toString());
+
+            // Since the element has been harvested out of the JSON, go
+            // ahead and create a new GapRule.
+            GapRule gr = new GapRule(gapElement.getInt("gapSize"));
+
+            // Safety check, make sure this actually created a gap element.
+            if (gr == null) {
+                u.debugPrint("JsonToObjects() --> unable to create " + 
+                             "GapRule, skipping...");
+                continue;
+            }
+
+            // As the rule was created successfully, go ahead and add it to
+            // an array holding all of the given gap rules.
+            gapRulesArray.add(gr);
+        }
+
+        // If the gap rules array currently has zero elements, go ahead and
+        // return back since there is no need to check for gaps.
+        if (gapRulesArray.isEmpty()) {
+            u.printf("No gaps rules were relevant between " +
+                   searchStartDate.toString() + " and " +
+                   searchEndDate.toString() + ".");
+            return true;
+        }
+ 
+        // Grab the JSONArray associated with the campsite info.
+        try {
+            campsitesJsonArray = PointedArray(jsonObj, campsitesPointer, true);
+
+        // Catch any JSONArray initialization errors, if they occur.
+        } catch (JSONException je) {
+            u.printf("Error: Unable to create JSONArray from campsites input.");
+            return false;
+        }
+
+        // Iterate through a list of campsites and add 'em to the array of rules.
+        Iterator<Object> itObjCamp = campsitesJsonArray.iterator();
+        while (itObjCamp.hasNext()) {
+
+            // Assign the current element on the iterator to a variable.
+            JSONObject campsiteElement = (JSONObject) itObjCamp.next();
+
+            // If the element is null or damaged, skip to the next one.
+            if (campsiteElement == null || campsiteElement.get("id") == null
+              || campsiteElement.get("name") == null) {
+                u.debugPrint("JsonToObjects() --> damaged or unusable " +
+                           "element detected, skipping...");
+                continue;
+            }
+
+            // If debug mode, print out the campsite element info.
+            u.debugPrint(campsiteElement.toString());
+
+            // If the campsite was filtered out, skip to the next one.
+            if (isFilteredOut(campsiteElement.getInt("id"))) {
+                u.debugPrint("JsonToObjects() --> campsite filtered out, " +
+                             "skipping...");
+                continue;
+            }
+
+            // Since the element has been harvested out of the JSON, go
+            // ahead and create a new Campsite.
+            Campsite cs = new Campsite(campsiteElement.getInt("id"),
+                                       campsiteElement.get("name").toString());
 
             // Safety check, make sure this was actually able to initialize
             // a campsite object.
@@ -313,102 +992,748 @@ public class JsonInputHandler {
             return true;
         }
  
-        // Grab the JSONArray associated with the campsite reservations.
+        // Having read in the search, gap rules and campsites, the header
+        // portion of the input is complete.
+        return true;
+    }
+
+    //! Look up the value a pointer leads to, leaving it as it is if it was
+    //! only lazily indexed.
+    /*
+     * @param     Object        JSONObject or JSONLazyObject to look in
+     * @param     JSONPointer   compiled pointer to the value
+     * @param     bool          whether a missing value is an error
+     *
+     * @returns   Object        the value found, or null if it is missing
+     *                          and not required
+     */
+    Object PointedValue(Object doc, JSONPointer pointer, boolean required)
+      throws JSONException {
+
+        // Follow the pointer; if any step of the way is missing, then the
+        // value is too.
+        Object value = null;
         try {
-            reservationsJsonArray = jsonObj.getJSONArray("reservations");
+            value = pointer.queryFrom(doc);
+        } catch (JSONPointerException pe) {
+            if (required) {
+                throw pe;
+            }
+        }
 
-        // Catch any JSONArray initialization errors, if they occur.
+        // Sanity check, make sure a required value was actually present.
+        if (value == null && required) {
+            throw new JSONException("JSONPointer " + pointer + " not found.");
+        }
+
+        return value;
+    }
+
+    //! Look up the JSONObject a pointer leads to, decoding it in full if
+    //! it was only lazily indexed.
+    /*
+     * @param     Object        JSONObject or JSONLazyObject to look in
+     * @param     JSONPointer   compiled pointer to the object
+     *
+     * @returns   JSONObject    the object found
+     */
+    JSONObject PointedObject(Object doc, JSONPointer pointer)
+      throws JSONException {
+        Object value = PointedValue(doc, pointer, true);
+        if (value instanceof JSONLazyObject) {
+            return ((JSONLazyObject) value).toJSONObject();
+        }
+        if (value instanceof JSONObject) {
+            return (JSONObject) value;
+        }
+        throw new JSONException("JSONPointer " + pointer +
+                                " is not a JSONObject.");
+    }
+
+    //! Look up the JSONArray a pointer leads to, decoding it in full if
+    //! it was only lazily indexed.
+    /*
+     * @param     Object        JSONObject or JSONLazyObject to look in
+     * @param     JSONPointer   compiled pointer to the array
+     * @param     bool          whether a missing array is an error
+     *
+     * @returns   JSONArray     the array found, or null if it is missing and
+     *                          not required
+     */
+    JSONArray PointedArray(Object doc, JSONPointer pointer, boolean required)
+      throws JSONException {
+        Object value = PointedValue(doc, pointer, required);
+        if (value instanceof JSONLazyArray) {
+            return ((JSONLazyArray) value).toJSONArray();
+        }
+        if (value == null || value instanceof JSONArray) {
+            return (JSONArray) value;
+        }
+        throw new JSONException("JSONPointer " + pointer +
+                                " is not a JSONArray.");
+    }
+
+    //! Convert a single JSON reservation element into a Reservation.
+    /*
+     * @param     JSONObject    reservation element holding the campsiteId,
+     *                          startDate and endDate
+     *
+     * @returns   bool          false if the reservation refers to a campsite
+     *                          that does not exist, true otherwise
+     */
+    boolean ReservationToObject(JSONObject reservationElement) {
+
+        // Variable declaration
+        LocalDate  reservationStartDate  = null;
+        LocalDate  reservationEndDate    = null;
+
+        // If the element is null or damaged, skip to the next one.
+        if (reservationElement == null
+          || reservationElement.opt("campsiteId") == null
+          || reservationElement.opt("startDate") == null
+          || reservationElement.opt("endDate") == null) {
+            u.debugPrint("JsonToObjects() --> damaged or unusable " +
+                       "element detected, skipping...");
+            return true;
+        }
+
+        // If debug mode, print out the gap element info.
+        u.debugPrint(reservationElement.toString());
+
+        // Cast the reservation element start / end date strings to
+        // actually java Date objects; this is done for the purpose
+        // of easily comparing them later on.
+        reservationStartDate
+          = u.stringToLocalDate("" + reservationElement.get("startDate"));
+        reservationEndDate
+          = u.stringToLocalDate("" + reservationElement.get("endDate"));
+
+        // Extract the reservation campsiteId so that it can be checked
+        // against all current Campsites to ensure this is a valid
+        // reservation.
+        int reservationCampsiteId
+          = reservationElement.getInt("campsiteId");
+
+        // Since the element has been harvested out of the JSON, go ahead
+        // and add it as a new Reservation.
+        return AddReservation(reservationCampsiteId,
+                              reservationStartDate,
+                              reservationEndDate);
+    }
+
+    //! Check whether a campsite was left out by the campsite filter.
+    /*
+     * @param     int     id of the campsite
+     *
+     * @returns   bool    true if a filter is set and does not hold the id
+     */
+    boolean isFilteredOut(int campsiteId) {
+        return campsiteFilter != null && !campsiteFilter.contains(campsiteId);
+    }
+
+    //! Add a reservation at the campsite with the given id.
+    /*
+     * @param     int          id of the reserved campsite
+     * @param     LocalDate    first day of the reservation
+     * @param     LocalDate    last day of the reservation
+     *
+     * @returns   bool         false if the campsite does not exist, true
+     *                         otherwise
+     */
+    boolean AddReservation(int campsiteId, LocalDate startDate,
+                           LocalDate endDate) {
+
+        // Reservations at campsites that were filtered out are skipped.
+        if (isFilteredOut(campsiteId)) {
+            return true;
+        }
+
+        // Using the reservation's campsiteId, check to see if a valid
+        // campsite for this reservation actually exists.
+        Campsite cs = CampsiteById(campsiteId);
+
+        // Sanity check, make sure the campsite is actually valid and
+        // not null.
+        if (cs == null) {
+            u.printf("Error: The following invalid campsite id was " + 
+                   "detected while parsing reservations... " +
+                   campsiteId);
+            return false;
+        }
+ 
+        // If a memory budget was set, only keep the reservation as a packed
+        // key, which is written out to disk along with the others once the
+        // budget is used up. Reservations added on top of a cached dataset
+        // are few, and are simply patched into its index instead.
+        if (reservationSpiller != null && cachedIndex == null) {
+            try {
+                reservationSpiller.add(
+                  ReservationIndex.pack(campsiteId, startDate, endDate));
+            } catch (IllegalArgumentException e) {
+                u.printf("Error: " + e.getMessage());
+                return false;
+            } catch (IOException e) {
+                u.printf("Error: Unable to write reservations out to disk.");
+                u.debugPrint(e.getMessage());
+                return false;
+            }
+            return true;
+        }
+
+        // Create a new Reservation at the given campsite.
+        Reservation rs = new Reservation(cs, startDate, endDate);
+
+        // Safety check, make sure initialiazed properly.
+        if (rs == null) {
+            u.debugPrint("JsonToObjects() --> unable to initialize " +
+                         "Reservation object correctly, skipping...");
+            return true;
+        }
+
+        // As the reservation was created successfully, go ahead and
+        // add it to an array holding all of the given reservations.
+        reservations.add(rs);
+        return true;
+    }
+
+    //! Apply a delta, such as the one a property management system writes
+    //! out every minute, on top of the dataset read in so far. Each line of
+    //! the delta is a JSON object holding a single operation:
+    //!
+    //!   {"op":"addReservation","campsiteId":1,"startDate":...,"endDate":...}
+    //!   {"op":"removeReservation","campsiteId":1,"startDate":...,"endDate":...}
+    //!   {"op":"addCampsite","id":10,"name":"Lakeside Yurt"}
+    /*
+     * @param     Reader    reader of the delta, one operation per line
+     *
+     * @returns   bool      false if the delta could not be read or applied,
+     *                      true otherwise
+     */
+    public boolean ApplyDelta(Reader reader) {
+
+        // Input validation.
+        if (reader == null || searchObj == null) {
+            u.printf("ApplyDelta() --> invalid input");
+            return false;
+        }
+
+        // Variables to hold the current line and its position in the delta.
+        BufferedReader lines = (reader instanceof BufferedReader)
+                             ? (BufferedReader) reader
+                             : new BufferedReader(reader);
+        String line    = null;
+        long lineCount = 0;
+
+        // Nothing has been removed by this delta yet.
+        deltaBase = null;
+        deltaNetChanges.clear();
+
+        // Apply the operations one line at a time, in order.
+        try {
+            while ((line = lines.readLine()) != null) {
+
+                // Keep track of the line number for the sake of errors.
+                lineCount++;
+
+                // Skip any blank lines, such as a trailing newline.
+                if (line.trim().length() < 1) {
+                    continue;
+                }
+
+                // Convert the line into an operation and apply it.
+                JSONTokener lineTokener = new JSONBufferedTokener(line);
+                lineTokener.setStringPool(stringPool);
+                if (DeltaToObjects(new JSONObject(lineTokener)) == false) {
+                    u.printf("Error: Unable to apply line " + lineCount +
+                             " of the delta.");
+                    return false;
+                }
+                deltaChanges++;
+            }
+
+        // Catch any errors caused by reading from the input stream.
+        } catch (IOException ioe) {
+            u.printf("Error: Unable to read lines from the delta.");
+            return false;
+
+        // Catch any malformed lines, if they occur.
         } catch (JSONException je) {
-            u.printf("Error: Unable to create JSONArray from reservations input.");
+            u.printf("Error: Malformed operation on line " + lineCount +
+                     " of the delta.");
             return false;
+
+        // Let go of the index the removals were checked against, which is
+        // rebuilt with the changes of the delta once it is needed again.
+        } finally {
+            deltaBase = null;
+            deltaNetChanges.clear();
         }
 
-        // Iterate through a list of campsites and add 'em to the array of
-        // reservations.
-        Iterator<Object> itObjReserv = reservationsJsonArray.iterator();
-        while (itObjReserv.hasNext()) {
+        // If the search was handled correctly, return true.
+        return true;
+    }
 
-            // Assign the current element on the iterator to a variable.
-            JSONObject reservationElement = (JSONObject) itObjReserv.next();
+    //! Apply a single operation of a delta.
+    /*
+     * @param     JSONObject    operation, holding an "op" along with the
+     *                          fields of the reservation or campsite
+     *
+     * @returns   bool          false if the operation is unknown or refers
+     *                          to a campsite that does not exist
+     */
+    boolean DeltaToObjects(JSONObject operation) throws JSONException {
 
-            // If the element is null or damaged, skip to the next one.
-            if (reservationElement == null
-              || reservationElement.get("campsiteId") == null
-              || reservationElement.get("startDate") == null
-              || reservationElement.get("endDate") == null) {
-                u.debugPrint("JsonToObjects() --> damaged or unusable " +
-                           "element detected, skipping...");
-                continue;
+        // Grab the kind of operation.
+        String op = operation.getString("op");
+
+        // Reservations are added as they would be from the full export,
+        // and noted down so that later removals in the delta can find them.
+        if (op.equals("addReservation")) {
+            if (ReservationToObject(operation) == false) {
+                return false;
             }
+            if (deltaBase != null
+              && operation.opt("campsiteId") != null
+              && isFilteredOut(operation.getInt("campsiteId")) == false) {
+                LocalDate startDate
+                  = u.stringToLocalDate("" + operation.opt("startDate"));
+                LocalDate endDate
+                  = u.stringToLocalDate("" + operation.opt("endDate"));
+                try {
+                    if (startDate != null && endDate != null) {
+                        deltaNetChanges.merge(ReservationIndex.pack(
+                          operation.getInt("campsiteId"), startDate, endDate),
+                          1, Integer::sum);
+                    }
+                } catch (IllegalArgumentException e) {
+                    u.debugPrint("DeltaToObjects() --> " + e.getMessage());
+                }
+            }
+            return true;
+        }
 
-            // If debug mode, print out the gap element info.
-            u.debugPrint(reservationElement.toString());
-
-            // Cast the reservation element start / end date strings to
-            // actually java Date objects; this is done for the purpose
-            // of easily comparing them later on.
-            reservationStartDate
-              = u.stringToLocalDate("" + reservationElement.get("startDate"));
-            reservationEndDate
-              = u.stringToLocalDate("" + reservationElement.get("endDate"));
-
-            // Extract the reservation campsiteId so that it can be checked
-            // against all current Campsites to ensure this is a valid
-            // reservation.
-            int reservationCampsiteId
-              = (int) reservationElement.get("campsiteId");
-
-            // Using the reservation's campsiteId, check to see if a valid
-            // campsite for this reservation actually exists.
-            Campsite cs = null;
-            for (int i = 0; i < campsites.size(); i++) {
-
-                // Grab the campsite at that index.
-                cs = campsites.get(i);
-
-                // Compare the id of the Campsite with the campsiteId of the
-                // Reservation object. If this matches, then break.
-                if (cs.getId() == reservationCampsiteId) {
-                    break;
+        // Reservations are removed by their campsite and dates, but only if
+        // they are present at this point in the delta; they are then taken
+        // out of the index the next time it is built.
+        if (op.equals("removeReservation")) {
+            int campsiteId = operation.getInt("campsiteId");
+            if (isFilteredOut(campsiteId)) {
+                return true;
+            }
+            LocalDate startDate
+              = u.stringToLocalDate(operation.getString("startDate"));
+            LocalDate endDate
+              = u.stringToLocalDate(operation.getString("endDate"));
+            if (startDate == null || endDate == null) {
+                return false;
+            }
+            long key = 0;
+            try {
+                key = ReservationIndex.pack(campsiteId, startDate, endDate);
+            } catch (IllegalArgumentException e) {
+                u.printf("Error: " + e.getMessage());
+                return false;
+            }
+
+            // Build the index once, on the first removal of the delta, so
+            // that it holds every change made before it.
+            if (deltaBase == null) {
+                deltaBase = getReservationIndex();
+                deltaNetChanges.clear();
+                if (deltaBase == null) {
+                    u.printf("Error: Unable to index the reservations to " +
+                             "remove from.");
+                    return false;
                 }
             }
 
-            // Sanity check, make sure the campsite is actually valid and
-            // not null.
-            if (cs == null) {
-                u.printf("Error: The following invalid campsite id was " + 
-                       "detected while parsing reservations... " +
-                       cs.getId());
+            // A reservation that is not present is left alone, rather than
+            // cancelling out one added later on.
+            if (deltaBase.count(key)
+                + deltaNetChanges.getOrDefault(key, 0) <= 0) {
+                u.printf("Warning: The reservation at campsite " +
+                         campsiteId + " from " + startDate + " to " +
+                         endDate + " removed by a delta did not exist.");
+                return true;
+            }
+            removedReservations.merge(key, 1, Integer::sum);
+            deltaNetChanges.merge(key, -1, Integer::sum);
+            return true;
+        }
+
+        // Campsites are added unless they already exist, in which case a
+        // different name means the delta disagrees with the dataset.
+        if (op.equals("addCampsite")) {
+            int id      = operation.getInt("id");
+            String name = operation.getString("name");
+            if (isFilteredOut(id)) {
+                return true;
+            }
+            Campsite known = CampsiteById(id);
+            if (known == null) {
+                campsites.add(new Campsite(id, name));
+            } else if (known.getName().equals(name) == false) {
+                u.printf("Error: Conflicting campsite id " + id +
+                         " refers to both `" + known.getName() + "` and `" +
+                         name + "`.");
                 return false;
             }
- 
-            // Since the element has been harvested out of the JSON, go
-            // ahead and create a new Reservation.
-            Reservation rs = new Reservation(cs,
-                                             reservationStartDate,
-                                             reservationEndDate);
-
-            // Safety check, make sure initialiazed properly.
-            if (rs == null) {
-                u.debugPrint("JsonToObjects() --> unable to initialize " +
-                             "Reservation object correctly, skipping...");
-                continue;
+            return true;
+        }
+
+        // Otherwise the operation is unknown.
+        u.printf("Error: Unknown delta operation `" + op + "`.");
+        return false;
+    }
+
+    //! Stream reservations out of comma delimited text, one row at a time.
+    /*
+     * @param     Reader    text with a campsiteId,startDate,endDate header
+     *                      row, followed by one reservation per row
+     *
+     * @returns   bool      whether or not the input was valid
+     */
+    public boolean CsvToObjects(Reader reader) {
+
+        // Input validation.
+        if (reader == null) {
+            u.printf("CsvToObjects() --> invalid input");
+            return false;
+        }
+
+        // This is one less reservation feed that still needs to be read.
+        reservationFeeds--;
+
+        // If either the gap rules or the campsites turned out to be empty,
+        // then there is no need to read any of the reservation rows.
+        if (gapRulesArray.isEmpty() || campsites.isEmpty()) {
+            return true;
+        }
+
+        // Variables to hold the tokenizer and a single row of values; the
+        // row list is reused so that nothing is built per row.
+        JSONTokener x      = new JSONTokener(reader);
+        List<String> row   = new ArrayList<String>();
+        long rowCount      = 1;
+
+        // Column positions of the reservation fields in each row.
+        int campsiteIdColumn = -1;
+        int startDateColumn  = -1;
+        int endDateColumn    = -1;
+
+        try {
+
+            // Read in the header row, if any.
+            if (CDL.rowToList(x, row) == false) {
+                u.printf("Error: Empty CSV reservations input.");
+                return false;
+            }
+
+            // Map the header columns to the reservation fields.
+            for (int i = 0; i < row.size(); i++) {
+                String column = row.get(i).trim();
+                if (column.equals("campsiteId")) {
+                    campsiteIdColumn = i;
+                } else if (column.equals("startDate")) {
+                    startDateColumn = i;
+                } else if (column.equals("endDate")) {
+                    endDateColumn = i;
+                }
             }
 
-            // As the reservation was created successfully, go ahead and
-            // add it to an array holding all of the given reservations.
-            reservations.add(rs);
+            // Sanity check, make sure all of the needed columns are present.
+            if (campsiteIdColumn < 0 || startDateColumn < 0
+              || endDateColumn < 0) {
+                u.printf("Error: CSV header must contain the campsiteId, " +
+                         "startDate and endDate columns.");
+                return false;
+            }
+
+            // Read the reservations one row at a time.
+            while (CDL.rowToList(x, row)) {
+
+                // Keep track of the row number for the sake of errors.
+                rowCount++;
+
+                // If the row is too short, skip to the next one.
+                if (row.size() <= campsiteIdColumn
+                  || row.size() <= startDateColumn
+                  || row.size() <= endDateColumn) {
+                    u.debugPrint("CsvToObjects() --> damaged or unusable " +
+                                 "row detected, skipping...");
+                    continue;
+                }
+
+                // Convert the row values into a campsite id and dates.
+                int campsiteId
+                  = Integer.parseInt(row.get(campsiteIdColumn).trim());
+                LocalDate startDate
+                  = u.stringToLocalDate(row.get(startDateColumn).trim());
+                LocalDate endDate
+                  = u.stringToLocalDate(row.get(endDateColumn).trim());
+
+                // If either of the dates could not be read, skip this row.
+                if (startDate == null || endDate == null) {
+                    u.debugPrint("CsvToObjects() --> damaged or unusable " +
+                                 "row detected, skipping...");
+                    continue;
+                }
+
+                // Add the row as a new reservation.
+                if (AddReservation(campsiteId, startDate, endDate) == false) {
+                    return false;
+                }
+            }
+
+        // Catch any malformed CSV rows or numbers, if they occur.
+        } catch (JSONException | NumberFormatException e) {
+            u.printf("Error: Malformed reservation on row " + rowCount +
+                     " of the CSV input.");
+            return false;
         }
 
-        // If the reservations array currently has zero elements, go ahead and
-        // return back since there is no need to check for gaps.
-        if (reservations.isEmpty()) {
-            u.printf("Note: No campsite reservations were detected. Ergo, " +
-                   "a search returns no results.");
+        // If this was the last feed and still no reservations are present,
+        // tell the end-user about it.
+        NoteIfNoReservations();
+
+        // If the rows were read correctly, return true.
+        return true;
+    }
+
+    //! Stream the search, gap rules, campsites and reservations out of an
+    //! XML document, one record at a time.
+    /*
+     * @param     Reader    XML holding <search>, <gapRule>, <campsite> and
+     *                      <reservation> records, with their fields given
+     *                      either as attributes or as child elements; any
+     *                      reservations that come before the gap rules or
+     *                      campsites are held until the end of the input
+     *
+     * @returns   bool      whether or not the input was valid
+     */
+    public boolean XmlToObjects(Reader reader) {
+
+        // Input validation.
+        if (reader == null) {
+            u.printf("XmlToObjects() --> invalid input");
+            return false;
+        }
+
+        // Variables to hold the record reader, which hands back each record
+        // as soon as it has been read, and the position in the input.
+        XMLRecordReader records = new XMLRecordReader(new XMLTokener(reader));
+        long recordCount        = 0;
+
+        // Reservations read in before any gap rules or campsites, as
+        // {campsiteId, startDay, endDay}, which are only added once the
+        // whole input has been read.
+        List<int[]> heldReservations = new ArrayList<int[]>();
+
+        try {
+
+            // Read the records one at a time, sending each of them straight
+            // into the Search object and element arrays.
+            while (records.next()) {
+
+                // Keep track of the record number for the sake of errors.
+                recordCount++;
+
+                // Convert the record according to its tag name.
+                String name = records.getName();
+                if (name.equals("search")) {
+                    searchObj = XmlRecordToSearch(records);
+                    if (searchObj == null) {
+                        return false;
+                    }
+                } else if (name.equals("gapRule")) {
+                    XmlRecordToGapRule(records);
+                } else if (name.equals("campsite")) {
+                    XmlRecordToCampsite(records);
+                } else if (name.equals("reservation")) {
+                    if (XmlRecordToReservation(records,
+                                               heldReservations) == false) {
+                        return false;
+                    }
+                } else {
+                    u.debugPrint("XmlToObjects() --> unknown record <" +
+                                 name + ">, skipping...");
+                }
+            }
+
+        // Catch any malformed XML or numbers, if they occur.
+        } catch (JSONException | NumberFormatException e) {
+            u.printf("Error: Malformed XML input at record " +
+                     (recordCount + 1) + ".");
+            u.debugPrint(e.getMessage());
+            return false;
+        }
+
+        // Sanity check, make sure the input actually held a search.
+        if (searchObj == null) {
+            u.printf("Error: Unable to find a <search> record in the XML " +
+                     "input.");
+            return false;
+        }
+
+        // Add any reservations that came before the gap rules or campsites,
+        // now that every campsite has been read in.
+        if (gapRulesArray.isEmpty() == false && campsites.isEmpty() == false) {
+            for (int i = 0; i < heldReservations.size(); i++) {
+                int[] held = heldReservations.get(i);
+                if (AddReservation(held[0], LocalDate.ofEpochDay(held[1]),
+                                   LocalDate.ofEpochDay(held[2])) == false) {
+                    return false;
+                }
+            }
+        }
+
+        // If the gap rules or campsites turned out to be empty, tell the
+        // end-user since there is no need to check for gaps.
+        if (gapRulesArray.isEmpty()) {
+            u.printf("No gaps rules were relevant between " +
+                   searchObj.getStartDate().toString() + " and " +
+                   searchObj.getEndDate().toString() + ".");
+            return true;
+        }
+        if (campsites.isEmpty()) {
+            u.printf("Note: No campsites were detected. Ergo, a search " +
+                   "returns no results.");
             return true;
         }
 
-        // If the search was handled correctly, return true.
+        // If the reservations array currently has zero elements, tell the
+        // end-user since there is no need to check for gaps.
+        NoteIfNoReservations();
+
+        // If the records were read correctly, return true.
         return true;
     }
+
+    //! Convert the current XML record into a Search.
+    /*
+     * @param     XMLRecordReader    reader positioned at a <search> record
+     *
+     * @returns   Search             the search, or null if its dates could
+     *                               not be read
+     */
+    Search XmlRecordToSearch(XMLRecordReader record) {
+
+        // Extract the start and end date.
+        LocalDate startDate = u.stringToLocalDate("" + record.get("startDate"));
+        LocalDate endDate   = u.stringToLocalDate("" + record.get("endDate"));
+
+        // Sanity check, make sure the the parsing didn't just throw back
+        // a null value.
+        if (startDate == null || endDate == null) {
+            u.printf("Warning: Improperly parsed Date objects for the " +
+                   "`search` action start / end dates.");
+            return null;
+        }
+
+        // If debug mode, tell the developer what the search dates are.
+        u.debugPrint("Search action starting date is: " + startDate.toString());
+        u.debugPrint("Search action ending date is: " + endDate.toString());
+        return new Search(startDate, endDate);
+    }
+
+    //! Convert the current XML record into a GapRule.
+    /*
+     * @param     XMLRecordReader    reader positioned at a <gapRule> record
+     *
+     * @returns   none
+     */
+    void XmlRecordToGapRule(XMLRecordReader record) {
+
+        // If the record is damaged, skip it.
+        String gapSize = record.get("gapSize");
+        if (gapSize == null) {
+            u.debugPrint("XmlToObjects() --> damaged or unusable " +
+                         "record detected, skipping...");
+            return;
+        }
+
+        // Add it to the array holding all of the given gap rules.
+        gapRulesArray.add(new GapRule(Integer.parseInt(gapSize.trim())));
+    }
+
+    //! Convert the current XML record into a Campsite.
+    /*
+     * @param     XMLRecordReader    reader positioned at a <campsite> record
+     *
+     * @returns   none
+     */
+    void XmlRecordToCampsite(XMLRecordReader record) {
+
+        // If the record is damaged, skip it.
+        String id   = record.get("id");
+        String name = record.get("name");
+        if (id == null || name == null) {
+            u.debugPrint("XmlToObjects() --> damaged or unusable " +
+                         "record detected, skipping...");
+            return;
+        }
+
+        // If the campsite was filtered out, skip it.
+        int campsiteId = Integer.parseInt(id.trim());
+        if (isFilteredOut(campsiteId)) {
+            u.debugPrint("XmlToObjects() --> campsite filtered out, " +
+                         "skipping...");
+            return;
+        }
+
+        // Add it to the array holding all of the given campsites.
+        campsites.add(new Campsite(campsiteId, name));
+    }
+
+    //! Convert the current XML record into a Reservation.
+    /*
+     * @param     XMLRecordReader    reader positioned at a <reservation>
+     *                               record
+     * @param     List<int[]>        reservations held until the gap rules
+     *                               and campsites have been read in
+     *
+     * @returns   bool               false if the reservation refers to a
+     *                               campsite that does not exist, true
+     *                               otherwise
+     */
+    boolean XmlRecordToReservation(XMLRecordReader record,
+                                   List<int[]> heldReservations) {
+
+        // If the record is damaged, skip it.
+        String campsiteId   = record.get("campsiteId");
+        LocalDate startDate = u.stringToLocalDate("" + record.get("startDate"));
+        LocalDate endDate   = u.stringToLocalDate("" + record.get("endDate"));
+        if (campsiteId == null || startDate == null || endDate == null) {
+            u.debugPrint("XmlToObjects() --> damaged or unusable " +
+                         "record detected, skipping...");
+            return true;
+        }
+
+        // If the gap rules or campsites have yet to be read in, hold the
+        // reservation until they have, since its campsite may still follow.
+        if (gapRulesArray.isEmpty() || campsites.isEmpty()) {
+            heldReservations.add(new int[] {Integer.parseInt(campsiteId.trim()),
+                                            (int) startDate.toEpochDay(),
+                                            (int) endDate.toEpochDay()});
+            return true;
+        }
+
+        // Add it as a new reservation.
+        return AddReservation(Integer.parseInt(campsiteId.trim()),
+                              startDate, endDate);
+    }
+
+    //! Print a short note if no reservations were read in at all, unless
+    //! further reservation feeds are still expected.
+    /*
+     * @returns   none
+     */
+    void NoteIfNoReservations() {
+        if (reservations.isEmpty() && mergedReservations == 0
+          && (reservationSpiller == null || reservationSpiller.size() == 0)
+          && reservationFeeds <= 0) {
+            u.printf("Note: No campsite reservations were detected. Ergo, " +
+                   "a search returns no results.");
+        }
+    }
 }
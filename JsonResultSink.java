@@ -0,0 +1,229 @@
+/*
+ * @file           JsonResultSink.java
+ *
+ * @class          JsonResultSink
+ *
+ * @author         Robert Bisewski <contact@ibiscybernetics.com>
+ *
+ * @description    Writes the results of an action out as a single JSON
+ *                 document per response, followed by a newline, such as:
+ *
+ *                 {"search":{"startDate":"2016-06-07",
+ *                  "endDate":"2016-06-10"},
+ *                  "campsites":[{"id":5,"name":"Daniel Boone Bungalow"}]}
+ *
+ *                 The availability of each campsite is written out in the
+ *                 same way, with a list of runs for each stay length, each
+ *                 run being the day it starts on, counted from startDate,
+ *                 followed by the number of days in a row:
+ *
+ *                 {"availability":{"startDate":"2016-06-07",
+ *                  "endDate":"2016-06-10","stayLengths":[2,3]},
+ *                  "campsites":[{"id":5,"name":"Daniel Boone Bungalow",
+ *                  "runs":[[0,2,3,1],[]]}]}
+ *
+ *                 Likewise for the gaps, each with the size of the gap
+ *                 rule it violates:
+ *
+ *                 {"search":{"startDate":"2016-06-07",
+ *                  "endDate":"2016-06-10"},
+ *                  "gaps":[{"id":5,"name":"Daniel Boone Bungalow",
+ *                  "startDate":"2016-06-05","length":2,"gapRule":2}]}
+ */
+
+// Imports
+import com.campspot.*;
+import java.io.*;
+import java.time.LocalDate;
+import org.json.*;
+
+public class JsonResultSink extends ResultSink {
+
+    /**
+     * Class-wide variables
+     */
+
+    // Writer of the JSON document for the current response.
+    JSONWriter json = null;
+
+    /**
+     * Class-wide functions
+     */
+
+    //! Constructor for the JsonResultSink
+    /*
+     * @param      Writer            writer to send the results to
+     *
+     * @returns    JsonResultSink    ref to newly created object
+     */
+    public JsonResultSink(Writer w) {
+        super(w);
+    }
+
+    //! Begin the response to a search, opening its list of campsites.
+    /*
+     * @param      Search    the search being responded to
+     *
+     * @returns    none
+     */
+    public void beginSearch(Search searchObj) throws IOException {
+        try {
+            json = new JSONWriter(out);
+            json.object()
+                .key("search").object()
+                  .key("startDate").value(searchObj.getStartDate().toString())
+                  .key("endDate").value(searchObj.getEndDate().toString())
+                .endObject()
+                .key("campsites").array();
+        } catch (JSONException je) {
+            throw new IOException(je.getMessage());
+        }
+    }
+
+    //! Add a campsite that is free of gaps to the response.
+    /*
+     * @param      Campsite    campsite that fits the search
+     *
+     * @returns    none
+     */
+    public void addCampsite(Campsite cs) throws IOException {
+        try {
+            json.object()
+                .key("id").value(cs.getId())
+                .key("name").value(cs.getName())
+                .endObject();
+        } catch (JSONException je) {
+            throw new IOException(je.getMessage());
+        }
+    }
+
+    //! End the response to a search, closing the document, and flush it.
+    /*
+     * @returns    none
+     */
+    public void endSearch() throws IOException {
+        try {
+            json.endArray().endObject();
+        } catch (JSONException je) {
+            throw new IOException(je.getMessage());
+        }
+        writeLine("");
+        flush();
+    }
+
+    //! Begin the response to an availability export, opening its list of
+    //! campsites.
+    /*
+     * @param      Search    the search whose dates the stays start within
+     * @param      int[]     lengths of the stays, in days
+     *
+     * @returns    none
+     */
+    public void beginAvailability(Search searchObj, int[] stayLengths)
+      throws IOException {
+        try {
+            json = new JSONWriter(out);
+            json.object()
+                .key("availability").object()
+                  .key("startDate").value(searchObj.getStartDate().toString())
+                  .key("endDate").value(searchObj.getEndDate().toString())
+                  .key("stayLengths").array();
+            for (int s = 0; s < stayLengths.length; s++) {
+                json.value(stayLengths[s]);
+            }
+            json.endArray()
+                .endObject()
+                .key("campsites").array();
+        } catch (JSONException je) {
+            throw new IOException(je.getMessage());
+        }
+    }
+
+    //! Add the availability of a campsite to the response.
+    /*
+     * @param      Campsite    the campsite
+     * @param      int[][]     for each stay length, the runs of days a stay
+     *                         could start on
+     *
+     * @returns    none
+     */
+    public void addAvailability(Campsite cs, int[][] runs) throws IOException {
+        try {
+            json.object()
+                .key("id").value(cs.getId())
+                .key("name").value(cs.getName())
+                .key("runs").array();
+            for (int s = 0; s < runs.length; s++) {
+                json.array();
+                for (int r = 0; r < runs[s].length; r++) {
+                    json.value(runs[s][r]);
+                }
+                json.endArray();
+            }
+            json.endArray().endObject();
+        } catch (JSONException je) {
+            throw new IOException(je.getMessage());
+        }
+    }
+
+    //! End the response to an availability export, closing the document,
+    //! and flush it.
+    /*
+     * @returns    none
+     */
+    public void endAvailability() throws IOException {
+        endSearch();
+    }
+
+    //! Begin the report of the gaps, opening its list of gaps.
+    /*
+     * @param      Search    the search whose dates the gaps lie within
+     *
+     * @returns    none
+     */
+    public void beginGaps(Search searchObj) throws IOException {
+        try {
+            json = new JSONWriter(out);
+            json.object()
+                .key("search").object()
+                  .key("startDate").value(searchObj.getStartDate().toString())
+                  .key("endDate").value(searchObj.getEndDate().toString())
+                .endObject()
+                .key("gaps").array();
+        } catch (JSONException je) {
+            throw new IOException(je.getMessage());
+        }
+    }
+
+    //! Add a gap to the report.
+    /*
+     * @param      Campsite     campsite the gap is at
+     * @param      LocalDate    first free day of the gap
+     * @param      int          number of free days
+     * @param      GapRule      gap rule it violates
+     *
+     * @returns    none
+     */
+    public void addGap(Campsite cs, LocalDate startDate, int length,
+                       GapRule gr) throws IOException {
+        try {
+            json.object()
+                .key("id").value(cs.getId())
+                .key("name").value(cs.getName())
+                .key("startDate").value(startDate.toString())
+                .key("length").value(length)
+                .key("gapRule").value(gr.getSize())
+                .endObject();
+        } catch (JSONException je) {
+            throw new IOException(je.getMessage());
+        }
+    }
+
+    //! End the report of the gaps, closing the document, and flush it.
+    /*
+     * @returns    none
+     */
+    public void endGaps() throws IOException {
+        endSearch();
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * @file           ResultSink.java
+ *
+ * @class          ResultSink
+ *
+ * @author         Robert Bisewski <contact@ibiscybernetics.com>
+ *
+ * @description    Receives the results of an action and writes them out in
+ *                 a given format, such as plain text for the end-user or
+ *                 JSON and CSV for other programs.
+ *
+ *                 Each sink writes to a buffered Writer rather than printing
+ *                 line by line, and only flushes it once the whole response
+ *                 has been written, so that large responses do not pay for
+ *                 a synchronized, auto-flushed println on every line.
+ *
+ *                 Results are handed to a sink as soon as they are found,
+ *                 and a full buffer is simply written on to stdout or the
+ *                 output file, so that even responses several GB in size
+ *                 never need to be held in memory.
+ *
+ * @usage          Create a sink for the requested format, then hand it the
+ *                 results of a search, like so:
+ *
+ *                 ResultSink sink
+ *                   = ResultSink.forFormat("json", ResultSink.stdout());
+ *
+ *                 sink.beginSearch(searchObj);
+ *                 sink.addCampsite(campsite);
+ *                 sink.endSearch();
+ *
+ *                 The availability of each campsite is handed to a sink in
+ *                 the same way, through beginAvailability(),
+ *                 addAvailability() and endAvailability(), as are the
+ *                 gaps through beginGaps(), addGap() and endGaps().
+ */
+
+// Imports
+import com.campspot.*;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+
+public abstract class ResultSink {
+
+    /**
+     * Class-wide variables
+     */
+
+    // Size of the buffer the results are written to before being flushed.
+    static final int outputBufferSize = 64 * 1024;
+
+    // Writer the results are written to.
+    protected Writer out = null;
+
+    /**
+     * Class-wide functions
+     */
+
+    //! Constructor for the ResultSink
+    /*
+     * @param      Writer        writer to send the results to
+     *
+     * @returns    ResultSink    ref to newly created object
+     */
+    public ResultSink(Writer w) {
+        out = w;
+    }
+
+    //! Create a sink for the given format.
+    /*
+     * @param      String        name of the format, e.g. "text" or "json"
+     * @param      Writer        writer to send the results to
+     *
+     * @returns    ResultSink    the new sink, or null if the format is
+     *                           unknown
+     */
+    public static ResultSink forFormat(String format, Writer w) {
+        if (format == null || w == null) {
+            return null;
+        }
+        if (format.equals("text")) {
+            return new TextResultSink(w);
+        }
+        if (format.equals("json")) {
+            return new JsonResultSink(w);
+        }
+        if (format.equals("csv")) {
+            return new CsvResultSink(w);
+        }
+        return null;
+    }
+
+    //! Open a buffered writer on stdout, which writes to the underlying
+    //! file descriptor directly rather than through System.out.
+    /*
+     * @returns    Writer    buffered UTF-8 writer of stdout
+     */
+    public static Writer stdout() {
+        return new BufferedWriter(new OutputStreamWriter(
+          new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8),
+          outputBufferSize);
+    }
+
+    //! Open a buffered writer on a file channel, replacing the contents of
+    //! the file if it already exists.
+    /*
+     * @param      Path      location of the output file
+     *
+     * @returns    Writer    buffered UTF-8 writer of the file
+     */
+    public static Writer open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+          StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING);
+        return new BufferedWriter(Channels.newWriter(channel,
+          StandardCharsets.UTF_8.newEncoder(), outputBufferSize),
+          outputBufferSize);
+    }
+
+    //! Begin the response to a search.
+    /*
+     * @param      Search    the search being responded to
+     *
+     * @returns    none
+     */
+    public abstract void beginSearch(Search searchObj) throws IOException;
+
+    //! Add a campsite that is free of gaps to the response.
+    /*
+     * @param      Campsite    campsite that fits the search
+     *
+     * @returns    none
+     */
+    public abstract void addCampsite(Campsite cs) throws IOException;
+
+    //! End the response to a search, and flush it out.
+    /*
+     * @returns    none
+     */
+    public abstract void endSearch() throws IOException;
+
+    //! Begin the response to an availability export.
+    /*
+     * @param      Search    the search whose dates the stays start within
+     * @param      int[]     lengths of the stays, in days
+     *
+     * @returns    none
+     */
+    public abstract void beginAvailability(Search searchObj, int[] stayLengths)
+      throws IOException;
+
+    //! Add the availability of a campsite to the response.
+    /*
+     * @param      Campsite    the campsite
+     * @param      int[][]     for each stay length, the days a stay could
+     *                         start on, as pairs of the first day, counted
+     *                         from the start of the search, and the number
+     *                         of days in a row
+     *
+     * @returns    none
+     */
+    public abstract void addAvailability(Campsite cs, int[][] runs)
+      throws IOException;
+
+    //! End the response to an availability export, and flush it out.
+    /*
+     * @returns    none
+     */
+    public abstract void endAvailability() throws IOException;
+
+    //! Begin the report of the gaps present between the dates of a search.
+    /*
+     * @param      Search    the search whose dates the gaps lie within
+     *
+     * @returns    none
+     */
+    public abstract void beginGaps(Search searchObj) throws IOException;
+
+    //! Add a gap to the report.
+    /*
+     * @param      Campsite     campsite the gap is at
+     * @param      LocalDate    first free day of the gap
+     * @param      int          number of free days
+     * @param      GapRule      gap rule it violates
+     *
+     * @returns    none
+     */
+    public abstract void addGap(Campsite cs, LocalDate startDate, int length,
+                                GapRule gr) throws IOException;
+
+    //! End the report of the gaps, and flush it out.
+    /*
+     * @returns    none
+     */
+    public abstract void endGaps() throws IOException;
+
+    //! Write out a single line.
+    /*
+     * @param      String    line to write, without its line separator
+     *
+     * @returns    none
+     */
+    protected void writeLine(String line) throws IOException {
+        out.write(line);
+        out.write(System.lineSeparator());
+    }
+
+    //! Flush everything written so far.
+    /*
+     * @returns    none
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    //! Flush and close the writer, such as that of an output file.
+    /*
+     * @returns    none
+     */
+    public void close() throws IOException {
+        out.close();
+    }
+}
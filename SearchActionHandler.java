@@ -28,11 +28,21 @@
  *                 sah.searchForGaps();
  *
  *                 Doing the above will search for any gaps that match the
- *                 rules, printing the results to stdout.
+ *                 rules, writing each campsite without gaps out through the
+ *                 ResultSink as soon as it is found; by default as plain
+ *                 text on stdout, unless another sink was given:
+ *
+ *                 sah.setResultSink(ResultSink.forFormat("json", writer));
+ *
+ *                 A search other than the one in the input may also be
+ *                 given, leaving the JsonInputHandler as it is:
+ *
+ *                 sah.searchForGaps(new Search(startDate, endDate));
  */
 
 // Imports
 import com.campspot.*;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.*;
 import org.json.*;
@@ -51,6 +61,11 @@ public class SearchActionHandler {
     // Holds the data extracted from JSON objects.
     JsonInputHandler jih = null;
 
+    // Receives the campsites found by the search, as plain text on stdout
+    // unless another sink is given; the default one is only opened once
+    // it is needed, since a service running many searches never uses it.
+    ResultSink sink = null;
+
     /**
      * Class-wide functions
      */
@@ -67,25 +82,95 @@ public class SearchActionHandler {
         u   = new Utils(dm);
     }
 
-    //! Determine which gaps are present at which campsites.
+    //! Set the sink the results of the search are written to.
+    /*
+     * @param      ResultSink    sink for the results, e.g. as JSON or CSV
+     *
+     * @returns    none
+     */
+    public void setResultSink(ResultSink s) {
+        sink = s;
+    }
+
+    //! Parse a search of the same form as the `search` object of the input,
+    //! such as one sent to a service that keeps the dataset in memory.
+    /*
+     * @param      String    JSON object holding a startDate and endDate
+     *
+     * @returns    Search    the search, or null if it is invalid
+     */
+    public Search parseSearch(String json) {
+        try {
+            JSONObject searchJson = new JSONObject(json);
+            LocalDate startDate
+              = u.stringToLocalDate("" + searchJson.get("startDate"));
+            LocalDate endDate
+              = u.stringToLocalDate("" + searchJson.get("endDate"));
+            if (startDate == null || endDate == null
+              || endDate.isBefore(startDate)) {
+                return null;
+            }
+            return new Search(startDate, endDate);
+
+        // Catch any malformed JSON, or dates that do not exist.
+        } catch (RuntimeException e) {
+            u.debugPrint("parseSearch() --> " + e.getMessage());
+            return null;
+        }
+    }
+
+    //! Determine which gaps are present at which campsites, for the
+    //! search given in the input.
     /*
      * @returns   bool    whether or not an error occurred while looking
      *                    for gaps in the reservations
      */
     public boolean searchForGaps() {
+        return searchForGaps((jih != null) ? jih.getSearchObject() : null);
+    }
+
+    //! Determine which gaps are present at which campsites, for a given
+    //! search rather than the one in the input, such as one sent to a
+    //! service that keeps the dataset in memory.
+    /*
+     * @param     Search  the search to respond to
+     *
+     * @returns   bool    whether or not an error occurred while looking
+     *                    for gaps in the reservations
+     */
+    public boolean searchForGaps(Search searchObj) {
 
         // Safety check, make sure the class-wide "JSONInputHandler jih"
         // variable is defined.
-        if (jih == null || jih.getSearchObject() == null) {
+        if (jih == null || searchObj == null) {
             u.printf("searchForGaps() --> invalid JSONInputHandler");
             return false;
         }
 
+        // Write the results out as plain text on stdout, if no other sink
+        // was given.
+        if (sink == null) {
+            sink = new TextResultSink(ResultSink.stdout());
+        }
+
         // Grab the data from the JSON input handler
-        Search searchObj               = jih.getSearchObject();
         List<GapRule> gapRulesArray    = jih.getGapRulesArray();
         List<Campsite> campsites       = jih.getCampsitesArray();
-        List<Reservation> reservations = jih.getReservationsArray();
+
+        // Grab the index of the reservations sorted by campsite, if all of
+        // them fit into one, so each campsite only looks at its own; only
+        // otherwise is the plain list of reservations needed.
+        ReservationIndex index         = jih.getReservationIndex();
+        List<Reservation> reservations = index != null
+                                       ? new ArrayList<Reservation>()
+                                       : jih.getReservationsArray();
+
+        // Reservations kept within a memory budget are only held in the
+        // index, so there is nothing to fall back on without it.
+        if (index == null && jih.isReservationIndexRequired()) {
+            u.printf("searchForGaps() --> unable to index the reservations");
+            return false;
+        }
 
         // Sanity check, make sure the Search objects and element array
         // exist and have elements.
@@ -99,9 +184,12 @@ public class SearchActionHandler {
         // detected at a given campsite.
         boolean wasGapDetected = false;
 
-        // Variable that will hold a list of campsites that *do not* have
-        // any gaps, as per the gap rules extracted earlier via JSON.
-        List<Integer> campsiteIdsWithoutGaps = new ArrayList<Integer>();
+        // Begin the response, so that each campsite that *does not* have
+        // any gaps, as per the gap rules extracted earlier via JSON, can be
+        // written out as soon as it is found rather than being collected.
+        if (beginResponse(searchObj) == false) {
+            return false;
+        }
 
         // For each campsite...
         for (int i = 0; i < campsites.size(); i++) {
@@ -128,8 +216,26 @@ public class SearchActionHandler {
             List<LocalDate> datesThatAreReservedAtGivenCampsite
               = new ArrayList<LocalDate>();
 
-            // For each reservation...
-            for (int j = 0; j < reservations.size(); j++) {
+            // If the reservations were indexed, add the days of only those
+            // reservations at this campsite, looking up where they start and
+            // end in the index just once.
+            int indexStart = (index != null) ? index.startOf(cs.getId()) : 0;
+            int indexEnd   = (index != null) ? index.endOf(cs.getId()) : 0;
+            for (int k = indexStart; k < indexEnd; k++) {
+
+                // Unpack the dates of the reservation, and add every day
+                // between them to the array of reserved days.
+                long key         = index.get(k);
+                LocalDate ending = ReservationIndex.endDateOf(key);
+                for (LocalDate date = ReservationIndex.startDateOf(key);
+                     date.isAfter(ending) == false;
+                     date = date.plusDays(1)) {
+                    datesThatAreReservedAtGivenCampsite.add(date);
+                }
+            }
+
+            // Otherwise, for each reservation...
+            for (int j = 0; index == null && j < reservations.size(); j++) {
 
                 // Grab the reservation at index j.
                 Reservation rs = reservations.get(j);
@@ -169,9 +275,10 @@ public class SearchActionHandler {
             // If the "reserved days" array is empty...
             if (datesThatAreReservedAtGivenCampsite.isEmpty()) {
 
-                // Add the id of the current campsite to the
-                // "campsiteIdsWithoutGaps" array.
-                campsiteIdsWithoutGaps.add(cs.getId());
+                // Write out the current campsite.
+                if (writeCampsite(cs) == false) {
+                    return false;
+                }
 
                 // Continue on to the next campsite.
                 continue;
@@ -385,65 +492,72 @@ public class SearchActionHandler {
             }
 
             // If none of the gap rules apply to the current "reserved days"
-            // array, go ahead and add it.
-            if (wasGapDetected == false) {
-                campsiteIdsWithoutGaps.add(cs.getId());
+            // array, go ahead and write it out.
+            if (wasGapDetected == false && writeCampsite(cs) == false) {
+                return false;
             }
         }
 
-        // If no campsites were found, print out a short message telling
-        // the end-user about it, and then return true.
-        if (campsiteIdsWithoutGaps.isEmpty()) {
-            u.printf("No campsites without gaps were present.");
-            return true;
+        // Finally, having exhaustively gone through the campsites, end the
+        // response. If none were written out, the sink lets the end-user
+        // know about it instead.
+        try {
+            sink.endSearch();
+
+        // Catch any errors while writing out the results.
+        } catch (IOException e) {
+            u.printf("Error: Unable to write out the results of the search.");
+            u.debugPrint(e.getMessage());
+            return false;
         }
 
-        // Finally, having exhaustively determined which campsites do not
-        // currently have gaps, print their names to stdout.
-        u.printf("------------------------------------------------------------");
-        u.printf("The requested campsite reservation between...\n");
-        u.printf("" + searchObj.getStartDate().toString() +
-                 " and " + searchObj.getEndDate().toString());
-        u.printf("\n... can be safely placed without creating new gaps at:");
-        u.printf("------------------------------------------------------------");
-        for (int i = 0; i < campsiteIdsWithoutGaps.size(); i++) {
-
-            // Grab the campsite id from the current index.
-            int curId = campsiteIdsWithoutGaps.get(i);
-
-            // Cycle through the campsites array until this gets an id that
-            // matches, and then grab the name.
-            for (int j = 0; j < campsites.size(); j++) {
-               
-                // Safety check, make sure this element is actually not null.
-                if (campsites.get(j) == null) {
-                    u.debugPrint("searchForGaps() --> null Campsite element " +
-                                 "detected, skipping...");
-                    continue;
-                }
- 
-                // Grab the given campsite info.
-                int givenCampsiteIdAtIndex = campsites.get(j).getId();
-                String givenCampsiteNameAtIndex = campsites.get(j).getName();
-
-                // Further sanity check, make sure the name is something valid.
-                if (givenCampsiteNameAtIndex.length() < 1) {
-                    u.debugPrint("searchForGaps() --> null Campsite name " +
-                                 "detected, skipping...");
-                    continue;
-                }
+        // Since everything executed correctly, return true.
+        return true;
+    }
 
-                // If the id matches and the name is something valid, go ahead
-                // and print it out so that the end-user can determine which
-                // campsite currently do not have gaps.
-                if (curId == givenCampsiteIdAtIndex) {
-                    u.printf("" + campsites.get(j).getName());
-                }
-            }
+    //! Begin the response to a search.
+    /*
+     * @param      Search    the search being responded to
+     *
+     * @returns    bool      whether or not the response could be begun
+     */
+    boolean beginResponse(Search searchObj) {
+        try {
+            sink.beginSearch(searchObj);
+        } catch (IOException e) {
+            u.printf("Error: Unable to write out the results of the search.");
+            u.debugPrint(e.getMessage());
+            return false;
         }
-        u.printf("------------------------------------------------------------");
+        return true;
+    }
 
-        // Since everything executed correctly, return true.
+    //! Write out a campsite that does not have any gaps, as soon as it is
+    //! found.
+    /*
+     * @param      Campsite    campsite that fits the search
+     *
+     * @returns    bool        whether or not the campsite could be written
+     */
+    boolean writeCampsite(Campsite cs) {
+
+        // Sanity check, make sure the name is something valid.
+        if (cs.getName().length() < 1) {
+            u.debugPrint("searchForGaps() --> null Campsite name " +
+                         "detected, skipping...");
+            return true;
+        }
+
+        // Since the name is something valid, go ahead and write it out so
+        // that the end-user can determine which campsites currently do not
+        // have gaps.
+        try {
+            sink.addCampsite(cs);
+        } catch (IOException e) {
+            u.printf("Error: Unable to write out the results of the search.");
+            u.debugPrint(e.getMessage());
+            return false;
+        }
         return true;
     }
 }
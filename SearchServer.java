@@ -0,0 +1,326 @@
+/*
+ * @file           SearchServer.java
+ *
+ * @class          SearchServer
+ *
+ * @author         Robert Bisewski <contact@ibiscybernetics.com>
+ *
+ * @description    Keeps a dataset in memory and answers searches sent to it
+ *                 over HTTP, so that each search only pays for the search
+ *                 itself rather than for starting up a JVM and parsing the
+ *                 whole dataset all over again.
+ *
+ *                 Each search is POSTed to /search, with a body of the same
+ *                 form as the `search` object of the input:
+ *
+ *                 {"startDate":"2016-06-07","endDate":"2016-06-10"}
+ *
+ *                 The campsites without gaps are sent back in the format
+ *                 the server was started with, JSON by default.
+ *
+ *                 Each search runs on a thread of its own, a virtual thread
+ *                 where the JDK has them (Java 21 onwards), so that many
+ *                 thousands of searches may be in progress at once without
+ *                 a thread pool of that size. On older JDKs they run on a
+ *                 fixed pool of platform threads instead, and wait in line
+ *                 for one of them to come free.
+ *
+ *                 The dataset is held as a snapshot inside of an
+ *                 AtomicReference, which each search grabs once, so that a
+ *                 DatasetWatcher may swap in a new one while searches on
+ *                 the old one are still in progress.
+ *
+ * @usage          Read the dataset into a JsonInputHandler, then start the
+ *                 server on a given port, or on port 0 to take any free one:
+ *
+ *                 SearchServer server
+ *                   = new SearchServer(jih, "json", debugMode);
+ *
+ *                 server.start(8080);
+ */
+
+// Imports
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.campspot.*;
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import misc.Utils;
+
+public class SearchServer {
+
+    /**
+     * Class-wide variables
+     */
+
+    // Number of platform threads searches run on, if virtual threads are
+    // not available.
+    static final int fallbackThreads
+      = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    // Number of connections that may wait to be accepted at once, so that
+    // bursts of thousands of clients are not turned away.
+    static final int connectionBacklog = 4096;
+
+    // Instance of a utility class to easily access various small
+    // functions that might be needed.
+    Utils u = null;
+
+    // Whether or not debug messages are printed.
+    boolean debugMode = false;
+
+    // Holds the dataset the searches are run against, which may be swapped
+    // out for a newer one at any time.
+    AtomicReference<JsonInputHandler> snapshot = null;
+
+    // Format the results are sent back in; one of "text", "json" or "csv".
+    String format = "json";
+
+    // The underlying HTTP server, once started.
+    HttpServer server = null;
+
+    // Runs each of the searches, once started, and whether it does so on
+    // virtual threads.
+    ExecutorService executor = null;
+    boolean virtualThreads   = false;
+
+    /**
+     * Class-wide functions
+     */
+
+    //! Constructor for the SearchServer
+    /*
+     * @param      JSONInputHandler    object containing the parsed data
+     *                                 input
+     * @param      String              format the results are sent back in
+     * @param      bool                whether or not debug msg are printed
+     *
+     * @returns    SearchServer        ref to newly created object
+     */
+    public SearchServer(JsonInputHandler j, String f, boolean dm) {
+        this(new AtomicReference<JsonInputHandler>(j), f, dm);
+    }
+
+    //! Constructor for a SearchServer whose dataset may be swapped out
+    /*
+     * @param      AtomicReference    snapshot of the dataset, which each
+     *                                search grabs once
+     * @param      String             format the results are sent back in
+     * @param      bool               whether or not debug msg are printed
+     *
+     * @returns    SearchServer       ref to newly created object
+     */
+    public SearchServer(AtomicReference<JsonInputHandler> s, String f,
+                        boolean dm) {
+        snapshot  = s;
+        format    = f;
+        debugMode = dm;
+        u         = new Utils(dm);
+    }
+
+    //! Start answering searches on a given port.
+    /*
+     * @param      int     port to listen on, or 0 for any free port
+     *
+     * @returns    bool    whether or not the server could be started
+     */
+    public boolean start(int port) {
+
+        // Input validation
+        JsonInputHandler jih = (snapshot != null) ? snapshot.get() : null;
+        if (jih == null || ResultSink.forFormat(format, new StringWriter()) == null) {
+            u.printf("start() --> invalid JSONInputHandler or format");
+            return false;
+        }
+
+        // Build the index of the reservations up front, so that no search
+        // has to build it, and searches only ever read from it.
+        if (jih.getReservationIndex() == null && jih.isReservationIndexRequired()) {
+            u.printf("start() --> unable to index the reservations");
+            return false;
+        }
+
+        // Attempt to start listening on the port.
+        try {
+            server = HttpServer.create(new InetSocketAddress(port),
+                                       connectionBacklog);
+        } catch (IOException e) {
+            u.printf("Error: Unable to listen on port " + port + ".");
+            u.debugPrint(e.getMessage());
+            return false;
+        }
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/search", this::handleSearch);
+        server.start();
+        return true;
+    }
+
+    //! Create the executor the searches run on, which starts a virtual
+    //! thread per search if the JDK has them, or otherwise hands them to a
+    //! fixed pool of platform threads.
+    /*
+     * @returns    ExecutorService    the executor
+     */
+    ExecutorService newRequestExecutor() {
+
+        // Look up the virtual thread executor by name, since it is not part
+        // of the JDKs this program is built against.
+        try {
+            Method factory
+              = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService virtual = (ExecutorService) factory.invoke(null);
+            u.debugPrint("newRequestExecutor() --> using virtual threads");
+            virtualThreads = true;
+            return virtual;
+
+        // Otherwise fall back to a pool of platform threads.
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            u.debugPrint("newRequestExecutor() --> using " + fallbackThreads +
+                         " platform threads");
+            virtualThreads = false;
+            return Executors.newFixedThreadPool(fallbackThreads);
+        }
+    }
+
+    //! Check whether the searches run on virtual threads.
+    /*
+     * @returns    bool    whether or not each search gets a virtual thread
+     */
+    public boolean usesVirtualThreads() {
+        return executor != null && virtualThreads;
+    }
+
+    //! Stop answering searches, letting those in progress finish first.
+    /*
+     * @returns    none
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    //! Grab the port the server is listening on.
+    /*
+     * @returns    int    port number, or -1 if not started
+     */
+    public int getPort() {
+        return (server != null) ? server.getAddress().getPort() : -1;
+    }
+
+    //! Parse a search of the same form as the `search` object of the input.
+    /*
+     * @param      String    JSON object holding a startDate and endDate
+     *
+     * @returns    Search    the search, or null if it is invalid
+     */
+    public Search parseSearch(String json) {
+        return new SearchActionHandler(snapshot.get(), debugMode)
+                 .parseSearch(json);
+    }
+
+    //! Run a search against the current snapshot of the dataset, writing
+    //! out the results.
+    /*
+     * @param      Search    the search to respond to
+     * @param      Writer    writer to send the results to
+     *
+     * @returns    bool      whether or not the search succeeded
+     */
+    public boolean search(Search searchObj, Writer w) {
+        return search(snapshot.get(), searchObj, w);
+    }
+
+    //! Run a search against a given snapshot of the dataset, writing out
+    //! the results.
+    /*
+     * @param      JSONInputHandler    snapshot of the dataset
+     * @param      Search              the search to respond to
+     * @param      Writer              writer to send the results to
+     *
+     * @returns    bool                whether or not the search succeeded
+     */
+    boolean search(JsonInputHandler jih, Search searchObj, Writer w) {
+        SearchActionHandler sah = new SearchActionHandler(jih, debugMode);
+        sah.setResultSink(ResultSink.forFormat(format, w));
+        return sah.searchForGaps(searchObj);
+    }
+
+    //! Answer a single search sent over HTTP.
+    /*
+     * @param      HttpExchange    the request and its response
+     *
+     * @returns    none
+     */
+    void handleSearch(HttpExchange exchange) throws IOException {
+        try {
+
+            // Only searches POSTed to the server are answered.
+            if (exchange.getRequestMethod().equals("POST") == false) {
+                respond(exchange, 405, "Error: Searches need to be POSTed.");
+                return;
+            }
+
+            // Grab the snapshot of the dataset once, so that the whole
+            // search runs against it even if a newer one is swapped in.
+            JsonInputHandler jih = snapshot.get();
+
+            // Read in the search.
+            String body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            Search searchObj
+              = new SearchActionHandler(jih, debugMode).parseSearch(body);
+            if (searchObj == null) {
+                respond(exchange, 400, "Error: Invalid search, expected " +
+                        "{\"startDate\":\"yyyy-MM-dd\",\"endDate\":\"yyyy-MM-dd\"}.");
+                return;
+            }
+
+            // Run it against the dataset, then send back the results.
+            StringWriter results = new StringWriter();
+            if (search(jih, searchObj, results) == false) {
+                respond(exchange, 500, "Error: The search failed.");
+                return;
+            }
+            respond(exchange, 200, results.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    //! Send back a response, with the content type of the format.
+    /*
+     * @param      HttpExchange    the request and its response
+     * @param      int             HTTP status code
+     * @param      String          body of the response
+     *
+     * @returns    none
+     */
+    void respond(HttpExchange exchange, int status, String body)
+      throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        String type  = (status != 200) ? "text/plain"
+                     : format.equals("json") ? "application/json"
+                     : format.equals("csv") ? "text/csv"
+                     : "text/plain";
+        exchange.getResponseHeaders().set("Content-Type",
+                                          type + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
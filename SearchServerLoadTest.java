@@ -0,0 +1,215 @@
+/*
+ * @file           SearchServerLoadTest.java
+ *
+ * @class          SearchServerLoadTest
+ *
+ * @author         Robert Bisewski <contact@ibiscybernetics.com>
+ *
+ * @description    A rough load test for the search service started with the
+ *                 --serve option, which measures how many searches it can
+ *                 answer per second with a given number of clients each
+ *                 waiting on a search at once.
+ *
+ *                 Each client sends its searches one after the other, only
+ *                 sending the next once the last was answered, so there are
+ *                 always as many searches in progress as there are clients.
+ *                 The clients are run asynchronously, and so do not need a
+ *                 thread each on this side either.
+ *
+ *                 Since every client holds a connection open, the service
+ *                 is meant to run in a JVM of its own, so that each side
+ *                 only uses up half of the open files allowed.
+ *
+ * @usage          Start the search service, then point the load test at it,
+ *                 optionally followed by the numbers of clients to try, by
+ *                 default 1000 and then 10000:
+ *
+ *                 java CampsiteGapFinder --serve=8080 test-case.json
+ *
+ *                 java SearchServerLoadTest http://localhost:8080/search
+ */
+
+// Imports
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import misc.Utils;
+
+// Class begins here.
+public class SearchServerLoadTest {
+
+    /**
+     * Class-wide variables
+     */
+
+    // Variable will hide debug messages.
+    static boolean debugMode = false;
+
+    // Instance of a utility class to easily access various small
+    // functions that might be needed.
+    static Utils u = new Utils(debugMode);
+
+    // Numbers of clients tried if none are given.
+    static final int[] defaultClients = {1000, 10000};
+
+    // Number of searches sent by each client in a timed round.
+    static final int searchesPerClient = 5;
+
+    // Number of clients used to warm up the service before timing.
+    static final int warmupClients = 100;
+
+    // Search sent by each of the clients.
+    static final String searchBody
+      = "{\"startDate\":\"2016-06-07\",\"endDate\":\"2016-06-10\"}";
+
+    /**
+     * Class-wide functions
+     */
+
+    //! Send a client's searches one after the other, noting the time each
+    //! of them took.
+    /*
+     * @param      HttpClient       client to send the searches with
+     * @param      HttpRequest      the search
+     * @param      int              number of searches left to send
+     * @param      long[]           latencies of the searches, in nanoseconds
+     * @param      AtomicInteger    number of latencies noted so far
+     * @param      AtomicInteger    number of searches that failed
+     *
+     * @returns    CompletableFuture    completes once the last search was
+     *                                  answered
+     */
+    static CompletableFuture<Void> runClient(HttpClient client,
+      HttpRequest request, int remaining, long[] latencies,
+      AtomicInteger answered, AtomicInteger failed) {
+        if (remaining == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long sent = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+          .handle((response, error) -> {
+              if (error != null || response.statusCode() != 200) {
+                  failed.incrementAndGet();
+              } else {
+                  latencies[answered.getAndIncrement()]
+                    = System.nanoTime() - sent;
+              }
+              return null;
+          })
+          .thenCompose(ignore -> runClient(client, request, remaining - 1,
+                                           latencies, answered, failed));
+    }
+
+    //! Run a round of searches with a given number of clients at once, and
+    //! report the throughput and latencies.
+    /*
+     * @param      HttpClient     client to send the searches with
+     * @param      HttpRequest    the search
+     * @param      int            number of clients
+     * @param      int            number of searches sent by each client
+     * @param      bool           whether or not to report the results
+     *
+     * @returns    none
+     */
+    static void runRound(HttpClient client, HttpRequest request, int clients,
+                         int searches, boolean report) {
+
+        // Variables to hold the results of the round.
+        long[] latencies       = new long[clients * searches];
+        AtomicInteger answered = new AtomicInteger();
+        AtomicInteger failed   = new AtomicInteger();
+
+        // Start each of the clients, then wait for all of them to finish.
+        long start = System.nanoTime();
+        CompletableFuture<?>[] running = new CompletableFuture<?>[clients];
+        for (int c = 0; c < clients; c++) {
+            running[c] = runClient(client, request, searches, latencies,
+                                   answered, failed);
+        }
+        CompletableFuture.allOf(running).join();
+        long elapsed = System.nanoTime() - start;
+
+        // Report the results.
+        if (report == false) {
+            return;
+        }
+        long[] sorted = Arrays.copyOf(latencies, answered.get());
+        Arrays.sort(sorted);
+        u.printf(clients + " clients, " + (clients * searches) + " searches:");
+        u.printf(String.format("  throughput:   %.0f searches/s",
+                 answered.get() / (elapsed / 1e9)));
+        if (sorted.length > 0) {
+            u.printf(String.format("  latency p50:  %.2f ms",
+                     sorted[sorted.length / 2] / 1e6));
+            u.printf(String.format("  latency p99:  %.2f ms",
+                     sorted[(int) (sorted.length * 0.99)] / 1e6));
+        }
+        u.printf("  failed:       " + failed.get());
+    }
+
+    //! Main
+    /*
+     * @param     String[]    URL of the search service, followed by the
+     *                        numbers of clients to try
+     *
+     * @returns   none
+     */
+    public static void main(String[] args) {
+
+        // Input validation, make sure this was given the service to test.
+        if (args.length < 1) {
+            u.printf("usage: java SearchServerLoadTest " +
+                     "http://host:port/search [clients ...]\n");
+            u.returns(1);
+        }
+
+        // Grab the numbers of clients to try.
+        int[] clients = defaultClients;
+        if (args.length > 1) {
+            clients = new int[args.length - 1];
+            try {
+                for (int i = 1; i < args.length; i++) {
+                    clients[i - 1] = Integer.parseInt(args[i]);
+                }
+            } catch (NumberFormatException e) {
+                u.printf("Error: Invalid number of clients.");
+                u.returns(1);
+            }
+        }
+
+        // Build the client and the search each of them sends.
+        HttpClient client = HttpClient.newBuilder()
+                                      .version(HttpClient.Version.HTTP_1_1)
+                                      .connectTimeout(Duration.ofSeconds(30))
+                                      .build();
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(args[0]))
+                                 .POST(HttpRequest.BodyPublishers
+                                                  .ofString(searchBody))
+                                 .build();
+        } catch (IllegalArgumentException e) {
+            u.printf("Error: Invalid URL " + args[0]);
+            u.returns(1);
+            return;
+        }
+
+        // Let the developer know the load test is running.
+        u.printf("--------------------------------------------");
+        u.printf("SearchServerLoadTest is now running...");
+        u.printf("--------------------------------------------");
+
+        // Warm the service up, then time each number of clients.
+        runRound(client, request, warmupClients, searchesPerClient, false);
+        for (int i = 0; i < clients.length; i++) {
+            runRound(client, request, clients[i], searchesPerClient, true);
+        }
+        u.printf("--------------------------------------------");
+        u.returns(0);
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * @file           TextResultSink.java
+ *
+ * @class          TextResultSink
+ *
+ * @author         Robert Bisewski <contact@ibiscybernetics.com>
+ *
+ * @description    Writes the results of an action out as plain text meant
+ *                 for the end-user, which is the default format.
+ */
+
+// Imports
+import com.campspot.*;
+import java.io.*;
+import java.time.LocalDate;
+
+public class TextResultSink extends ResultSink {
+
+    /**
+     * Class-wide variables
+     */
+
+    // Line written above and below the list of campsites.
+    static final String separator
+      = "------------------------------------------------------------";
+
+    // The search being responded to.
+    Search searchObj = null;
+
+    // Number of campsites written out for the current search.
+    int campsiteCount = 0;
+
+    // Lengths of the stays of the current availability export, in days.
+    int[] stayLengths = null;
+
+    /**
+     * Class-wide functions
+     */
+
+    //! Constructor for the TextResultSink
+    /*
+     * @param      Writer            writer to send the results to
+     *
+     * @returns    TextResultSink    ref to newly created object
+     */
+    public TextResultSink(Writer w) {
+        super(w);
+    }
+
+    //! Begin the response to a search; the heading is only written once
+    //! the first campsite comes up, since there may not be any at all.
+    /*
+     * @param      Search    the search being responded to
+     *
+     * @returns    none
+     */
+    public void beginSearch(Search s) throws IOException {
+        searchObj     = s;
+        campsiteCount = 0;
+    }
+
+    //! Add a campsite that is free of gaps to the response.
+    /*
+     * @param      Campsite    campsite that fits the search
+     *
+     * @returns    none
+     */
+    public void addCampsite(Campsite cs) throws IOException {
+
+        // Write the heading before the first campsite.
+        if (campsiteCount == 0) {
+            writeLine(separator);
+            writeLine("The requested campsite reservation between...\n");
+            writeLine("" + searchObj.getStartDate().toString() +
+                      " and " + searchObj.getEndDate().toString());
+            writeLine("\n... can be safely placed without creating new gaps at:");
+            writeLine(separator);
+        }
+
+        // Write out the name of the campsite.
+        writeLine("" + cs.getName());
+        campsiteCount++;
+    }
+
+    //! End the response to a search, and flush it out.
+    /*
+     * @returns    none
+     */
+    public void endSearch() throws IOException {
+
+        // If no campsites were found, tell the end-user about it.
+        if (campsiteCount == 0) {
+            writeLine("No campsites without gaps were present.");
+        } else {
+            writeLine(separator);
+        }
+        flush();
+    }
+
+    //! Begin the response to an availability export, writing out the
+    //! heading.
+    /*
+     * @param      Search    the search whose dates the stays start within
+     * @param      int[]     lengths of the stays, in days
+     *
+     * @returns    none
+     */
+    public void beginAvailability(Search s, int[] lengths) throws IOException {
+        searchObj   = s;
+        stayLengths = lengths;
+        writeLine(separator);
+        writeLine("Stays starting between...\n");
+        writeLine("" + searchObj.getStartDate().toString() +
+                  " and " + searchObj.getEndDate().toString());
+        writeLine("\n... can be safely placed without creating new gaps on:");
+        writeLine(separator);
+    }
+
+    //! Add the availability of a campsite to the response, as the name of
+    //! the campsite followed by a line of dates for each stay length.
+    /*
+     * @param      Campsite    the campsite
+     * @param      int[][]     for each stay length, the runs of days a stay
+     *                         could start on
+     *
+     * @returns    none
+     */
+    public void addAvailability(Campsite cs, int[][] runs) throws IOException {
+        writeLine("" + cs.getName());
+        for (int s = 0; s < runs.length; s++) {
+
+            // Write out each run as a range of dates, or a single date if
+            // it only holds for one day.
+            StringBuilder line = new StringBuilder();
+            line.append("  " + stayLengths[s] + " days: ");
+            for (int r = 0; r < runs[s].length; r += 2) {
+                if (r > 0) {
+                    line.append(", ");
+                }
+                line.append(searchObj.getStartDate().plusDays(runs[s][r]));
+                if (runs[s][r + 1] > 1) {
+                    line.append(" to ");
+                    line.append(searchObj.getStartDate()
+                                  .plusDays(runs[s][r] + runs[s][r + 1] - 1));
+                }
+            }
+            if (runs[s].length == 0) {
+                line.append("none");
+            }
+            writeLine(line.toString());
+        }
+    }
+
+    //! End the response to an availability export, and flush it out.
+    /*
+     * @returns    none
+     */
+    public void endAvailability() throws IOException {
+        writeLine(separator);
+        flush();
+    }
+
+    //! Begin the report of the gaps; the heading is only written once the
+    //! first gap comes up, since there may not be any at all.
+    /*
+     * @param      Search    the search whose dates the gaps lie within
+     *
+     * @returns    none
+     */
+    public void beginGaps(Search s) throws IOException {
+        searchObj     = s;
+        campsiteCount = 0;
+    }
+
+    //! Add a gap to the report.
+    /*
+     * @param      Campsite     campsite the gap is at
+     * @param      LocalDate    first free day of the gap
+     * @param      int          number of free days
+     * @param      GapRule      gap rule it violates
+     *
+     * @returns    none
+     */
+    public void addGap(Campsite cs, LocalDate startDate, int length,
+                       GapRule gr) throws IOException {
+
+        // Write the heading before the first gap.
+        if (campsiteCount == 0) {
+            writeLine(separator);
+            writeLine("The following gaps are present between...\n");
+            writeLine("" + searchObj.getStartDate().toString() +
+                      " and " + searchObj.getEndDate().toString());
+            writeLine("\n... each violating a gap rule of the same size:");
+            writeLine(separator);
+        }
+
+        // Write out the campsite, followed by where the gap lies.
+        writeLine("" + cs.getName() + ": " + length + " days from " +
+                  startDate.toString() + " (gap rule of " + gr.getSize() +
+                  " days)");
+        campsiteCount++;
+    }
+
+    //! End the report of the gaps, and flush it out.
+    /*
+     * @returns    none
+     */
+    public void endGaps() throws IOException {
+
+        // If no gaps were found, tell the end-user about it.
+        if (campsiteCount == 0) {
+            writeLine("No gaps were present.");
+        } else {
+            writeLine(separator);
+        }
+        flush();
+    }
+}
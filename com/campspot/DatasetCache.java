@@ -0,0 +1,271 @@
+/*
+ * @file            DatasetCache.java
+ *
+ * @class           DatasetCache
+ *
+ * @author          Robert Bisewski <contact@ibiscybernetics.com>
+ *
+ * @description     Keeps the parsed search, gap rules, campsites and
+ *                  reservation index of a dataset in a directory on disk,
+ *                  so that later runs over the very same input files can
+ *                  load them straight back in rather than parsing again.
+ *
+ *                  Each entry is keyed by a 64-bit FNV-1a hash of the
+ *                  contents of the input files, along with anything else
+ *                  that changes how they are read, such as the options
+ *                  given. A file that changes in any way therefore hashes
+ *                  to another key, and its old entry is never used again.
+ *                  The key and the entry format are stored at the start of
+ *                  each entry as well, so that a damaged or outdated entry
+ *                  is thrown away rather than read in.
+ *
+ *                  Entries are written to a temporary file first and then
+ *                  renamed into place, so that another run never sees a
+ *                  partly written entry. Once the entries take up more
+ *                  than the size limit of the cache, those used least
+ *                  recently are removed first.
+ *
+ *                  The reservations are stored as the packed keys of the
+ *                  index, at the end of the entry, and are mapped into
+ *                  memory when loaded rather than read onto the heap.
+ */
+
+package com.campspot;
+
+// Imports
+import java.io.*;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DatasetCache
+{
+    // Constants of the 64-bit FNV-1a hash.
+    public static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    public static final long FNV_PRIME        = 0x100000001b3L;
+
+    // Marks the start of each entry, followed by the version of its format.
+    static final int MAGIC   = 0x43474643;
+    static final int VERSION = 1;
+
+    // Extension of each entry file.
+    static final String EXTENSION = ".cache";
+
+    // Size of the buffers used while hashing, reading and writing.
+    static final int ioBufferSize = 64 * 1024;
+
+    // Variables to hold the directory of the cache and its size limit.
+    Path dir;
+    long maxBytes;
+
+    // A dataset as it is kept in the cache.
+    public static class Entry {
+        public Search search;
+        public List<GapRule> gapRules   = new ArrayList<GapRule>();
+        public List<Campsite> campsites = new ArrayList<Campsite>();
+        public ReservationIndex index;
+    }
+
+    // Hash the contents of a file, continuing on from a previous hash.
+    public static long hash(long h, Path file) throws IOException {
+        byte[] buffer = new byte[ioBufferSize];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                for (int i = 0; i < n; i++) {
+                    h ^= buffer[i] & 0xFF;
+                    h *= FNV_PRIME;
+                }
+            }
+        }
+        return h;
+    }
+
+    // Hash a string, continuing on from a previous hash.
+    public static long hash(long h, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= FNV_PRIME;
+        }
+        return h;
+    }
+
+    // Grab the file an entry is kept in.
+    Path entryFile(long key) {
+        return dir.resolve(String.format("%016x", key) + EXTENSION);
+    }
+
+    // Load the entry with a given key, or return null if there is none.
+    public Entry load(long key) {
+
+        // If there is no entry, the dataset was not cached yet.
+        Path file = entryFile(key);
+        if (Files.isReadable(file) == false) {
+            return null;
+        }
+
+        // Read in everything but the reservations.
+        Entry entry = new Entry();
+        long offset = 0;
+        int size    = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+               Files.newInputStream(file), ioBufferSize))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+              || in.readLong() != key) {
+                throw new IOException("Outdated or foreign cache entry.");
+            }
+            entry.search = new Search(LocalDate.ofEpochDay(in.readLong()),
+                                      LocalDate.ofEpochDay(in.readLong()));
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                entry.gapRules.add(new GapRule(in.readInt()));
+            }
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                entry.campsites.add(new Campsite(in.readInt(), in.readUTF()));
+            }
+            size   = in.readInt();
+            offset = in.readLong();
+
+        // Any entry that cannot be read in is thrown away.
+        } catch (IOException | RuntimeException e) {
+            remove(file);
+            return null;
+        }
+
+        // Map the reservations into memory a segment at a time.
+        try (FileChannel channel = FileChannel.open(file,
+               StandardOpenOption.READ)) {
+            if (offset + (long) size * 8 != channel.size()) {
+                throw new IOException("Truncated cache entry.");
+            }
+            LongBuffer[] segments = new LongBuffer[
+              (size + ReservationIndex.SEGMENT_SIZE - 1)
+                >>> ReservationIndex.SEGMENT_SHIFT];
+            for (int i = 0; i < segments.length; i++) {
+                long first = (long) i << ReservationIndex.SEGMENT_SHIFT;
+                long count = Math.min(ReservationIndex.SEGMENT_SIZE,
+                                      size - first);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                                          offset + first * 8, count * 8)
+                                     .asLongBuffer();
+            }
+            entry.index = new ReservationIndex(segments, size);
+        } catch (IOException e) {
+            remove(file);
+            return null;
+        }
+
+        // Note that the entry was just used, so it is evicted last.
+        try {
+            Files.setLastModifiedTime(file,
+              FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignore) {
+        }
+        return entry;
+    }
+
+    // Store an entry under a given key, then evict the entries used least
+    // recently until the cache fits into its size limit again.
+    public void store(long key, Entry entry) throws IOException {
+
+        // Write the entry out to a temporary file within the cache.
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, "entry-", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                   new BufferedOutputStream(Files.newOutputStream(temp),
+                                            ioBufferSize))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(key);
+                out.writeLong(entry.search.getStartDate().toEpochDay());
+                out.writeLong(entry.search.getEndDate().toEpochDay());
+                out.writeInt(entry.gapRules.size());
+                for (int i = 0; i < entry.gapRules.size(); i++) {
+                    out.writeInt(entry.gapRules.get(i).getSize());
+                }
+                out.writeInt(entry.campsites.size());
+                for (int i = 0; i < entry.campsites.size(); i++) {
+                    out.writeInt(entry.campsites.get(i).getId());
+                    out.writeUTF(entry.campsites.get(i).getName());
+                }
+
+                // The reservations follow the header, at an offset that is
+                // rounded up to a whole number of keys.
+                int size    = entry.index.size();
+                long offset = (out.size() + 4 + 8 + 7) & ~7L;
+                out.writeInt(size);
+                out.writeLong(offset);
+                while (out.size() < offset) {
+                    out.writeByte(0);
+                }
+                for (int i = 0; i < size; i++) {
+                    out.writeLong(entry.index.get(i));
+                }
+            }
+
+            // Move the entry into place in one step.
+            Files.move(temp, entryFile(key),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        // Make room for the new entry, if needed.
+        evict(entryFile(key));
+    }
+
+    // Remove the entries used least recently, other than the one just
+    // stored, until the cache fits into its size limit.
+    void evict(Path keep) throws IOException {
+
+        // Gather each of the entries, and the space they take up.
+        List<Path> entries = new ArrayList<Path>();
+        long total = 0;
+        try (DirectoryStream<Path> stream
+               = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+            for (Path file : stream) {
+                entries.add(file);
+                total += Files.size(file);
+            }
+        }
+
+        // Remove the oldest ones first.
+        entries.sort((a, b) -> {
+            try {
+                return Files.getLastModifiedTime(a)
+                            .compareTo(Files.getLastModifiedTime(b));
+            } catch (IOException e) {
+                return 0;
+            }
+        });
+        for (int i = 0; i < entries.size() && total > maxBytes; i++) {
+            if (entries.get(i).equals(keep)) {
+                continue;
+            }
+            total -= Files.size(entries.get(i));
+            remove(entries.get(i));
+        }
+    }
+
+    // Remove a single entry, ignoring one that is already gone.
+    void remove(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignore) {
+        }
+    }
+
+    // Constructor for the DatasetCache object, given its directory and
+    // size limit in bytes.
+    public DatasetCache(Path d, long max) {
+        dir      = d;
+        maxBytes = max;
+    }
+}
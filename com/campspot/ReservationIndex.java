@@ -0,0 +1,253 @@
+/*
+ * @file            ReservationIndex.java
+ *
+ * @class           ReservationIndex
+ *
+ * @author          Robert Bisewski <contact@ibiscybernetics.com>
+ *
+ * @description     Stores every reservation as a single packed long, sorted
+ *                  by campsite id, then start date, then end date, so that
+ *                  the reservations at a given campsite sit next to each
+ *                  other and can be found with a binary search.
+ *
+ *                  Each long holds the campsite id in its upper 32 bits,
+ *                  followed by the start and end dates as 16-bit day counts
+ *                  since 1970-01-01, which covers dates up to the year 2149.
+ *
+ *                  An index is built by merging any number of sorted runs,
+ *                  such as one per input file, with a k-way merge.
+ *
+ *                  The keys are held in segments of at most 2^27 longs,
+ *                  either wrapping arrays on the heap or mapping a file
+ *                  written by the ReservationSpiller, so an index may hold
+ *                  more reservations than would fit into a single buffer.
+ */
+
+package com.campspot;
+
+// Imports
+import java.nio.LongBuffer;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+public class ReservationIndex
+{
+    // Largest day count, since 1970-01-01, that fits into a packed date.
+    public static final long MAX_EPOCH_DAY = 0xFFFF;
+
+    // Number of keys held in each segment, as a power of two.
+    public static final int SEGMENT_SHIFT = 27;
+    public static final int SEGMENT_SIZE  = 1 << SEGMENT_SHIFT;
+
+    // Variables to hold the packed reservations, in sorted order, and
+    // how many of them there are.
+    LongBuffer[] segments;
+    int size;
+
+    // Pack a reservation into a single long.
+    public static long pack(int campsiteId, LocalDate startDate,
+                            LocalDate endDate) {
+        long startDay = startDate.toEpochDay();
+        long endDay   = endDate.toEpochDay();
+        if (startDay < 0 || startDay > MAX_EPOCH_DAY
+          || endDay < 0 || endDay > MAX_EPOCH_DAY) {
+            throw new IllegalArgumentException("Reservation dates " +
+              startDate + " to " + endDate + " are outside of the range " +
+              "supported by the index.");
+        }
+        return ((long) campsiteId << 32) | (startDay << 16) | endDay;
+    }
+
+    // Grab the campsite id out of a packed reservation.
+    public static int campsiteIdOf(long key) {
+        return (int) (key >> 32);
+    }
+
+    // Grab the start date out of a packed reservation.
+    public static LocalDate startDateOf(long key) {
+        return LocalDate.ofEpochDay((key >>> 16) & 0xFFFF);
+    }
+
+    // Grab the end date out of a packed reservation.
+    public static LocalDate endDateOf(long key) {
+        return LocalDate.ofEpochDay(key & 0xFFFF);
+    }
+
+    // Pack and sort a list of reservations into a single sorted run.
+    public static long[] sortedRun(List<Reservation> reservations) {
+        long[] run = new long[reservations.size()];
+        for (int i = 0; i < run.length; i++) {
+            Reservation rs = reservations.get(i);
+            run[i] = pack(rs.getCampsiteId(), rs.getStartDate(),
+                          rs.getEndDate());
+        }
+        Arrays.sort(run);
+        return run;
+    }
+
+    // Merge any number of sorted runs into a single index, always taking
+    // the smallest of the next keys of each run.
+    public static ReservationIndex merge(List<long[]> runs) {
+
+        // Count up the keys, and queue up each of the non-empty runs by
+        // its next key; each entry is {run, position}.
+        int total = 0;
+        PriorityQueue<int[]> queue = new PriorityQueue<int[]>(
+          Math.max(runs.size(), 1),
+          (a, b) -> Long.compare(runs.get(a[0])[a[1]], runs.get(b[0])[b[1]]));
+        for (int r = 0; r < runs.size(); r++) {
+            total += runs.get(r).length;
+            if (runs.get(r).length > 0) {
+                queue.add(new int[] {r, 0});
+            }
+        }
+
+        // Take the smallest key each time, then queue its run back up if
+        // it still has any keys left.
+        long[] merged = new long[total];
+        int size = 0;
+        while (queue.isEmpty() == false) {
+            int[] cursor = queue.poll();
+            long[] run = runs.get(cursor[0]);
+            merged[size++] = run[cursor[1]];
+            cursor[1]++;
+            if (cursor[1] < run.length) {
+                queue.add(cursor);
+            }
+        }
+        return new ReservationIndex(merged);
+    }
+
+    // Patch an index into a new one on the heap, merging in a sorted run of
+    // added keys and taking out one occurrence of each removed key per time
+    // it was removed; any removals that matched no key are left in the map.
+    // Indexes mapped from disk are patched by ReservationSpiller.patch().
+    public static ReservationIndex patch(ReservationIndex base, long[] added,
+                                         Map<Long, Integer> removed) {
+        long[] patched = new long[base.size() + added.length];
+        int size = 0;
+        int i    = 0;
+        int j    = 0;
+        while (i < base.size() || j < added.length) {
+
+            // Take the smaller of the next keys of the index and the run.
+            long key;
+            if (j == added.length
+              || (i < base.size() && base.get(i) <= added[j])) {
+                key = base.get(i++);
+            } else {
+                key = added[j++];
+            }
+
+            // Skip the key if it was removed, counting off the removal.
+            Integer count = removed.isEmpty() ? null : removed.get(key);
+            if (count != null) {
+                if (count > 1) {
+                    removed.put(key, count - 1);
+                } else {
+                    removed.remove(key);
+                }
+                continue;
+            }
+            patched[size++] = key;
+        }
+        return new ReservationIndex((size == patched.length)
+                                    ? patched : Arrays.copyOf(patched, size));
+    }
+
+    // Grab the number of reservations in the index.
+    public int size() {
+        return size;
+    }
+
+    // Grab whether or not the keys are mapped from a file rather than held
+    // on the heap.
+    public boolean isMapped() {
+        return segments.length > 0 && segments[0].isDirect();
+    }
+
+    // Grab the packed reservation at a given position.
+    public long get(int i) {
+        return segments[i >>> SEGMENT_SHIFT].get(i & (SEGMENT_SIZE - 1));
+    }
+
+    // Find the position of the first reservation at a given campsite, or
+    // where it would be if there are none.
+    public int startOf(int campsiteId) {
+        return lowerBound((long) campsiteId << 32);
+    }
+
+    // Find the position just past the last reservation at a given campsite.
+    public int endOf(int campsiteId) {
+        if (campsiteId == Integer.MAX_VALUE) {
+            return size;
+        }
+        return lowerBound(((long) campsiteId + 1) << 32);
+    }
+
+    // Grab the days reserved at a given campsite in a single pass, merging
+    // overlapping and back-to-back reservations into runs; each run is a
+    // pair of its first and last reserved days, counted since 1970-01-01.
+    public int[] reservedRuns(int campsiteId) {
+        int first = startOf(campsiteId);
+        int last  = endOf(campsiteId);
+        int[] runs = new int[2 * (last - first)];
+        int count  = 0;
+        for (int i = first; i < last; i++) {
+            int startDay = (int) ((get(i) >>> 16) & 0xFFFF);
+            int endDay   = (int) (get(i) & 0xFFFF);
+
+            // Since the reservations are sorted by start date, each one
+            // either extends the current run or starts a new one.
+            if (count > 0 && startDay <= runs[count - 1] + 1) {
+                runs[count - 1] = Math.max(runs[count - 1], endDay);
+            } else {
+                runs[count++] = startDay;
+                runs[count++] = endDay;
+            }
+        }
+        return Arrays.copyOf(runs, count);
+    }
+
+    // Count how many times a given packed reservation is in the index.
+    public int count(long key) {
+        return (key == Long.MAX_VALUE) ? size - lowerBound(key)
+                                       : lowerBound(key + 1) - lowerBound(key);
+    }
+
+    // Find the position of the first key that is not less than a given key.
+    int lowerBound(long key) {
+        int low  = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (get(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Constructor for a ReservationIndex held in an array.
+    public ReservationIndex(long[] k) {
+        size     = k.length;
+        segments = new LongBuffer[(size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT];
+        for (int i = 0; i < segments.length; i++) {
+            int offset  = i << SEGMENT_SHIFT;
+            segments[i] = LongBuffer.wrap(k, offset,
+                            Math.min(SEGMENT_SIZE, size - offset)).slice();
+        }
+    }
+
+    // Constructor for a ReservationIndex held in segments, each of which
+    // except the last holds exactly SEGMENT_SIZE keys.
+    public ReservationIndex(LongBuffer[] s, int n) {
+        segments = s;
+        size     = n;
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * @file            ReservationSpiller.java
+ *
+ * @class           ReservationSpiller
+ *
+ * @author          Robert Bisewski <contact@ibiscybernetics.com>
+ *
+ * @description     Collects packed reservations into a buffer that grows as
+ *                  they arrive, up to a given memory budget. Whenever the
+ *                  buffer is full at the budget, it is sorted and written out
+ *                  to a temporary file as a run.
+ *
+ *                  Once every reservation has been added, the runs are
+ *                  merged with a k-way merge into a single sorted file,
+ *                  which is then mapped into memory as a ReservationIndex
+ *                  and deleted straight away; the mapping stays valid until
+ *                  the index is no longer used. Only the buffer and a small
+ *                  read buffer per run are ever held on the heap, so the
+ *                  index can be built for datasets far larger than the heap
+ *                  itself, and the buffer is let go of once it is built.
+ *
+ *                  If the buffer never fills up, nothing is written out and
+ *                  the index is simply built in memory.
+ */
+
+package com.campspot;
+
+// Imports
+import java.io.*;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+public class ReservationSpiller
+{
+    // Size of the buffers used while writing and reading the runs.
+    static final int ioBufferSize = 64 * 1024;
+
+    // Number of keys the buffer starts out with room for.
+    static final int initialBufferSize = 1024;
+
+    // Variables to hold the buffered keys, or null until any are added,
+    // how many of them are held, and how many the budget has room for.
+    long[] buffer = null;
+    int buffered  = 0;
+    int capacity;
+
+    // Variables to hold the directory the runs are written to, the runs
+    // written so far, and the number of keys in them and in the index.
+    Path tempDir;
+    List<Path> runFiles = new ArrayList<Path>();
+    long spilled = 0;
+
+    // Index of every key added before the last build, and whether it is
+    // mapped from disk rather than held on the heap.
+    ReservationIndex built = null;
+    boolean builtOnDisk    = false;
+
+    // Holds a run being read back in while merging, along with its next key.
+    static class Cursor {
+        DataInputStream in;
+        long[] run;
+        ReservationIndex index;
+        long remaining;
+        int pos;
+        long head;
+
+        // Move on to the next key, returning false once there are none left.
+        boolean advance() throws IOException {
+            if (remaining-- <= 0) {
+                return false;
+            }
+            head = (in != null) ? in.readLong()
+                 : (run != null) ? run[pos++]
+                 : index.get(pos++);
+            return true;
+        }
+    }
+
+    // Grab the number of keys added so far.
+    public long size() {
+        return spilled + buffered;
+    }
+
+    // Grab the number of keys the buffer currently has room for, which is
+    // zero once the index has been built.
+    public int bufferLength() {
+        return (buffer != null) ? buffer.length : 0;
+    }
+
+    // Grab whether or not any keys have been written out to disk.
+    public boolean hasSpilled() {
+        return runFiles.isEmpty() == false || builtOnDisk;
+    }
+
+    // Add a packed reservation, growing the buffer up to the budget, and
+    // writing it out as a run once it is full at the budget.
+    public void add(long key) throws IOException {
+        if (buffer == null || buffered == buffer.length) {
+            if (buffered == capacity) {
+                spill();
+            } else {
+                buffer = Arrays.copyOf((buffer != null) ? buffer : new long[0],
+                  (int) Math.min(capacity,
+                                 Math.max(initialBufferSize, 2L * buffered)));
+            }
+        }
+        buffer[buffered++] = key;
+    }
+
+    // Sort the buffered keys and write them out to a new run file.
+    void spill() throws IOException {
+        Arrays.sort(buffer, 0, buffered);
+        Path file = Files.createTempFile(tempDir, "reservations-", ".run");
+        try (DataOutputStream out = new DataOutputStream(
+               new BufferedOutputStream(Files.newOutputStream(file),
+                                        ioBufferSize))) {
+            for (int i = 0; i < buffered; i++) {
+                out.writeLong(buffer[i]);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        runFiles.add(file);
+        spilled += buffered;
+        buffered = 0;
+    }
+
+    // Build the index out of every key added so far, along with any other
+    // sorted runs that are already in memory.
+    public ReservationIndex build(List<long[]> runs) throws IOException {
+
+        // Sort whatever is still buffered into a run of its own, and let go
+        // of the buffer, which a later key will start over with.
+        long[] last = (buffer != null) ? Arrays.copyOf(buffer, buffered)
+                                       : new long[0];
+        Arrays.sort(last);
+        buffer   = null;
+        buffered = 0;
+
+        // Merge the keys of the spiller itself into a single index: those of
+        // the last build, those written out since, and the buffered ones.
+        List<Cursor> own = new ArrayList<Cursor>();
+        if (built != null) {
+            own.add(cursorOf(built));
+        }
+        own.add(cursorOf(last));
+        if (runFiles.isEmpty() && builtOnDisk == false) {
+            built = new ReservationIndex(mergeToArray(own));
+        } else {
+            try {
+                for (int r = 0; r < runFiles.size(); r++) {
+                    own.add(cursorOf(runFiles.get(r)));
+                }
+                built = mergeToDisk(own, tempDir);
+            } finally {
+                close(own);
+            }
+            for (int r = 0; r < runFiles.size(); r++) {
+                Files.deleteIfExists(runFiles.get(r));
+            }
+            runFiles.clear();
+            builtOnDisk = true;
+        }
+        spilled = built.size();
+
+        // Merge in any other runs, the same way as the keys of the spiller.
+        List<Cursor> all = new ArrayList<Cursor>();
+        for (int r = 0; r < runs.size(); r++) {
+            if (runs.get(r).length > 0) {
+                all.add(cursorOf(runs.get(r)));
+            }
+        }
+        if (all.isEmpty()) {
+            return built;
+        }
+        all.add(cursorOf(built));
+        return builtOnDisk ? mergeToDisk(all, tempDir)
+                           : new ReservationIndex(mergeToArray(all));
+    }
+
+    // Create a cursor over a run held in memory.
+    static Cursor cursorOf(long[] run) {
+        Cursor c    = new Cursor();
+        c.run       = run;
+        c.remaining = run.length;
+        return c;
+    }
+
+    // Create a cursor over the keys of an index.
+    static Cursor cursorOf(ReservationIndex index) {
+        Cursor c    = new Cursor();
+        c.index     = index;
+        c.remaining = index.size();
+        return c;
+    }
+
+    // Create a cursor over a run file.
+    static Cursor cursorOf(Path file) throws IOException {
+        Cursor c    = new Cursor();
+        c.remaining = Files.size(file) / 8;
+        c.in        = new DataInputStream(new BufferedInputStream(
+                        Files.newInputStream(file), ioBufferSize));
+        return c;
+    }
+
+    // Close every run file being read by the cursors.
+    static void close(List<Cursor> cursors) throws IOException {
+        for (int i = 0; i < cursors.size(); i++) {
+            if (cursors.get(i).in != null) {
+                cursors.get(i).in.close();
+            }
+        }
+    }
+
+    // Count up the keys left in the cursors, making sure an index of them
+    // can still be addressed.
+    static int total(List<Cursor> cursors) throws IOException {
+        long total = 0;
+        for (int i = 0; i < cursors.size(); i++) {
+            total += cursors.get(i).remaining;
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IOException("Too many reservations to index: " + total);
+        }
+        return (int) total;
+    }
+
+    // Queue up each cursor that still has a key, ordered by its next key.
+    static PriorityQueue<Cursor> queueOf(List<Cursor> cursors)
+      throws IOException {
+        PriorityQueue<Cursor> queue = new PriorityQueue<Cursor>(
+          cursors.size() + 1, (a, b) -> Long.compare(a.head, b.head));
+        for (int i = 0; i < cursors.size(); i++) {
+            if (cursors.get(i).advance()) {
+                queue.add(cursors.get(i));
+            }
+        }
+        return queue;
+    }
+
+    // Merge the keys of each cursor into a single sorted array, always
+    // taking the smallest of the next keys of each of them.
+    static long[] mergeToArray(List<Cursor> cursors) throws IOException {
+        long[] merged = new long[total(cursors)];
+        int size      = 0;
+        PriorityQueue<Cursor> queue = queueOf(cursors);
+        while (queue.isEmpty() == false) {
+            Cursor c = queue.poll();
+            merged[size++] = c.head;
+            if (c.advance()) {
+                queue.add(c);
+            }
+        }
+        return merged;
+    }
+
+    // Merge the keys of each cursor into a single sorted file, the same
+    // way, then map it into memory as an index.
+    static ReservationIndex mergeToDisk(List<Cursor> cursors, Path dir)
+      throws IOException {
+        int size   = total(cursors);
+        Path file  = Files.createTempFile(dir, "reservations-", ".idx");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                   new BufferedOutputStream(Files.newOutputStream(file),
+                                            ioBufferSize))) {
+                PriorityQueue<Cursor> queue = queueOf(cursors);
+                while (queue.isEmpty() == false) {
+                    Cursor c = queue.poll();
+                    out.writeLong(c.head);
+                    if (c.advance()) {
+                        queue.add(c);
+                    }
+                }
+            }
+            return map(file, size);
+        } finally {
+            delete(file);
+        }
+    }
+
+    // Patch an index into a new one on disk, the same way as
+    // ReservationIndex.patch() does on the heap, streaming the patched keys
+    // out to a file which is then mapped into memory, so that an index
+    // larger than the heap can be patched.
+    public static ReservationIndex patch(ReservationIndex base, long[] added,
+      Map<Long, Integer> removed, Path dir) throws IOException {
+        if ((long) base.size() + added.length > Integer.MAX_VALUE) {
+            throw new IOException("Too many reservations to index: " +
+                                  ((long) base.size() + added.length));
+        }
+        Path file = Files.createTempFile(dir, "reservations-", ".idx");
+        try {
+            int size = 0;
+            int i    = 0;
+            int j    = 0;
+            try (DataOutputStream out = new DataOutputStream(
+                   new BufferedOutputStream(Files.newOutputStream(file),
+                                            ioBufferSize))) {
+                while (i < base.size() || j < added.length) {
+
+                    // Take the smaller of the next keys of the index and
+                    // the run.
+                    long key;
+                    if (j == added.length
+                      || (i < base.size() && base.get(i) <= added[j])) {
+                        key = base.get(i++);
+                    } else {
+                        key = added[j++];
+                    }
+
+                    // Skip the key if it was removed, counting off the
+                    // removal.
+                    Integer count = removed.isEmpty() ? null : removed.get(key);
+                    if (count != null) {
+                        if (count > 1) {
+                            removed.put(key, count - 1);
+                        } else {
+                            removed.remove(key);
+                        }
+                        continue;
+                    }
+                    out.writeLong(key);
+                    size++;
+                }
+            }
+            return map(file, size);
+        } finally {
+            delete(file);
+        }
+    }
+
+    // Map a file of sorted keys into memory a segment at a time.
+    static ReservationIndex map(Path file, int size) throws IOException {
+        LongBuffer[] segments = new LongBuffer[
+          (size + ReservationIndex.SEGMENT_SIZE - 1)
+            >>> ReservationIndex.SEGMENT_SHIFT];
+        try (FileChannel channel = FileChannel.open(file,
+               StandardOpenOption.READ)) {
+            for (int i = 0; i < segments.length; i++) {
+                long offset = (long) i << ReservationIndex.SEGMENT_SHIFT;
+                long count  = Math.min(ReservationIndex.SEGMENT_SIZE,
+                                       size - offset);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                                          offset * 8, count * 8)
+                                     .asLongBuffer();
+            }
+        }
+        return new ReservationIndex(segments, size);
+    }
+
+    // Delete a file that may still be mapped; the mapping stays valid once
+    // the file is gone, except on systems that refuse to delete it, where
+    // it is left until the program ends instead.
+    static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    // Constructor for the ReservationSpiller object, given the budget in
+    // bytes and the directory to write the runs to.
+    public ReservationSpiller(long budget, Path dir) {
+        capacity = (int) Math.max(1,
+                     Math.min(budget / 8, Integer.MAX_VALUE - 8));
+        tempDir  = dir;
+    }
+}
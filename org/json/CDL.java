@@ -1,5 +1,7 @@
 package org.json;
 
+import java.util.List;
+
 /*
 Copyright (c) 2002 JSON.org
 
@@ -123,6 +125,50 @@ public class CDL {
         }
     }
 
+    /**
+     * Read a row of comma delimited values into a reusable list of strings.
+     * Unlike rowToJSONArray, this does not build a JSONArray for every row,
+     * which makes it suitable for streaming through large files. Blank lines
+     * between rows are skipped rather than treated as the end of the text.
+     * @param x A JSONTokener of the source text.
+     * @param values A list that is cleared and then filled with the values.
+     * @return true if a row was read, or false at the end of the text.
+     * @throws JSONException
+     */
+    public static boolean rowToList(JSONTokener x, List<String> values)
+            throws JSONException {
+        values.clear();
+        char c;
+        do {
+            c = x.next();
+        } while (c == '\n' || c == '\r');
+        if (c == 0) {
+            return false;
+        }
+        x.back();
+        for (;;) {
+            String value = getValue(x);
+            c = x.next();
+            if (value == null) {
+                return values.size() > 0;
+            }
+            values.add(value);
+            for (;;) {
+                if (c == ',') {
+                    break;
+                }
+                if (c != ' ') {
+                    if (c == '\n' || c == '\r' || c == 0) {
+                        return true;
+                    }
+                    throw x.syntaxError("Bad character '" + c + "' (" +
+                            (int)c + ").");
+                }
+                c = x.next();
+            }
+        }
+    }
+
     /**
      * Produce a JSONObject from a row of comma delimited text, using a
      * parallel JSONArray of strings to provides the names of the elements.
@@ -992,9 +992,31 @@ public class JSONArray implements Iterable<Object> {
      * @throws IllegalArgumentException if {@code jsonPointer} has invalid syntax
      */
     public Object optQuery(String jsonPointer) {
-        JSONPointer pointer = new JSONPointer(jsonPointer);
+        return optQuery(new JSONPointer(jsonPointer));
+    }
+
+    /**
+     * Uses a JSONPointer that was compiled ahead of time to match an item
+     * within this JSONArray, which avoids parsing the pointer on every query.
+     * A JSONPointerException may be thrown from code called by this method.
+     *
+     * @param jsonPointer a compiled JSONPointer
+     * @return the item matched by the JSONPointer, otherwise null
+     */
+    public Object query(JSONPointer jsonPointer) {
+        return jsonPointer.queryFrom(this);
+    }
+
+    /**
+     * Queries and returns a value from this JSONArray using a compiled
+     * {@code jsonPointer}, or returns null if the query fails.
+     *
+     * @param jsonPointer a compiled JSONPointer
+     * @return the queried value or {@code null}
+     */
+    public Object optQuery(JSONPointer jsonPointer) {
         try {
-            return pointer.queryFrom(this);
+            return jsonPointer.queryFrom(this);
         } catch (JSONPointerException e) {
             return null;
         }
@@ -0,0 +1,156 @@
+package org.json;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A JSONBeanAccessor is one bean getter of a class, together with the key
+ * its value is put under when a bean of that class is turned into a
+ * JSONObject. The getters of each class are looked up by reflection only
+ * once, the first time a bean of that class is wrapped, and are then kept as
+ * MethodHandles for as long as the class itself is loaded.
+ * @author JSON.org
+ * @version 2016-08-15
+ */
+final class JSONBeanAccessor {
+
+    /** The accessors of each class that has been wrapped so far. */
+    private static final ClassValue<JSONBeanAccessor[]> ACCESSORS =
+            new ClassValue<JSONBeanAccessor[]>() {
+                @Override
+                protected JSONBeanAccessor[] computeValue(Class<?> klass) {
+                    return findAccessors(klass);
+                }
+            };
+
+    /** The type every getter is adapted to, so that it can be invoked exactly. */
+    private static final MethodType GETTER_TYPE =
+            MethodType.methodType(Object.class, Object.class);
+
+    /** The key the value of the getter is put under. */
+    final String key;
+
+    /** The getter, adapted to take and return an Object. */
+    private final MethodHandle getter;
+
+    private JSONBeanAccessor(String key, MethodHandle getter) {
+        this.key = key;
+        this.getter = getter;
+    }
+
+    /**
+     * Get the accessors of a class, looking them up if this is the first time
+     * the class has been asked for.
+     * @param klass The class of a bean.
+     * @return The accessors of its getters.
+     */
+    static JSONBeanAccessor[] forClass(Class<?> klass) {
+        return ACCESSORS.get(klass);
+    }
+
+    /**
+     * Call the getter on a bean.
+     * @param bean A bean of the class the accessor was found in.
+     * @return The value returned by the getter.
+     * @throws Throwable Anything thrown by the getter.
+     */
+    Object get(Object bean) throws Throwable {
+        return (Object) this.getter.invokeExact(bean);
+    }
+
+    /**
+     * Find the public getters of a class, the same way JSONObject(Object bean)
+     * always has: methods with no parameters whose name starts with "get" or
+     * "is" followed by an uppercase letter. Getters that cannot be accessed
+     * are left out, as calling them would have failed anyway.
+     */
+    private static JSONBeanAccessor[] findAccessors(Class<?> klass) {
+
+// If klass is a System class then set includeSuperClass to false.
+
+        boolean includeSuperClass = klass.getClassLoader() != null;
+
+        Method[] methods = includeSuperClass ? klass.getMethods() : klass
+                .getDeclaredMethods();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        List<JSONBeanAccessor> accessors = new ArrayList<JSONBeanAccessor>();
+        for (int i = 0; i < methods.length; i += 1) {
+            Method method = methods[i];
+            if (!Modifier.isPublic(method.getModifiers())
+                    || method.getParameterTypes().length != 0) {
+                continue;
+            }
+            String key = keyOf(method.getName());
+            if (key == null) {
+                continue;
+            }
+            try {
+                MethodHandle getter = lookup.unreflect(method);
+                if (Modifier.isStatic(method.getModifiers())) {
+                    getter = MethodHandles.dropArguments(getter, 0,
+                            Object.class);
+                }
+                accessors.add(new JSONBeanAccessor(key,
+                        getter.asType(GETTER_TYPE)));
+            } catch (IllegalAccessException ignore) {
+            }
+        }
+        return accessors.toArray(new JSONBeanAccessor[accessors.size()]);
+    }
+
+    /**
+     * Form the key of a getter from its name.
+     * @param name The name of a method.
+     * @return The key, or null if the method is not a getter.
+     */
+    private static String keyOf(String name) {
+        String key = "";
+        if (name.startsWith("get")) {
+            if ("getClass".equals(name) || "getDeclaringClass".equals(name)) {
+                key = "";
+            } else {
+                key = name.substring(3);
+            }
+        } else if (name.startsWith("is")) {
+            key = name.substring(2);
+        }
+        if (key.length() == 0 || !Character.isUpperCase(key.charAt(0))) {
+            return null;
+        }
+        if (key.length() == 1) {
+            key = key.toLowerCase();
+        } else if (!Character.isUpperCase(key.charAt(1))) {
+            key = key.substring(0, 1).toLowerCase() + key.substring(1);
+        }
+        return key;
+    }
+}
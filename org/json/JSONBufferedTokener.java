@@ -0,0 +1,394 @@
+package org.json;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+/**
+ * A JSONBufferedTokener is a JSONTokener that reads its source in blocks into
+ * its own char array, rather than calling Reader.read() once per character.
+ * Stepping back is done by moving an index within that array, and strings
+ * without escapes as well as unquoted values such as numbers are cut straight
+ * out of the array without going through a StringBuilder.
+ * <p>
+ * When a block is refilled, the last character of the previous block is
+ * kept at the front of the array, so that back() keeps working across the
+ * block boundary.
+ * @author JSON.org
+ * @version 2016-08-15
+ */
+public class JSONBufferedTokener extends JSONTokener {
+
+    /** The default number of characters read from the source at a time. */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /** The characters that end an unquoted value. */
+    private static final String VALUE_DELIMITERS = ",:]}/\\\"[{;=#";
+
+    private char[]  buffer;
+    private boolean endOfInput;
+    private boolean eof;
+    private int     limit;
+    private long    line;
+    private long    lineStart;
+    private long    offset;
+    private int     position;
+    private int     rangeStart;
+    private Reader  reader;
+
+
+    /**
+     * Construct a JSONBufferedTokener from a Reader.
+     *
+     * @param reader     A reader.
+     */
+    public JSONBufferedTokener(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+
+    /**
+     * Construct a JSONBufferedTokener from a Reader, with a given block size.
+     *
+     * @param reader     A reader.
+     * @param bufferSize The number of characters to read at a time.
+     */
+    public JSONBufferedTokener(Reader reader, int bufferSize) {
+        super();
+        if (bufferSize < 2) {
+            throw new IllegalArgumentException("bufferSize must be at least 2");
+        }
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+        this.line = 1;
+    }
+
+
+    /**
+     * Construct a JSONBufferedTokener over a range of a char array. The array
+     * is used as the buffer as is, so it must not be changed while parsing.
+     *
+     * @param chars  The source characters.
+     * @param start  The index of the first character to parse.
+     * @param length The number of characters to parse.
+     */
+    public JSONBufferedTokener(char[] chars, int start, int length) {
+        super();
+        this.buffer = chars;
+        this.position = start;
+        this.rangeStart = start;
+        this.limit = start + length;
+        this.offset = -start;
+        this.lineStart = 0;
+        this.line = 1;
+        this.endOfInput = true;
+    }
+
+
+    /**
+     * Construct a JSONBufferedTokener from a string.
+     *
+     * @param s     A source string.
+     */
+    public JSONBufferedTokener(String s) {
+        this(s.toCharArray(), 0, s.length());
+    }
+
+
+    /**
+     * Read the next block of characters from the source, keeping the last
+     * character of the current block so that it can still be stepped back to.
+     * @return true if more characters are available.
+     * @throws JSONException Thrown if there is an error reading the source.
+     */
+    private boolean fill() throws JSONException {
+        if (this.endOfInput) {
+            return false;
+        }
+        if (this.limit > 0) {
+            this.buffer[0] = this.buffer[this.limit - 1];
+            this.offset += this.limit - 1;
+            this.position = 1;
+            this.limit = 1;
+        }
+        try {
+            int n;
+            do {
+                n = this.reader.read(this.buffer, this.limit,
+                        this.buffer.length - this.limit);
+            } while (n == 0);
+            if (n < 0) {
+                this.endOfInput = true;
+                return false;
+            }
+            this.limit += n;
+        } catch (IOException exception) {
+            throw new JSONException(exception);
+        }
+        return true;
+    }
+
+
+    /**
+     * Make sure the buffer holds at least one character past the given index,
+     * growing it if needed instead of dropping characters before it.
+     * @param i An index into the buffer.
+     * @return true if the character at that index is available.
+     * @throws JSONException Thrown if there is an error reading the source.
+     */
+    private boolean fillTo(int i) throws JSONException {
+        while (i >= this.limit) {
+            if (this.endOfInput) {
+                return false;
+            }
+            if (this.limit == this.buffer.length) {
+                char[] grown = new char[this.buffer.length * 2];
+                System.arraycopy(this.buffer, 0, grown, 0, this.limit);
+                this.buffer = grown;
+            }
+            try {
+                int n = this.reader.read(this.buffer, this.limit,
+                        this.buffer.length - this.limit);
+                if (n < 0) {
+                    this.endOfInput = true;
+                    return false;
+                }
+                this.limit += n;
+            } catch (IOException exception) {
+                throw new JSONException(exception);
+            }
+        }
+        return true;
+    }
+
+
+    @Override
+    public void back() throws JSONException {
+        if (this.eof) {
+            this.eof = false;
+            return;
+        }
+        if (this.position <= this.rangeStart) {
+            throw new JSONException("Stepping back two steps is not supported");
+        }
+        this.position -= 1;
+        if (this.buffer[this.position] == '\n') {
+            this.line -= 1;
+        }
+    }
+
+
+    @Override
+    public boolean end() {
+        return this.eof;
+    }
+
+
+    @Override
+    public boolean more() throws JSONException {
+        if (this.eof) {
+            return false;
+        }
+        return this.position < this.limit || this.fill();
+    }
+
+
+    @Override
+    public char next() throws JSONException {
+        if (this.position >= this.limit && !this.fill()) {
+            this.eof = true;
+            return 0;
+        }
+        char c = this.buffer[this.position++];
+        if (c == '\n') {
+            this.line += 1;
+            this.lineStart = this.offset + this.position;
+        }
+        return c;
+    }
+
+
+    @Override
+    public char nextClean() throws JSONException {
+        for (;;) {
+            while (this.position < this.limit) {
+                char c = this.buffer[this.position++];
+                if (c > ' ') {
+                    return c;
+                }
+                if (c == '\n') {
+                    this.line += 1;
+                    this.lineStart = this.offset + this.position;
+                }
+            }
+            if (!this.fill()) {
+                this.eof = true;
+                return 0;
+            }
+        }
+    }
+
+
+    @Override
+    public String nextString(char quote) throws JSONException {
+        int start = this.position;
+        for (int i = start; i < this.limit; i += 1) {
+            char c = this.buffer[i];
+            if (c == quote) {
+                this.position = i + 1;
+                JSONStringPool pool = this.getStringPool();
+                return pool != null
+                        ? pool.intern(this.buffer, start, i - start)
+                        : new String(this.buffer, start, i - start);
+            }
+            if (c == '\\' || c == '\n' || c == '\r' || c == 0) {
+                break;
+            }
+        }
+
+        // The string either holds an escape or runs past the end of the
+        // block, so carry on one character at a time.
+        int scanned = this.scanString(start, quote);
+        StringBuilder sb = new StringBuilder(Math.max(16, scanned * 2));
+        sb.append(this.buffer, start, scanned);
+        this.position = start + scanned;
+        return this.nextString(quote, sb);
+    }
+
+
+    /**
+     * Count the characters of a string that can be copied as they are,
+     * starting at an index into the buffer.
+     */
+    private int scanString(int start, char quote) {
+        int i = start;
+        while (i < this.limit) {
+            char c = this.buffer[i];
+            if (c == quote || c == '\\' || c == '\n' || c == '\r' || c == 0) {
+                break;
+            }
+            i += 1;
+        }
+        return i - start;
+    }
+
+
+    @Override
+    public Object nextValue() throws JSONException {
+        char c = this.nextClean();
+
+        switch (c) {
+            case '"':
+            case '\'':
+                return this.nextString(c);
+            case '{':
+                this.back();
+                return new JSONObject(this);
+            case '[':
+                this.back();
+                return new JSONArray(this);
+            case 0:
+                throw this.syntaxError("Missing value");
+        }
+        if (VALUE_DELIMITERS.indexOf(c) >= 0) {
+            this.back();
+            throw this.syntaxError("Missing value");
+        }
+
+        // Unquoted text, such as a number, true, false or null. If the whole
+        // value lies within the current block, it is cut straight out of it,
+        // and plain integers are read without creating a String at all.
+        int start = this.position - 1;
+        for (int i = this.position; i < this.limit; i += 1) {
+            c = this.buffer[i];
+            if (c >= '0' && c <= '9') {
+                continue;
+            }
+            if (c < ' ' || VALUE_DELIMITERS.indexOf(c) >= 0) {
+                this.position = i;
+                Number integer = JSONObject.integerValue(this.buffer, start, i);
+                if (integer != null) {
+                    return integer;
+                }
+                return this.unquotedValue(
+                        new String(this.buffer, start, i - start).trim());
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(this.buffer, start, this.limit - start);
+        this.position = this.limit;
+        c = this.next();
+        while (c >= ' ' && VALUE_DELIMITERS.indexOf(c) < 0) {
+            sb.append(c);
+            c = this.next();
+        }
+        this.back();
+        return this.unquotedValue(sb.toString().trim());
+    }
+
+
+    /**
+     * Convert the text of an unquoted value into the value itself.
+     */
+    private Object unquotedValue(String string) throws JSONException {
+        if ("".equals(string)) {
+            throw this.syntaxError("Missing value");
+        }
+        return JSONObject.stringToValue(string);
+    }
+
+
+    @Override
+    public char skipTo(char to) throws JSONException {
+        for (int i = this.position; this.fillTo(i); i += 1) {
+            if (this.buffer[i] == to) {
+                for (int j = this.position; j < i; j += 1) {
+                    if (this.buffer[j] == '\n') {
+                        this.line += 1;
+                        this.lineStart = this.offset + j + 1;
+                    }
+                }
+                this.position = i;
+                return to;
+            }
+        }
+        return 0;
+    }
+
+
+    /**
+     * Make a printable string of this JSONBufferedTokener.
+     *
+     * @return " at {index} [character {character} line {line}]"
+     */
+    @Override
+    public String toString() {
+        long index = this.offset + this.position;
+        return " at " + index + " [character " + (index - this.lineStart + 1) +
+            " line " + this.line + "]";
+    }
+}
@@ -0,0 +1,176 @@
+package org.json;
+
+import java.util.Arrays;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+/**
+ * A JSONLazyArray is a JSON array whose elements have only been located in
+ * the source text, not parsed. The offsets of each element are kept in a
+ * pair of int arrays, and an element is decoded only when it is asked for.
+ * See JSONLazyObject.
+ * @author JSON.org
+ * @version 2016-08-15
+ */
+public class JSONLazyArray {
+
+    private final char[] chars;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int length;
+    private boolean compactObjects;
+    private JSONStringPool stringPool;
+
+    /**
+     * Index the array found in a range of a char array.
+     *
+     * @param chars The source text, which must not be changed afterwards.
+     * @param start The index of the opening bracket, or whitespace before it.
+     * @param end   The index just past the closing bracket.
+     * @throws JSONException If the range does not hold a JSON array.
+     */
+    public JSONLazyArray(char[] chars, int start, int end)
+            throws JSONException {
+        this.chars = chars;
+        int i = JSONLazyObject.skipWhitespace(chars, start, end);
+        if (i >= end || chars[i] != '[') {
+            throw JSONLazyObject.syntaxError(
+                    "A JSONArray text must start with '['", i);
+        }
+        i = JSONLazyObject.skipWhitespace(chars, i + 1, end);
+        if (i < end && chars[i] == ']') {
+            return;
+        }
+        for (;;) {
+            int valueEnd = JSONLazyObject.skipValue(chars, i, end);
+            if (this.length == this.starts.length) {
+                this.starts = Arrays.copyOf(this.starts, this.length * 2);
+                this.ends = Arrays.copyOf(this.ends, this.length * 2);
+            }
+            this.starts[this.length] = i;
+            this.ends[this.length] = valueEnd;
+            this.length += 1;
+            i = JSONLazyObject.skipWhitespace(chars, valueEnd, end);
+            if (i < end && chars[i] == ',') {
+                i = JSONLazyObject.skipWhitespace(chars, i + 1, end);
+                if (i < end && chars[i] == ']') {
+                    return;
+                }
+                continue;
+            }
+            if (i < end && chars[i] == ']') {
+                return;
+            }
+            throw JSONLazyObject.syntaxError("Expected a ',' or ']'", i);
+        }
+    }
+
+    /**
+     * Choose whether decoded elements are parsed into compact JSONObjects.
+     * @param compact true to parse into compact objects.
+     * @return this.
+     */
+    public JSONLazyArray setCompactObjects(boolean compact) {
+        this.compactObjects = compact;
+        return this;
+    }
+
+    /**
+     * Choose a pool through which the strings of decoded elements are shared.
+     * @param pool A JSONStringPool, or null to stop pooling strings.
+     * @return this.
+     */
+    public JSONLazyArray setStringPool(JSONStringPool pool) {
+        this.stringPool = pool;
+        return this;
+    }
+
+    /**
+     * @return The number of elements in the array.
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * Decode an element of the array.
+     * @param index The index of the element.
+     * @return The decoded value.
+     * @throws JSONException If the index is out of range or the element is
+     *                       malformed.
+     */
+    public Object get(int index) throws JSONException {
+        if (index < 0 || index >= this.length) {
+            throw new JSONException("JSONArray[" + index + "] not found.");
+        }
+        return JSONLazyObject.decode(this.chars, this.starts[index],
+                this.ends[index], this.compactObjects, this.stringPool);
+    }
+
+    /**
+     * Get an element of the array, indexing it if it is an object or array
+     * and decoding it otherwise.
+     * @param index The index of the element.
+     * @return A JSONLazyObject, JSONLazyArray or decoded value, or null if
+     *         the index is out of range.
+     * @throws JSONException If the element is malformed.
+     */
+    public Object optLazy(int index) throws JSONException {
+        if (index < 0 || index >= this.length) {
+            return null;
+        }
+        return JSONLazyObject.lazyValue(this.chars, this.starts[index],
+                this.ends[index], this.compactObjects, this.stringPool);
+    }
+
+    /**
+     * Index an object element of the array, without decoding its members.
+     * @param index The index of the element.
+     * @return A JSONLazyObject.
+     * @throws JSONException If the index is out of range or the element is
+     *                       not an object.
+     */
+    public JSONLazyObject getLazyObject(int index) throws JSONException {
+        if (index < 0 || index >= this.length) {
+            throw new JSONException("JSONArray[" + index + "] not found.");
+        }
+        return new JSONLazyObject(this.chars, this.starts[index],
+                this.ends[index]).setCompactObjects(this.compactObjects)
+                .setStringPool(this.stringPool);
+    }
+
+    /**
+     * Decode the whole array into a regular JSONArray.
+     * @return A JSONArray.
+     * @throws JSONException If an element is malformed.
+     */
+    public JSONArray toJSONArray() throws JSONException {
+        JSONArray array = new JSONArray();
+        for (int i = 0; i < this.length; i += 1) {
+            array.put(this.get(i));
+        }
+        return array;
+    }
+}
@@ -0,0 +1,377 @@
+package org.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+/**
+ * A JSONLazyObject is a JSON object whose members have only been located in
+ * the source text, not parsed. Creating one records the offsets of each of
+ * its member values, skipping over nested values without building anything
+ * for them. A member is decoded into a JSONObject, JSONArray or value only
+ * when it is asked for, and may instead be indexed as a JSONLazyObject or
+ * JSONLazyArray of its own.
+ * <p>
+ * The whole source text is kept in memory as a char array, which is shared
+ * by every lazy object and array indexed from it.
+ * @author JSON.org
+ * @version 2016-08-15
+ */
+public class JSONLazyObject {
+
+    private final char[] chars;
+    private final int start;
+    private final int end;
+    private final Map<String, int[]> members;
+    private boolean compactObjects;
+    private JSONStringPool stringPool;
+
+    /**
+     * Index the object found in a range of a char array.
+     *
+     * @param chars The source text, which must not be changed afterwards.
+     * @param start The index of the opening brace, or whitespace before it.
+     * @param end   The index just past the closing brace.
+     * @throws JSONException If the range does not hold a JSON object.
+     */
+    public JSONLazyObject(char[] chars, int start, int end)
+            throws JSONException {
+        this.chars = chars;
+        this.members = new LinkedHashMap<String, int[]>();
+        int i = skipWhitespace(chars, start, end);
+        if (i >= end || chars[i] != '{') {
+            throw syntaxError("A JSONObject text must begin with '{'", i);
+        }
+        this.start = i;
+        i = skipWhitespace(chars, i + 1, end);
+        if (i < end && chars[i] == '}') {
+            this.end = i + 1;
+            return;
+        }
+        for (;;) {
+            int keyEnd = skipValue(chars, i, end);
+            String key = decode(chars, i, keyEnd, false, null).toString();
+            i = skipWhitespace(chars, keyEnd, end);
+            if (i >= end || chars[i] != ':') {
+                throw syntaxError("Expected a ':' after a key", i);
+            }
+            int valueStart = skipWhitespace(chars, i + 1, end);
+            int valueEnd = skipValue(chars, valueStart, end);
+            if (this.members.put(key, new int[] {valueStart, valueEnd}) != null) {
+                throw syntaxError("Duplicate key \"" + key + "\"", valueStart);
+            }
+            i = skipWhitespace(chars, valueEnd, end);
+            if (i < end && chars[i] == ',') {
+                i = skipWhitespace(chars, i + 1, end);
+                if (i < end && chars[i] == '}') {
+                    this.end = i + 1;
+                    return;
+                }
+                continue;
+            }
+            if (i < end && chars[i] == '}') {
+                this.end = i + 1;
+                return;
+            }
+            throw syntaxError("Expected a ',' or '}'", i);
+        }
+    }
+
+    /**
+     * Read all of a source into memory and index the object it holds.
+     *
+     * @param reader The source.
+     * @return A JSONLazyObject.
+     * @throws JSONException If the source cannot be read or does not hold
+     *                       a JSON object.
+     */
+    public static JSONLazyObject parse(Reader reader) throws JSONException {
+        char[] chars = new char[JSONBufferedTokener.DEFAULT_BUFFER_SIZE];
+        int length = 0;
+        try {
+            int n;
+            while ((n = reader.read(chars, length, chars.length - length)) >= 0) {
+                length += n;
+                if (length == chars.length) {
+                    chars = Arrays.copyOf(chars, chars.length * 2);
+                }
+            }
+        } catch (IOException exception) {
+            throw new JSONException(exception);
+        }
+        return new JSONLazyObject(chars, 0, length);
+    }
+
+    /**
+     * Choose whether decoded members are parsed into compact JSONObjects.
+     * @param compact true to parse into compact objects.
+     * @return this.
+     */
+    public JSONLazyObject setCompactObjects(boolean compact) {
+        this.compactObjects = compact;
+        return this;
+    }
+
+    /**
+     * Choose a pool through which the strings of decoded members are shared.
+     * @param pool A JSONStringPool, or null to stop pooling strings.
+     * @return this.
+     */
+    public JSONLazyObject setStringPool(JSONStringPool pool) {
+        this.stringPool = pool;
+        return this;
+    }
+
+    /**
+     * Determine if the object has a member with the given key.
+     * @param key A key string.
+     * @return true if the key exists.
+     */
+    public boolean has(String key) {
+        return this.members.containsKey(key);
+    }
+
+    /**
+     * @return The keys of the object, in the order they appear in.
+     */
+    public Set<String> keySet() {
+        return this.members.keySet();
+    }
+
+    /**
+     * @return The number of members of the object.
+     */
+    public int length() {
+        return this.members.size();
+    }
+
+    /**
+     * Decode the value of a member.
+     * @param key A key string.
+     * @return The decoded value, or null if there is no such member.
+     * @throws JSONException If the value is malformed.
+     */
+    public Object opt(String key) throws JSONException {
+        int[] range = this.members.get(key);
+        return range == null ? null
+                : decode(this.chars, range[0], range[1], this.compactObjects,
+                        this.stringPool);
+    }
+
+    /**
+     * Decode the value of a member, which must exist.
+     * @param key A key string.
+     * @return The decoded value.
+     * @throws JSONException If there is no such member or it is malformed.
+     */
+    public Object get(String key) throws JSONException {
+        Object value = this.opt(key);
+        if (value == null) {
+            throw new JSONException("JSONObject[" + JSONObject.quote(key)
+                    + "] not found.");
+        }
+        return value;
+    }
+
+    /**
+     * Index the array value of a member, without decoding its elements.
+     * @param key A key string.
+     * @return A JSONLazyArray, or null if there is no such member.
+     * @throws JSONException If the value is not an array.
+     */
+    public JSONLazyArray optLazyArray(String key) throws JSONException {
+        int[] range = this.members.get(key);
+        return range == null ? null
+                : new JSONLazyArray(this.chars, range[0], range[1])
+                        .setCompactObjects(this.compactObjects)
+                        .setStringPool(this.stringPool);
+    }
+
+    /**
+     * Index the object value of a member, without decoding its members.
+     * @param key A key string.
+     * @return A JSONLazyObject, or null if there is no such member.
+     * @throws JSONException If the value is not an object.
+     */
+    public JSONLazyObject optLazyObject(String key) throws JSONException {
+        int[] range = this.members.get(key);
+        return range == null ? null
+                : new JSONLazyObject(this.chars, range[0], range[1])
+                        .setCompactObjects(this.compactObjects)
+                        .setStringPool(this.stringPool);
+    }
+
+    /**
+     * Get the value of a member, indexing it if it is an object or array and
+     * decoding it otherwise.
+     * @param key A key string.
+     * @return A JSONLazyObject, JSONLazyArray or decoded value, or null if
+     *         there is no such member.
+     * @throws JSONException If the value is malformed.
+     */
+    public Object optLazy(String key) throws JSONException {
+        int[] range = this.members.get(key);
+        return range == null ? null
+                : lazyValue(this.chars, range[0], range[1], this.compactObjects,
+                        this.stringPool);
+    }
+
+    /**
+     * Decode the whole object into a regular JSONObject.
+     * @return A JSONObject.
+     * @throws JSONException If the object is malformed.
+     */
+    public JSONObject toJSONObject() throws JSONException {
+        return (JSONObject) decode(this.chars, this.start, this.end,
+                this.compactObjects, this.stringPool);
+    }
+
+    /**
+     * @return The source text of the object.
+     */
+    @Override
+    public String toString() {
+        return new String(this.chars, this.start, this.end - this.start);
+    }
+
+    /**
+     * Decode a range of the source text into a value, optionally into
+     * compact objects and sharing strings through a pool.
+     */
+    static Object decode(char[] chars, int start, int end, boolean compact,
+            JSONStringPool pool) throws JSONException {
+        JSONTokener x = new JSONBufferedTokener(chars, start, end - start);
+        x.setCompactObjects(compact);
+        x.setStringPool(pool);
+        return x.nextValue();
+    }
+
+    /**
+     * Index a range of the source text if it holds an object or array, and
+     * decode it otherwise.
+     */
+    static Object lazyValue(char[] chars, int start, int end, boolean compact,
+            JSONStringPool pool) throws JSONException {
+        switch (chars[start]) {
+            case '{':
+                return new JSONLazyObject(chars, start, end)
+                        .setCompactObjects(compact).setStringPool(pool);
+            case '[':
+                return new JSONLazyArray(chars, start, end)
+                        .setCompactObjects(compact).setStringPool(pool);
+            default:
+                return decode(chars, start, end, compact, pool);
+        }
+    }
+
+    /**
+     * Skip over any whitespace.
+     * @return The index of the first character that is not whitespace.
+     */
+    static int skipWhitespace(char[] chars, int i, int end) {
+        while (i < end && chars[i] <= ' ') {
+            i += 1;
+        }
+        return i;
+    }
+
+    /**
+     * Skip over a single value, including any values nested within it.
+     * @param i The index of the first character of the value.
+     * @return The index just past the value.
+     * @throws JSONException If the value runs past the end of the text.
+     */
+    static int skipValue(char[] chars, int i, int end) throws JSONException {
+        if (i >= end) {
+            throw syntaxError("Missing value", i);
+        }
+        char c = chars[i];
+        if (c == '"' || c == '\'') {
+            return skipString(chars, i, end);
+        }
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            while (i < end) {
+                c = chars[i];
+                if (c == '"' || c == '\'') {
+                    i = skipString(chars, i, end);
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    depth += 1;
+                } else if (c == '}' || c == ']') {
+                    depth -= 1;
+                    if (depth == 0) {
+                        return i + 1;
+                    }
+                }
+                i += 1;
+            }
+            throw syntaxError("Unterminated object or array", i);
+        }
+        int valueStart = i;
+        while (i < end && chars[i] >= ' '
+                && ",:]}/\\\"[{;=#".indexOf(chars[i]) < 0) {
+            i += 1;
+        }
+        if (i == valueStart) {
+            throw syntaxError("Missing value", i);
+        }
+        return i;
+    }
+
+    /**
+     * Skip over a quoted string, honouring backslash escapes.
+     * @param i The index of the opening quote.
+     * @return The index just past the closing quote.
+     */
+    private static int skipString(char[] chars, int i, int end)
+            throws JSONException {
+        char quote = chars[i];
+        for (i += 1; i < end; i += 1) {
+            char c = chars[i];
+            if (c == '\\') {
+                i += 1;
+            } else if (c == quote) {
+                return i + 1;
+            } else if (c == '\n' || c == '\r') {
+                break;
+            }
+        }
+        throw syntaxError("Unterminated string", i);
+    }
+
+    /**
+     * Make a JSONException to signal a syntax error at an offset.
+     */
+    static JSONException syntaxError(String message, int index) {
+        return new JSONException(message + " at " + index);
+    }
+}
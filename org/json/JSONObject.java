@@ -28,8 +28,6 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Collection;
@@ -151,6 +149,27 @@ public class JSONObject {
      */
     public static final Object NULL = new Null();
 
+    /**
+     * The escape sequence of each ASCII character, or null for those that are
+     * written as they are. The solidus is only escaped when it follows a
+     * less-than sign, which quote checks for itself.
+     */
+    private static final String[] ESCAPES = new String[128];
+
+    static {
+        for (char c = 0; c < ' '; c++) {
+            ESCAPES[c] = unicodeEscape(c);
+        }
+        ESCAPES['\b'] = "\\b";
+        ESCAPES['\t'] = "\\t";
+        ESCAPES['\n'] = "\\n";
+        ESCAPES['\f'] = "\\f";
+        ESCAPES['\r'] = "\\r";
+        ESCAPES['"'] = "\\\"";
+        ESCAPES['\\'] = "\\\\";
+        ESCAPES['/'] = "\\/";
+    }
+
     /**
      * Construct an empty JSONObject.
      */
@@ -179,7 +198,9 @@ public class JSONObject {
     }
 
     /**
-     * Construct a JSONObject from a JSONTokener.
+     * Construct a JSONObject from a JSONTokener. If the tokener is set to
+     * parse compact objects, the members are kept in a JSONSmallMap rather
+     * than a HashMap.
      *
      * @param x
      *            A JSONTokener object containing the source string.
@@ -188,7 +209,9 @@ public class JSONObject {
      *             duplicated key.
      */
     public JSONObject(JSONTokener x) throws JSONException {
-        this();
+        this.map = x.isCompactObjects()
+                ? new JSONSmallMap()
+                : new HashMap<String, Object>();
         char c;
         String key;
 
@@ -597,6 +620,9 @@ public class JSONObject {
      */
     public int getInt(String key) throws JSONException {
         Object object = this.get(key);
+        if (object instanceof Integer) {
+            return ((Integer) object).intValue();
+        }
         try {
             return object instanceof Number ? ((Number) object).intValue()
                     : Integer.parseInt((String) object);
@@ -1129,47 +1155,21 @@ public class JSONObject {
     }
 
     private void populateMap(Object bean) {
-        Class<?> klass = bean.getClass();
 
-// If klass is a System class then set includeSuperClass to false.
+// The getters of each class are only looked up the first time one of its
+// beans is wrapped, see JSONBeanAccessor.
 
-        boolean includeSuperClass = klass.getClassLoader() != null;
-
-        Method[] methods = includeSuperClass ? klass.getMethods() : klass
-                .getDeclaredMethods();
-        for (int i = 0; i < methods.length; i += 1) {
+        JSONBeanAccessor[] accessors = JSONBeanAccessor.forClass(bean.getClass());
+        for (int i = 0; i < accessors.length; i += 1) {
             try {
-                Method method = methods[i];
-                if (Modifier.isPublic(method.getModifiers())) {
-                    String name = method.getName();
-                    String key = "";
-                    if (name.startsWith("get")) {
-                        if ("getClass".equals(name)
-                                || "getDeclaringClass".equals(name)) {
-                            key = "";
-                        } else {
-                            key = name.substring(3);
-                        }
-                    } else if (name.startsWith("is")) {
-                        key = name.substring(2);
-                    }
-                    if (key.length() > 0
-                            && Character.isUpperCase(key.charAt(0))
-                            && method.getParameterTypes().length == 0) {
-                        if (key.length() == 1) {
-                            key = key.toLowerCase();
-                        } else if (!Character.isUpperCase(key.charAt(1))) {
-                            key = key.substring(0, 1).toLowerCase()
-                                    + key.substring(1);
-                        }
-
-                        Object result = method.invoke(bean, (Object[]) null);
-                        if (result != null) {
-                            this.map.put(key, wrap(result));
-                        }
-                    }
+                Object result = accessors[i].get(bean);
+                if (result != null) {
+                    this.map.put(accessors[i].key, wrap(result));
                 }
             } catch (Exception ignore) {
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable ignore) {
             }
         }
     }
@@ -1371,9 +1371,31 @@ public class JSONObject {
      * @throws IllegalArgumentException if {@code jsonPointer} has invalid syntax
      */
     public Object optQuery(String jsonPointer) {
-        JSONPointer pointer = new JSONPointer(jsonPointer);
+        return optQuery(new JSONPointer(jsonPointer));
+    }
+
+    /**
+     * Uses a JSONPointer that was compiled ahead of time to match an item
+     * within this JSONObject, which avoids parsing the pointer on every query.
+     * A JSONPointerException may be thrown from code called by this method.
+     *
+     * @param jsonPointer a compiled JSONPointer
+     * @return the item matched by the JSONPointer, otherwise null
+     */
+    public Object query(JSONPointer jsonPointer) {
+        return jsonPointer.queryFrom(this);
+    }
+
+    /**
+     * Queries and returns a value from this JSONObject using a compiled
+     * {@code jsonPointer}, or returns null if the query fails.
+     *
+     * @param jsonPointer a compiled JSONPointer
+     * @return the queried value or {@code null}
+     */
+    public Object optQuery(JSONPointer jsonPointer) {
         try {
-            return pointer.queryFrom(this);
+            return jsonPointer.queryFrom(this);
         } catch (JSONPointerException e) {
             return null;
         }
@@ -1407,59 +1429,53 @@ public class JSONObject {
             return w;
         }
 
-        char b;
-        char c = 0;
-        String hhhh;
-        int i;
+        char c;
+        String escape;
+        int start = 0;
         int len = string.length();
 
         w.write('"');
-        for (i = 0; i < len; i += 1) {
-            b = c;
+        for (int i = 0; i < len; i += 1) {
             c = string.charAt(i);
-            switch (c) {
-            case '\\':
-            case '"':
-                w.write('\\');
-                w.write(c);
-                break;
-            case '/':
-                if (b == '<') {
-                    w.write('\\');
-                }
-                w.write(c);
-                break;
-            case '\b':
-                w.write("\\b");
-                break;
-            case '\t':
-                w.write("\\t");
-                break;
-            case '\n':
-                w.write("\\n");
-                break;
-            case '\f':
-                w.write("\\f");
-                break;
-            case '\r':
-                w.write("\\r");
-                break;
-            default:
-                if (c < ' ' || (c >= '\u0080' && c < '\u00a0')
-                        || (c >= '\u2000' && c < '\u2100')) {
-                    w.write("\\u");
-                    hhhh = Integer.toHexString(c);
-                    w.write("0000", 0, 4 - hhhh.length());
-                    w.write(hhhh);
-                } else {
-                    w.write(c);
+            if (c < ESCAPES.length) {
+                escape = ESCAPES[c];
+                if (escape == null
+                        || (c == '/' && (i == 0 || string.charAt(i - 1) != '<'))) {
+                    continue;
                 }
+            } else if ((c >= '\u0080' && c < '\u00a0')
+                    || (c >= '\u2000' && c < '\u2100')) {
+                escape = unicodeEscape(c);
+            } else {
+                continue;
+            }
+
+            // copy the run of characters that needed no escaping in one go
+            if (i > start) {
+                w.write(string, start, i - start);
             }
+            w.write(escape);
+            start = i + 1;
+        }
+        if (start < len) {
+            w.write(string, start, len - start);
         }
         w.write('"');
         return w;
     }
 
+    /**
+     * Produce the four digit unicode escape sequence of a character.
+     *
+     * @param c
+     *            A character.
+     * @return The escape sequence, with four lower case hex digits.
+     */
+    private static String unicodeEscape(char c) {
+        String hhhh = Integer.toHexString(c);
+        return "\\u" + "0000".substring(hhhh.length()) + hhhh;
+    }
+
     /**
      * Remove a name and its value, if present.
      *
@@ -1541,6 +1557,10 @@ public class JSONObject {
 
         char initial = string.charAt(0);
         if ((initial >= '0' && initial <= '9') || initial == '-') {
+            Number integer = integerValue(string);
+            if (integer != null) {
+                return integer;
+            }
             try {
                 if (string.indexOf('.') > -1 || string.indexOf('e') > -1
                         || string.indexOf('E') > -1
@@ -1564,6 +1584,83 @@ public class JSONObject {
         return string;
     }
 
+    /**
+     * Try to read a plain decimal integer, such as an id, straight out of a
+     * range of characters without creating a String for it first. Only the
+     * canonical form is accepted: an optional minus sign followed by digits
+     * without leading zeros, and at most 18 digits so that the value cannot
+     * overflow a long. Trailing spaces are ignored.
+     *
+     * @param chars
+     *            The characters holding the value.
+     * @param start
+     *            The index of the first character.
+     * @param end
+     *            The index just past the last character.
+     * @return An Integer if the value fits in an int, otherwise a Long, or
+     *         null if the characters are not a plain decimal integer.
+     */
+    static Number integerValue(char[] chars, int start, int end) {
+        while (end > start && chars[end - 1] == ' ') {
+            end -= 1;
+        }
+        boolean negative = start < end && chars[start] == '-';
+        int i = negative ? start + 1 : start;
+        int digits = end - i;
+        if (digits < 1 || digits > 18
+                || (chars[i] == '0' && (digits > 1 || negative))) {
+            return null;
+        }
+        long value = 0;
+        for (; i < end; i += 1) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return integerOrLong(negative ? -value : value);
+    }
+
+    /**
+     * Try to read a plain decimal integer out of a string, following the same
+     * rules as integerValue(char[], int, int).
+     *
+     * @param string
+     *            A String.
+     * @return An Integer or a Long, or null if the string is not a plain
+     *         decimal integer.
+     */
+    static Number integerValue(String string) {
+        int end = string.length();
+        boolean negative = end > 0 && string.charAt(0) == '-';
+        int i = negative ? 1 : 0;
+        int digits = end - i;
+        if (digits < 1 || digits > 18
+                || (string.charAt(i) == '0' && (digits > 1 || negative))) {
+            return null;
+        }
+        long value = 0;
+        for (; i < end; i += 1) {
+            char c = string.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return integerOrLong(negative ? -value : value);
+    }
+
+    /**
+     * Box a long as an Integer if it fits in an int, or as a Long otherwise.
+     */
+    private static Number integerOrLong(long value) {
+        if (value == (int) value) {
+            return Integer.valueOf((int) value);
+        }
+        return Long.valueOf(value);
+    }
+
     /**
      * Throw an exception if the object is a NaN or infinite number.
      *
@@ -1872,7 +1969,7 @@ public class JSONObject {
 
             if (length == 1) {
                 Object key = keys.next();
-                writer.write(quote(key.toString()));
+                quote(key.toString(), writer);
                 writer.write(':');
                 if (indentFactor > 0) {
                     writer.write(' ');
@@ -1889,7 +1986,7 @@ public class JSONObject {
                         writer.write('\n');
                     }
                     indent(writer, newindent);
-                    writer.write(quote(key.toString()));
+                    quote(key.toString(), writer);
                     writer.write(':');
                     if (indentFactor > 0) {
                         writer.write(' ');
@@ -45,6 +45,12 @@ SOFTWARE.
  * JSONObject, a JSONArray, or a JSON value. If the JSONPointer string building 
  * fails, an appropriate exception is thrown. If the navigation fails to find
  * a match, a JSONPointerException is thrown. 
+ * <p>
+ * A JSONPointer is compiled when it is created: each segment is unescaped
+ * once, and segments that can be array indices are parsed into ints, so that
+ * evaluating the same pointer on many documents does no string work at all.
+ * Besides JSONObjects and JSONArrays, a pointer can also navigate through a
+ * JSONLazyObject or JSONLazyArray, decoding only the value it ends up at.
  * 
  * @author JSON.org
  * @version 2016-05-14
@@ -126,6 +132,11 @@ public class JSONPointer {
     // Segments for the JSONPointer string
     private final List<String> refTokens;
 
+    // The same segments, compiled for evaluation: the unescaped keys, and
+    // for each key the array index it denotes, or -1 if it is not one.
+    private final String[] keys;
+    private final int[] indices;
+
     /**
      * Pre-parses and initializes a new {@code JSONPointer} instance. If you want to
      * evaluate the same JSON Pointer on different JSON documents then it is recommended
@@ -140,6 +151,8 @@ public class JSONPointer {
         }
         if (pointer.isEmpty() || pointer.equals("#")) {
             refTokens = Collections.emptyList();
+            keys = new String[0];
+            indices = new int[0];
             return;
         }
         if (pointer.startsWith("#/")) {
@@ -158,10 +171,44 @@ public class JSONPointer {
         for (String token : pointer.split("/")) {
             refTokens.add(unescape(token));
         }
+        keys = refTokens.toArray(new String[refTokens.size()]);
+        indices = compileIndices(keys);
     }
 
     public JSONPointer(List<String> refTokens) {
         this.refTokens = new ArrayList<String>(refTokens);
+        this.keys = this.refTokens.toArray(new String[this.refTokens.size()]);
+        this.indices = compileIndices(this.keys);
+    }
+
+    /**
+     * Parses each of the segments that could be an array index.
+     * @param keys the unescaped segments
+     * @return the array index of each segment, or -1 for any segment that is
+     * not made up of digits alone or is too large for an int
+     */
+    private static int[] compileIndices(String[] keys) {
+        int[] indices = new int[keys.length];
+        for (int i = 0; i < keys.length; i += 1) {
+            indices[i] = -1;
+            String key = keys[i];
+            if (key.isEmpty() || key.length() > 10) {
+                continue;
+            }
+            long index = 0;
+            for (int j = 0; j < key.length(); j += 1) {
+                char c = key.charAt(j);
+                if (c < '0' || c > '9') {
+                    index = -1;
+                    break;
+                }
+                index = index * 10 + (c - '0');
+            }
+            if (index >= 0 && index <= Integer.MAX_VALUE) {
+                indices[i] = (int) index;
+            }
+        }
+        return indices;
     }
 
     private String unescape(String token) {
@@ -181,43 +228,44 @@ public class JSONPointer {
      * @throws JSONPointerException if an error occurs during evaluation
      */
     public Object queryFrom(Object document) {
-        if (refTokens.isEmpty()) {
-            return document;
-        }
         Object current = document;
-        for (String token : refTokens) {
+        for (int i = 0; i < keys.length; i += 1) {
             if (current instanceof JSONObject) {
-                current = ((JSONObject) current).opt(unescape(token));
+                current = ((JSONObject) current).opt(keys[i]);
             } else if (current instanceof JSONArray) {
-                current = readByIndexToken(current, token);
+                JSONArray currentArr = (JSONArray) current;
+                current = currentArr.get(checkIndex(i, currentArr.length()));
+            } else if (current instanceof JSONLazyObject) {
+                current = ((JSONLazyObject) current).optLazy(keys[i]);
+            } else if (current instanceof JSONLazyArray) {
+                JSONLazyArray currentArr = (JSONLazyArray) current;
+                current = currentArr.optLazy(checkIndex(i, currentArr.length()));
             } else {
                 throw new JSONPointerException(format(
                         "value [%s] is not an array or object therefore its key %s cannot be resolved", current,
-                        token));
+                        keys[i]));
             }
         }
         return current;
     }
 
     /**
-     * Matches a JSONArray element by ordinal position
-     * @param current the JSONArray to be evaluated
-     * @param indexToken the array index in string form
-     * @return the matched object. If no matching item is found a
-     * JSONPointerException is thrown
+     * Checks that a segment is a usable index into an array
+     * @param i the position of the segment
+     * @param length the number of elements in the array being evaluated
+     * @return the array index denoted by the segment. If it is not an index
+     * or is out of bounds a JSONPointerException is thrown
      */
-    private Object readByIndexToken(Object current, String indexToken) {
-        try {
-            int index = Integer.parseInt(indexToken);
-            JSONArray currentArr = (JSONArray) current;
-            if (index >= currentArr.length()) {
-                throw new JSONPointerException(format("index %d is out of bounds - the array has %d elements", index,
-                        currentArr.length()));
-            }
-            return currentArr.get(index);
-        } catch (NumberFormatException e) {
-            throw new JSONPointerException(format("%s is not an array index", indexToken), e);
+    private int checkIndex(int i, int length) {
+        int index = indices[i];
+        if (index < 0) {
+            throw new JSONPointerException(format("%s is not an array index", keys[i]));
+        }
+        if (index >= length) {
+            throw new JSONPointerException(format("index %d is out of bounds - the array has %d elements", index,
+                    length));
         }
+        return index;
     }
 
     /**
@@ -0,0 +1,258 @@
+package org.json;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A compact map for JSONObjects with only a few keys. The keys and values are
+ * kept in two flat arrays that are searched linearly, which takes far less
+ * memory than a HashMap with its table and entry objects. Once the map grows
+ * past MAX_FLAT_SIZE keys, it switches over to a HashMap for good.
+ * @author JSON.org
+ * @version 2016-08-15
+ */
+final class JSONSmallMap extends AbstractMap<String, Object> {
+
+    /** The largest number of keys kept in the flat arrays. */
+    static final int MAX_FLAT_SIZE = 8;
+
+    private String[] keys = new String[4];
+    private Object[] values = new Object[4];
+    private int size;
+    private HashMap<String, Object> large;
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < this.size; i += 1) {
+            String k = this.keys[i];
+            if (k == key || k.equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int i) {
+        int moved = this.size - i - 1;
+        if (moved > 0) {
+            System.arraycopy(this.keys, i + 1, this.keys, i, moved);
+            System.arraycopy(this.values, i + 1, this.values, i, moved);
+        }
+        this.size -= 1;
+        this.keys[this.size] = null;
+        this.values[this.size] = null;
+    }
+
+    @Override
+    public int size() {
+        return this.large != null ? this.large.size() : this.size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.large != null ? this.large.containsKey(key)
+                : this.indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (this.large != null) {
+            return this.large.get(key);
+        }
+        int i = this.indexOf(key);
+        return i >= 0 ? this.values[i] : null;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        if (this.large != null) {
+            return this.large.put(key, value);
+        }
+        int i = this.indexOf(key);
+        if (i >= 0) {
+            Object previous = this.values[i];
+            this.values[i] = value;
+            return previous;
+        }
+        if (this.size == MAX_FLAT_SIZE) {
+            this.large = new HashMap<String, Object>(MAX_FLAT_SIZE * 4);
+            for (int j = 0; j < this.size; j += 1) {
+                this.large.put(this.keys[j], this.values[j]);
+            }
+            this.keys = null;
+            this.values = null;
+            this.size = 0;
+            return this.large.put(key, value);
+        }
+        if (this.size == this.keys.length) {
+            String[] grownKeys = new String[MAX_FLAT_SIZE];
+            Object[] grownValues = new Object[MAX_FLAT_SIZE];
+            System.arraycopy(this.keys, 0, grownKeys, 0, this.size);
+            System.arraycopy(this.values, 0, grownValues, 0, this.size);
+            this.keys = grownKeys;
+            this.values = grownValues;
+        }
+        this.keys[this.size] = key;
+        this.values[this.size] = value;
+        this.size += 1;
+        return null;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (this.large != null) {
+            return this.large.remove(key);
+        }
+        int i = this.indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+        Object previous = this.values[i];
+        this.removeAt(i);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        if (this.large != null) {
+            this.large.clear();
+            return;
+        }
+        for (int i = 0; i < this.size; i += 1) {
+            this.keys[i] = null;
+            this.values[i] = null;
+        }
+        this.size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        if (this.large != null) {
+            return this.large.entrySet();
+        }
+        return new AbstractSet<Map.Entry<String, Object>>() {
+            @Override
+            public int size() {
+                return JSONSmallMap.this.size;
+            }
+
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                return new FlatIterator();
+            }
+        };
+    }
+
+    /**
+     * An entry of the flat arrays, which writes through to the map and
+     * compares and hashes as Map.Entry specifies, so that the map does too.
+     */
+    private final class FlatEntry implements Map.Entry<String, Object> {
+        private final int i;
+
+        FlatEntry(int i) {
+            this.i = i;
+        }
+
+        @Override
+        public String getKey() {
+            return JSONSmallMap.this.keys[this.i];
+        }
+
+        @Override
+        public Object getValue() {
+            return JSONSmallMap.this.values[this.i];
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object previous = JSONSmallMap.this.values[this.i];
+            JSONSmallMap.this.values[this.i] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return Objects.equals(this.getKey(), e.getKey())
+                    && Objects.equals(this.getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(this.getKey())
+                    ^ Objects.hashCode(this.getValue());
+        }
+
+        @Override
+        public String toString() {
+            return this.getKey() + "=" + this.getValue();
+        }
+    }
+
+    /**
+     * Iterates over the flat arrays, handing out entries that write through
+     * to the map.
+     */
+    private final class FlatIterator implements Iterator<Map.Entry<String, Object>> {
+        private int next;
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            return this.next < JSONSmallMap.this.size;
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            this.last = this.next;
+            this.next += 1;
+            return new FlatEntry(this.last);
+        }
+
+        @Override
+        public void remove() {
+            if (this.last < 0) {
+                throw new IllegalStateException();
+            }
+            JSONSmallMap.this.removeAt(this.last);
+            this.next = this.last;
+            this.last = -1;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package org.json;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+/**
+ * A JSONStringPool lets the keys and short values of a single parse share one
+ * String instance each, rather than allocating a new String every time the
+ * same text comes up again. The pool is a small open addressing table that
+ * stops taking new strings once it is mostly full, so its size stays bounded
+ * however large the document is. It is meant to be used for one parse and
+ * then dropped, and is not thread safe.
+ * @author JSON.org
+ * @version 2016-08-15
+ */
+public class JSONStringPool {
+
+    /** The longest string that is pooled. */
+    public static final int MAX_LENGTH = 32;
+
+    /** The default number of slots in the table. */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final String[] table;
+    private final int maxEntries;
+    private int entries;
+    private long hits;
+    private long lookups;
+
+    /**
+     * Construct a JSONStringPool with the default capacity.
+     */
+    public JSONStringPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Construct a JSONStringPool.
+     * @param capacity The number of slots, which is rounded up to a power
+     *                 of two. At most three quarters of them are filled.
+     */
+    public JSONStringPool(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        this.table = new String[size];
+        this.maxEntries = size / 4 * 3;
+    }
+
+    /**
+     * Return the pooled String with the same contents as a range of chars,
+     * creating and pooling a new one only if there is none yet.
+     * @param chars  The characters.
+     * @param start  The index of the first character.
+     * @param length The number of characters.
+     * @return A String with the given contents.
+     */
+    public String intern(char[] chars, int start, int length) {
+        if (length > MAX_LENGTH) {
+            return new String(chars, start, length);
+        }
+        int hash = 0;
+        for (int i = start; i < start + length; i += 1) {
+            hash = 31 * hash + chars[i];
+        }
+        this.lookups += 1;
+        int mask = this.table.length - 1;
+        for (int slot = spread(hash) & mask;; slot = (slot + 1) & mask) {
+            String pooled = this.table[slot];
+            if (pooled == null) {
+                String string = new String(chars, start, length);
+                this.add(slot, string);
+                return string;
+            }
+            if (pooled.length() == length && pooled.hashCode() == hash
+                    && regionMatches(pooled, chars, start)) {
+                this.hits += 1;
+                return pooled;
+            }
+        }
+    }
+
+    /**
+     * Return the pooled String with the same contents as a character
+     * sequence, such as a StringBuilder holding an unescaped string.
+     * @param sequence The characters.
+     * @return A String with the given contents.
+     */
+    public String intern(CharSequence sequence) {
+        int length = sequence.length();
+        if (length > MAX_LENGTH) {
+            return sequence.toString();
+        }
+        int hash = 0;
+        for (int i = 0; i < length; i += 1) {
+            hash = 31 * hash + sequence.charAt(i);
+        }
+        this.lookups += 1;
+        int mask = this.table.length - 1;
+        for (int slot = spread(hash) & mask;; slot = (slot + 1) & mask) {
+            String pooled = this.table[slot];
+            if (pooled == null) {
+                String string = sequence.toString();
+                this.add(slot, string);
+                return string;
+            }
+            if (pooled.length() == length && pooled.hashCode() == hash
+                    && pooled.contentEquals(sequence)) {
+                this.hits += 1;
+                return pooled;
+            }
+        }
+    }
+
+    /**
+     * @return The number of lookups that found a pooled String.
+     */
+    public long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * @return The number of strings looked up in the pool.
+     */
+    public long getLookups() {
+        return this.lookups;
+    }
+
+    /**
+     * @return The fraction of lookups that found a pooled String, from 0
+     *         to 1.
+     */
+    public double getHitRate() {
+        return this.lookups == 0 ? 0 : (double) this.hits / this.lookups;
+    }
+
+    /**
+     * @return The number of distinct strings held by the pool.
+     */
+    public int size() {
+        return this.entries;
+    }
+
+    /**
+     * Put a new String into an empty slot, unless the table is full enough
+     * already. The table always keeps empty slots, which ends each probe.
+     */
+    private void add(int slot, String string) {
+        if (this.entries < this.maxEntries) {
+            this.table[slot] = string;
+            this.entries += 1;
+        }
+    }
+
+    private static boolean regionMatches(String string, char[] chars,
+            int start) {
+        for (int i = 0; i < string.length(); i += 1) {
+            if (string.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -41,12 +41,14 @@ SOFTWARE.
 public class JSONTokener {
 
     private long    character;
+    private boolean compactObjects;
     private boolean eof;
     private long    index;
     private long    line;
     private char    previous;
     private Reader  reader;
     private boolean usePrevious;
+    private JSONStringPool stringPool;
 
 
     /**
@@ -67,6 +69,21 @@ public class JSONTokener {
     }
 
 
+    /**
+     * Construct a JSONTokener without a Reader. This is meant for subclasses
+     * that keep track of their own source text, and which therefore need to
+     * override every method that reads from the reader.
+     */
+    protected JSONTokener() {
+        this.eof = false;
+        this.usePrevious = false;
+        this.previous = 0;
+        this.index = 0;
+        this.character = 1;
+        this.line = 1;
+    }
+
+
     /**
      * Construct a JSONTokener from an InputStream.
      * @param inputStream The source.
@@ -104,6 +121,45 @@ public class JSONTokener {
     }
 
 
+    /**
+     * Choose how the JSONObjects parsed by this tokener store their members.
+     * Compact objects keep up to a handful of keys in flat arrays and only
+     * switch over to a HashMap once they grow larger than that, which takes
+     * far less memory for documents made up of many small objects.
+     * @param compact true to parse into compact objects.
+     */
+    public void setCompactObjects(boolean compact) {
+        this.compactObjects = compact;
+    }
+
+
+    /**
+     * @return true if this tokener parses into compact objects.
+     */
+    public boolean isCompactObjects() {
+        return this.compactObjects;
+    }
+
+
+    /**
+     * Share the keys and short string values parsed by this tokener through
+     * a pool, so that text which repeats throughout the document, such as
+     * the keys of every element of an array, is only held once.
+     * @param pool A JSONStringPool, or null to stop pooling strings.
+     */
+    public void setStringPool(JSONStringPool pool) {
+        this.stringPool = pool;
+    }
+
+
+    /**
+     * @return The JSONStringPool used by this tokener, or null if none.
+     */
+    public JSONStringPool getStringPool() {
+        return this.stringPool;
+    }
+
+
     /**
      * Get the hex value of a character (base16).
      * @param c A character between '0' and '9' or between 'A' and 'F' or
@@ -258,8 +314,24 @@ public class JSONTokener {
      * @throws JSONException Unterminated string.
      */
     public String nextString(char quote) throws JSONException {
+        return this.nextString(quote, new StringBuilder());
+    }
+
+
+    /**
+     * Return the characters up to the next close quote character, appending
+     * them to characters of the same string that were already consumed.
+     * Backslash processing is done.
+     * @param quote The quoting character, either
+     *      <code>"</code>&nbsp;<small>(double quote)</small> or
+     *      <code>'</code>&nbsp;<small>(single quote)</small>.
+     * @param sb    A builder holding the start of the string, if any.
+     * @return      A String.
+     * @throws JSONException Unterminated string.
+     */
+    protected String nextString(char quote, StringBuilder sb)
+            throws JSONException {
         char c;
-        StringBuilder sb = new StringBuilder();
         for (;;) {
             c = this.next();
             switch (c) {
@@ -304,7 +376,9 @@ public class JSONTokener {
                 break;
             default:
                 if (c == quote) {
-                    return sb.toString();
+                    return this.stringPool != null
+                            ? this.stringPool.intern(sb)
+                            : sb.toString();
                 }
                 sb.append(c);
             }
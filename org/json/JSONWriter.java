@@ -1,6 +1,7 @@
 package org.json;
 
 import java.io.IOException;
+import java.io.Writer;
 
 /*
 Copyright (c) 2006 JSON.org
@@ -107,6 +108,17 @@ public class JSONWriter {
      * @throws JSONException If the value is out of sequence.
      */
     private JSONWriter append(String string) throws JSONException {
+        return this.append(string, false);
+    }
+
+    /**
+     * Append a value, either as it is or as a quoted string.
+     * @param string A string value.
+     * @param quoted Whether the string is to be quoted and escaped.
+     * @return this
+     * @throws JSONException If the value is out of sequence.
+     */
+    private JSONWriter append(String string, boolean quoted) throws JSONException {
         if (string == null) {
             throw new JSONException("Null pointer");
         }
@@ -115,7 +127,11 @@ public class JSONWriter {
                 if (this.comma && this.mode == 'a') {
                     this.writer.append(',');
                 }
-                this.writer.append(string);
+                if (quoted) {
+                    this.quote(string);
+                } else {
+                    this.writer.append(string);
+                }
             } catch (IOException e) {
                 throw new JSONException(e);
             }
@@ -128,6 +144,20 @@ public class JSONWriter {
         throw new JSONException("Value out of sequence.");
     }
 
+    /**
+     * Append a quoted string. When the destination is a Writer the string is
+     * escaped straight into it, rather than into a string of its own first.
+     * @param string A string.
+     * @throws IOException If the destination cannot be written to.
+     */
+    private void quote(String string) throws IOException {
+        if (this.writer instanceof Writer) {
+            JSONObject.quote(string, (Writer) this.writer);
+        } else {
+            this.writer.append(JSONObject.quote(string));
+        }
+    }
+
     /**
      * Begin appending a new array. All values until the balancing
      * <code>endArray</code> will be appended to this array. The
@@ -208,7 +238,7 @@ public class JSONWriter {
                 if (this.comma) {
                     this.writer.append(',');
                 }
-                this.writer.append(JSONObject.quote(string));
+                this.quote(string);
                 this.writer.append(':');
                 this.comma = false;
                 this.mode = 'o';
@@ -321,6 +351,9 @@ public class JSONWriter {
      * @throws JSONException If the value is out of sequence.
      */
     public JSONWriter value(Object object) throws JSONException {
+        if (object instanceof String) {
+            return this.append((String) object, true);
+        }
         return this.append(JSONObject.valueToString(object));
     }
 }
@@ -0,0 +1,288 @@
+package org.json;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An XMLRecordReader reads the flat records out of an XML document one at a
+ * time, without building a JSONObject for the document or for any of its
+ * elements. A record is an element whose fields are all simple: attributes,
+ * and child elements that hold nothing but text. Both of these reservations
+ * are records with the same three fields:
+ * <pre>
+ * &lt;reservation campsiteId="1" startDate="2018-06-01" endDate="2018-06-04"/&gt;
+ * &lt;reservation&gt;
+ *     &lt;campsiteId&gt;1&lt;/campsiteId&gt;
+ *     &lt;startDate&gt;2018-06-01&lt;/startDate&gt;
+ *     &lt;endDate&gt;2018-06-04&lt;/endDate&gt;
+ * &lt;/reservation&gt;
+ * </pre>
+ * Elements holding other records, such as a &lt;reservations&gt; list, are
+ * only walked through. A record is handed back as soon as its close tag is
+ * read, so the reader only ever holds the elements that are still open.
+ * Field values are kept as strings, with entities already replaced.
+ * @author JSON.org
+ * @version 2016-08-15
+ */
+public class XMLRecordReader {
+
+    /**
+     * An element that is still open, along with the fields collected for it
+     * so far. Elements are reused for each depth of the document.
+     */
+    private static final class Element {
+        String name;
+        final Map<String, String> fields = new HashMap<String, String>();
+        final StringBuilder text = new StringBuilder();
+        boolean hasChildren;
+        boolean hasRecordChildren;
+
+        void reset(String name) {
+            this.name = name;
+            this.fields.clear();
+            this.text.setLength(0);
+            this.hasChildren = false;
+            this.hasRecordChildren = false;
+        }
+    }
+
+    private final XMLTokener x;
+    private final List<Element> elements = new ArrayList<Element>();
+    private int depth;
+    private Element record;
+
+    /**
+     * Construct an XMLRecordReader over a tokener.
+     * @param x An XMLTokener, such as one reading from a Reader.
+     */
+    public XMLRecordReader(XMLTokener x) {
+        this.x = x;
+    }
+
+    /**
+     * Read on to the next record in the document.
+     * @return true if a record was read, false at the end of the document.
+     * @throws JSONException If the document is not well formed.
+     */
+    public boolean next() throws JSONException {
+        this.record = null;
+        for (;;) {
+            Object token = this.x.nextContent();
+            if (token == null) {
+                if (this.depth > 0) {
+                    throw this.x.syntaxError("Unclosed tag "
+                            + this.elements.get(this.depth - 1).name);
+                }
+                return false;
+            }
+            if (token instanceof String) {
+                if (this.depth > 0) {
+                    this.elements.get(this.depth - 1).text.append((String) token);
+                }
+                continue;
+            }
+            if (this.nextTag()) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return The tag name of the current record.
+     */
+    public String getName() {
+        return this.record == null ? null : this.record.name;
+    }
+
+    /**
+     * Get a field of the current record.
+     * @param field The name of an attribute or child element.
+     * @return Its value, or null if the record has no such field.
+     */
+    public String get(String field) {
+        return this.record == null ? null : this.record.fields.get(field);
+    }
+
+    /**
+     * @return The number of elements that enclose the current record.
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * Read a single tag, just past its opening '<'.
+     * @return true if the tag closed a record.
+     * @throws JSONException If the tag is not well formed.
+     */
+    private boolean nextTag() throws JSONException {
+        Object token = this.x.nextToken();
+
+        // <!-- ... -->, <![CDATA[ ... ]]> and <! ... >
+
+        if (token == XML.BANG) {
+            char c = this.x.next();
+            if (c == '-') {
+                if (this.x.next() == '-') {
+                    this.x.skipPast("-->");
+                    return false;
+                }
+                this.x.back();
+            } else if (c == '[') {
+                token = this.x.nextToken();
+                if ("CDATA".equals(token) && this.x.next() == '[') {
+                    String cdata = this.x.nextCDATA();
+                    if (this.depth > 0) {
+                        this.elements.get(this.depth - 1).text.append(cdata);
+                    }
+                    return false;
+                }
+                throw this.x.syntaxError("Expected 'CDATA['");
+            }
+            int i = 1;
+            do {
+                token = this.x.nextMeta();
+                if (token == null) {
+                    throw this.x.syntaxError("Missing '>' after '<!'.");
+                } else if (token == XML.LT) {
+                    i += 1;
+                } else if (token == XML.GT) {
+                    i -= 1;
+                }
+            } while (i > 0);
+            return false;
+        }
+
+        // <? ... ?>
+
+        if (token == XML.QUEST) {
+            this.x.skipPast("?>");
+            return false;
+        }
+
+        // Close tag </name>
+
+        if (token == XML.SLASH) {
+            token = this.x.nextToken();
+            if (this.depth == 0) {
+                throw this.x.syntaxError("Mismatched close tag " + token);
+            }
+            Element element = this.elements.get(this.depth - 1);
+            if (!element.name.equals(token)) {
+                throw this.x.syntaxError("Mismatched " + element.name
+                        + " and " + token);
+            }
+            if (this.x.nextToken() != XML.GT) {
+                throw this.x.syntaxError("Misshaped close tag");
+            }
+            return this.close();
+        }
+        if (token instanceof Character) {
+            throw this.x.syntaxError("Misshaped tag");
+        }
+
+        // Open tag <name attribute="value" ...> or <name ... />
+
+        Element element = this.open((String) token);
+        token = null;
+        for (;;) {
+            if (token == null) {
+                token = this.x.nextToken();
+            }
+            if (token instanceof String) {
+                String attribute = (String) token;
+                token = this.x.nextToken();
+                if (token == XML.EQ) {
+                    token = this.x.nextToken();
+                    if (!(token instanceof String)) {
+                        throw this.x.syntaxError("Missing value");
+                    }
+                    element.fields.put(attribute, (String) token);
+                    token = null;
+                } else {
+                    element.fields.put(attribute, "");
+                }
+            } else if (token == XML.SLASH) {
+                if (this.x.nextToken() != XML.GT) {
+                    throw this.x.syntaxError("Misshaped tag");
+                }
+                return this.close();
+            } else if (token == XML.GT) {
+                return false;
+            } else {
+                throw this.x.syntaxError("Misshaped tag");
+            }
+        }
+    }
+
+    /**
+     * Open an element one level deeper than the current one.
+     */
+    private Element open(String name) {
+        if (this.depth > 0) {
+            this.elements.get(this.depth - 1).hasChildren = true;
+        }
+        if (this.depth == this.elements.size()) {
+            this.elements.add(new Element());
+        }
+        Element element = this.elements.get(this.depth);
+        element.reset(name);
+        this.depth += 1;
+        return element;
+    }
+
+    /**
+     * Close the current element, either handing it to its parent as a field
+     * or making it the current record.
+     * @return true if the element is a record.
+     */
+    private boolean close() {
+        this.depth -= 1;
+        Element element = this.elements.get(this.depth);
+        Element parent = this.depth > 0 ? this.elements.get(this.depth - 1) : null;
+
+        // An element with nothing but text is a field of its parent.
+        if (!element.hasChildren && element.fields.isEmpty()) {
+            if (parent != null) {
+                parent.fields.put(element.name, element.text.toString().trim());
+            }
+            return false;
+        }
+
+        // An element holding other records is only a container.
+        if (element.hasRecordChildren) {
+            return false;
+        }
+        if (parent != null) {
+            parent.hasRecordChildren = true;
+        }
+        this.record = element;
+        return true;
+    }
+}
@@ -55,6 +55,15 @@ public class XMLTokener extends JSONTokener {
         super(s);
     }
 
+    /**
+     * Construct an XMLTokener from a Reader, so that a document can be
+     * tokenized without holding all of it in memory.
+     * @param r A source reader.
+     */
+    public XMLTokener(java.io.Reader r) {
+        super(r);
+    }
+
     /**
      * Get the text in the CDATA block.
      * @return The string up to the <code>]]&gt;</code>.